@@ -0,0 +1,114 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.conversation
+
+import android.support.test.InstrumentationRegistry
+import android.support.test.filters.LargeTest
+import android.support.test.runner.AndroidJUnit4
+import android.support.v7.widget.LinearLayoutManager
+import android.support.v7.widget.RecyclerView
+import android.util.Log
+import android.view.ContextThemeWrapper
+import android.view.View
+import com.toshi.R
+import com.toshi.model.local.User
+import com.toshi.model.sofa.SofaMessage
+import com.toshi.view.adapter.MessageAdapter
+import com.toshi.view.adapter.MessageRenderModelBuilder
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.lessThan
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class ChatScrollBenchmark {
+
+    private val tag = "ChatScrollBenchmark"
+    private val numberOfMessages = 5_000
+    private val frameBudgetNanos = 16_666_666L
+    private val scrollPerFrame = 150
+    private val width = 1080
+    private val height = 1920
+    private val localUser = User("0x0000000000000000000000000000000000000001")
+    private val remoteUser = User("0x0000000000000000000000000000000000000002")
+
+    @Test
+    fun scrollingFiveThousandMessagesStaysWithinFrameBudget() {
+        val messages = buildMessages()
+        val renderStart = System.nanoTime()
+        val renderedMessages = MessageRenderModelBuilder().render(messages, localUser)
+        val renderNanos = System.nanoTime() - renderStart
+
+        val frameTimes = ArrayList<Long>()
+        var lastVisiblePosition = 0
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val context = ContextThemeWrapper(InstrumentationRegistry.getTargetContext(), R.style.AppTheme)
+            val layoutManager = LinearLayoutManager(context)
+            val adapter = MessageAdapter(true)
+            val recyclerView = RecyclerView(context)
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+            adapter.setRenderedMessages(renderedMessages)
+            layout(recyclerView)
+
+            // Each iteration is one frame: scroll, bind whatever comes into view and lay out
+            while (layoutManager.findLastVisibleItemPosition() < numberOfMessages - 1 && frameTimes.size < numberOfMessages) {
+                val start = System.nanoTime()
+                recyclerView.scrollBy(0, scrollPerFrame)
+                layout(recyclerView)
+                frameTimes.add(System.nanoTime() - start)
+            }
+            lastVisiblePosition = layoutManager.findLastVisibleItemPosition()
+        }
+
+        val sortedFrameTimes = frameTimes.sorted()
+        val median = sortedFrameTimes[sortedFrameTimes.size / 2]
+        val p90 = sortedFrameTimes[sortedFrameTimes.size * 9 / 10]
+        val p99 = sortedFrameTimes[sortedFrameTimes.size * 99 / 100]
+        val jankyFrames = frameTimes.count { it > frameBudgetNanos }
+        Log.i(tag, "Built $numberOfMessages render models in ${renderNanos / 1_000_000}ms. " +
+                "${frameTimes.size} frames: median ${median / 1000}us, p90 ${p90 / 1000}us, " +
+                "p99 ${p99 / 1000}us, over budget $jankyFrames")
+
+        assertThat(lastVisiblePosition, `is`(numberOfMessages - 1))
+        assertThat(median, lessThan(frameBudgetNanos))
+    }
+
+    private fun layout(view: View) {
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY)
+        )
+        view.layout(0, 0, width, height)
+    }
+
+    // Runs of messages from each side, with a link or a username now and then
+    private fun buildMessages(): List<SofaMessage> {
+        return (0 until numberOfMessages).map {
+            val sender = if ((it / 3) % 2 == 0) localUser else remoteUser
+            val body = when (it % 10) {
+                0 -> "Have a look at https://www.toshi.org/ when you get a chance"
+                5 -> "Ask @toshibot about message $it"
+                else -> "Message number $it in a long conversation"
+            }
+            SofaMessage().makeNew(sender, "SOFA::Message:{\"body\":\"$body\"}")
+        }
+    }
+}
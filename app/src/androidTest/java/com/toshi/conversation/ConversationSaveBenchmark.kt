@@ -0,0 +1,104 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.conversation
+
+import android.support.test.InstrumentationRegistry
+import android.support.test.filters.LargeTest
+import android.support.test.runner.AndroidJUnit4
+import android.util.Log
+import com.toshi.model.local.Conversation
+import com.toshi.model.local.Recipient
+import com.toshi.model.local.User
+import com.toshi.model.sofa.SofaMessage
+import io.realm.Realm
+import io.realm.RealmConfiguration
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.lessThan
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class ConversationSaveBenchmark {
+
+    private val tag = "ConversationSaveBenchmark"
+    private val measuredSaves = 50
+    private lateinit var realm: Realm
+
+    @Before
+    fun setup() {
+        Realm.init(InstrumentationRegistry.getTargetContext())
+        val config = RealmConfiguration.Builder()
+                .inMemory()
+                .name("conversationSaveBenchmark")
+                .build()
+        realm = Realm.getInstance(config)
+    }
+
+    @After
+    fun tearDown() {
+        realm.close()
+    }
+
+    @Test
+    fun saveLatencyStaysFlatFrom100To100kMessages() {
+        val smallThreadLatency = measureSaveLatency("0x0000000000000000000000000000000000000100", 100)
+        val largeThreadLatency = measureSaveLatency("0x0000000000000000000000000000000000100000", 100_000)
+        Log.i(tag, "Median save: 100 messages ${smallThreadLatency}ns, 100k messages ${largeThreadLatency}ns")
+        // A linear duplicate check would make the large thread ~1000x slower
+        assertThat(largeThreadLatency, lessThan(smallThreadLatency * 10))
+    }
+
+    @Test
+    fun duplicateMessageIsNotAddedTwice() {
+        val threadId = "0x0000000000000000000000000000000000000001"
+        val conversation = createConversation(threadId, 10)
+        val message = realm.where(SofaMessage::class.java).findFirst()!!
+        realm.executeTransaction { conversation.setLatestMessage(message) }
+        assertThat(conversation.allMessages!!.size, `is`(10))
+    }
+
+    private fun measureSaveLatency(threadId: String, existingMessages: Int): Long {
+        val conversation = createConversation(threadId, existingMessages)
+        val latencies = (0 until measuredSaves).map {
+            val message = buildMessage()
+            val start = System.nanoTime()
+            realm.executeTransaction {
+                val storedMessage = it.copyToRealmOrUpdate(message)
+                conversation.setLatestMessage(storedMessage)
+            }
+            System.nanoTime() - start
+        }
+        return latencies.sorted()[measuredSaves / 2]
+    }
+
+    private fun createConversation(threadId: String, numberOfMessages: Int): Conversation {
+        realm.beginTransaction()
+        val conversation = realm.copyToRealmOrUpdate(Conversation(Recipient(User(threadId))))
+        for (i in 0 until numberOfMessages) {
+            conversation.addMessage(realm.copyToRealmOrUpdate(buildMessage()))
+        }
+        realm.commitTransaction()
+        return conversation
+    }
+
+    private fun buildMessage() = SofaMessage().makeNew("SOFA::Message:{\"body\":\"Hello\"}")
+}
@@ -0,0 +1,98 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto
+
+import com.toshi.crypto.keyStore.KeyStoreHandler
+import com.toshi.crypto.util.HashUtil.sha3
+import com.toshi.crypto.util.TypeConverter
+import com.toshi.exception.KeyStoreException
+import com.toshi.util.logging.LogUtil
+import com.toshi.util.sharedPrefs.WalletPrefsInterface
+
+/**
+ * Keeps the keys derived from the master seed, encrypted with the KeyStore, so an existing
+ * wallet can be built without running the BIP39 and BIP32 derivation again.
+ *
+ * Each key is stored with its public key, so nothing has to be multiplied on the curve either.
+ * The cache is tagged with a fingerprint of the seed, and is ignored if it was written for a
+ * different seed or in a different format.
+ */
+class DerivedKeyCache(
+        private val walletPrefs: WalletPrefsInterface,
+        private val getKeyStoreHandler: () -> KeyStoreHandler
+) {
+
+    companion object {
+        private const val VERSION = "1"
+        private const val FIELD_SEPARATOR = ";"
+        private const val KEY_SEPARATOR = ","
+        private const val PUBLIC_KEY_SEPARATOR = ":"
+    }
+
+    data class DerivedKeys(val identityKey: ECKey, val paymentKeys: List<ECKey>)
+
+    /**
+     * @return the keys derived from the master seed, or null if they aren't cached
+     */
+    fun read(masterSeed: String): DerivedKeys? {
+        val encryptedKeys = walletPrefs.getDerivedKeys() ?: return null
+        try {
+            val fields = getKeyStoreHandler()
+                    .decrypt(encryptedKeys, { walletPrefs.setDerivedKeys(it) })
+                    .split(FIELD_SEPARATOR)
+            if (fields.size != 4 || fields[0] != VERSION || fields[1] != fingerprint(masterSeed)) return null
+            val paymentKeys = fields[3].split(KEY_SEPARATOR).map { decodeKey(it) }
+            return DerivedKeys(decodeKey(fields[2]), paymentKeys)
+        } catch (e: KeyStoreException) {
+            LogUtil.w("Unable to read derived keys $e")
+        } catch (e: RuntimeException) {
+            LogUtil.w("Derived keys are unreadable $e")
+        }
+        return null
+    }
+
+    fun write(masterSeed: String, derivedKeys: DerivedKeys) {
+        val fields = listOf(
+                VERSION,
+                fingerprint(masterSeed),
+                encodeKey(derivedKeys.identityKey),
+                derivedKeys.paymentKeys.joinToString(separator = KEY_SEPARATOR) { encodeKey(it) }
+        )
+        try {
+            val encryptedKeys = getKeyStoreHandler().encrypt(fields.joinToString(separator = FIELD_SEPARATOR))
+            walletPrefs.setDerivedKeys(encryptedKeys)
+        } catch (e: KeyStoreException) {
+            LogUtil.w("Unable to cache derived keys $e")
+        }
+    }
+
+    private fun fingerprint(masterSeed: String) = TypeConverter.toJsonHex(sha3(masterSeed.toByteArray()))
+
+    private fun encodeKey(key: ECKey): String {
+        return TypeConverter.toJsonHex(key.privKeyBytes) + PUBLIC_KEY_SEPARATOR + TypeConverter.toJsonHex(key.pubKey)
+    }
+
+    private fun decodeKey(encodedKey: String): ECKey {
+        val parts = encodedKey.split(PUBLIC_KEY_SEPARATOR)
+        if (parts.size != 2) throw IllegalArgumentException("Invalid derived key")
+        return ECKey.fromPrivateAndPrecalculatedPublic(
+                TypeConverter.StringHexToByteArray(parts[0]),
+                TypeConverter.StringHexToByteArray(parts[1])
+        )
+    }
+}
@@ -54,7 +54,10 @@ import org.spongycastle.jce.spec.ECPrivateKeySpec;
 import org.spongycastle.jce.spec.ECPublicKeySpec;
 import org.spongycastle.math.ec.ECAlgorithms;
 import org.spongycastle.math.ec.ECCurve;
+import org.spongycastle.math.ec.ECMultiplier;
 import org.spongycastle.math.ec.ECPoint;
+import org.spongycastle.math.ec.FixedPointCombMultiplier;
+import org.spongycastle.math.ec.FixedPointUtil;
 import org.spongycastle.util.BigIntegers;
 import org.spongycastle.util.encoders.Base64;
 import org.spongycastle.util.encoders.Hex;
@@ -109,6 +112,32 @@ public class ECKey implements Serializable {
         secureRandom = new SecureRandom();
     }
 
+    // Holds the comb table for multiplying the generator point. The table is attached to CURVE.getG(),
+    // so it is built once, on first use, and shared by every key derivation and signature.
+    private static final class GeneratorMultiplier {
+        private static final ECMultiplier INSTANCE;
+
+        static {
+            final ECPoint generator = CURVE.getG();
+            final int combSize = FixedPointUtil.getCombSize(generator.getCurve());
+            FixedPointUtil.precompute(generator, combSize > 257 ? 6 : 5);
+            INSTANCE = new FixedPointCombMultiplier();
+        }
+    }
+
+    /**
+     * Multiplies the generator point by {@code k} using the shared precomputed table.
+     *
+     * @param k -
+     * @return the normalised point k * G
+     */
+    public static ECPoint multiplyGenerator(BigInteger k) {
+        if (k.signum() < 0 || k.bitLength() > CURVE.getN().bitLength()) {
+            k = k.mod(CURVE.getN());
+        }
+        return GeneratorMultiplier.INSTANCE.multiply(CURVE.getG(), k).normalize();
+    }
+
     // The two parts of the key. If "priv" is set, "pub" can always be calculated. If "pub" is set but not "priv", we
     // can only verify signatures not make them.
     // TODO: Redesign this class to use consistent internals and more efficient serialization.
@@ -124,6 +153,7 @@ public class ECKey implements Serializable {
     // Transient because it's calculated on demand.
     transient private byte[] pubKeyHash;
     transient private byte[] nodeId;
+    transient private byte[] pubKeyEncoded;
 
     /**
      * Generates an entirely new keypair.
@@ -278,7 +308,7 @@ public class ECKey implements Serializable {
      * @return  -
      */
     public static ECKey fromPrivate(BigInteger privKey) {
-        return new ECKey(privKey, CURVE.getG().multiply(privKey));
+        return new ECKey(privKey, multiplyGenerator(privKey));
     }
 
     /**
@@ -396,7 +426,7 @@ public class ECKey implements Serializable {
      * @return -
      */
     public static byte[] publicKeyFromPrivate(BigInteger privKey, boolean compressed) {
-        ECPoint point = CURVE.getG().multiply(privKey);
+        ECPoint point = multiplyGenerator(privKey);
         return point.getEncoded(compressed);
     }
 
@@ -407,8 +437,7 @@ public class ECKey implements Serializable {
      * @return 20-byte address
      */
     public static byte[] computeAddress(byte[] pubBytes) {
-        return HashUtil.sha3omit12(
-                Arrays.copyOfRange(pubBytes, 1, pubBytes.length));
+        return HashUtil.sha3omit12(pubBytes, 1, pubBytes.length - 1);
     }
 
     /**
@@ -475,7 +504,15 @@ public class ECKey implements Serializable {
      * @return 65-byte encoded public key
      */
     public byte[] getPubKey() {
-        return pub.getEncoded(/* compressed */ false);
+        return getPubKeyEncoded().clone();
+    }
+
+    // Encoding normalises the point, which costs a field inversion, so only do it once
+    private byte[] getPubKeyEncoded() {
+        if (pubKeyEncoded == null) {
+            pubKeyEncoded = pub.getEncoded(/* compressed */ false);
+        }
+        return pubKeyEncoded;
     }
 
     /**
@@ -518,7 +555,7 @@ public class ECKey implements Serializable {
 
     @Override
     public String toString() {
-        return String.format("pub: %s", Hex.toHexString(pub.getEncoded(false)));
+        return String.format("pub: %s", Hex.toHexString(getPubKeyEncoded()));
     }
 
     /**
@@ -725,10 +762,18 @@ public class ECKey implements Serializable {
      * @throws IllegalStateException if this ECKey does not have the private part.
      */
     public ECDSASignature sign(byte[] messageHash) {
+        if (privKey instanceof BCECPrivateKey) {
+            if (messageHash.length != 32) {
+                throw new IllegalArgumentException("Expected 32 byte input to ECDSA signature, not " + messageHash.length);
+            }
+            // The signer keeps the R point, so the recId doesn't need to be recovered
+            return RecoverableECDSASigner.sign(((BCECPrivateKey) privKey).getD(), messageHash);
+        }
+
         ECDSASignature sig = doSign(messageHash);
         // Now we have to work backwards to figure out the recId needed to recover the signature.
         int recId = -1;
-        byte[] thisKey = this.pub.getEncoded(/* compressed */ false);
+        byte[] thisKey = getPubKeyEncoded();
         for (int i = 0; i < 4; i++) {
             byte[] k = ECKey.recoverPubBytesFromSignature(i, sig, messageHash);
             if (k != null && Arrays.equals(k, thisKey)) {
@@ -952,7 +997,7 @@ public class ECKey implements Serializable {
      * @return -
      */
     public boolean verify(byte[] data, byte[] signature) {
-        return ECKey.verify(data, signature, getPubKey());
+        return ECKey.verify(data, signature, getPubKeyEncoded());
     }
 
 
@@ -964,7 +1009,7 @@ public class ECKey implements Serializable {
      * @return -
      */
     public boolean verify(byte[] sigHash, ECDSASignature signature) {
-        return ECKey.verify(sigHash, signature, getPubKey());
+        return ECKey.verify(sigHash, signature, getPubKeyEncoded());
     }
 
     /**
@@ -1146,7 +1191,7 @@ public class ECKey implements Serializable {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(getPubKey());
+        return Arrays.hashCode(getPubKeyEncoded());
     }
 
 
@@ -52,11 +52,8 @@ class HDWallet(
                     ?: throw IllegalStateException("Wallet name is null")
         }
 
-    val ownerAddress: String
-        get() {
-            val identityAddress = identityKey.address
-            return TypeConverter.toJsonHex(identityAddress)
-        }
+    // The identity key never changes, and this is read for every signed request
+    val ownerAddress: String by lazy { TypeConverter.toJsonHex(identityKey.address) }
 
     fun getPaymentAddressObservable(): Observable<String> = paymentAddressSubject.asObservable()
 
@@ -45,8 +45,11 @@ class HdWalletBuilder(
 
     companion object {
         private const val ALIAS = "MasterSeedAlias"
+        private const val NUMBER_OF_PAYMENT_KEYS = 10
     }
 
+    private val derivedKeyCache by lazy { DerivedKeyCache(walletPrefs, { KeyStoreHandler(context, ALIAS) }) }
+
     fun createWalletAndOverrideWalletSeedOnDisk(): Single<HDWallet> {
         return Single.fromCallable {
             val networkParameters = getNetworkParameters()
@@ -67,9 +70,16 @@ class HdWalletBuilder(
         val identityKey = deriveKeyFromIdentityWallet(wallet)
         val paymentKeys = deriveKeysFromPaymentWallet(wallet)
         val masterSeed = seedToString(wallet.keyChainSeed)
+        derivedKeyCache.write(masterSeed, DerivedKeyCache.DerivedKeys(identityKey, paymentKeys))
         return HDWallet(walletPrefs, identityKey, paymentKeys, masterSeed)
     }
 
+    private fun createFromCache(masterSeed: String): HDWallet? {
+        val derivedKeys = derivedKeyCache.read(masterSeed) ?: return null
+        if (derivedKeys.paymentKeys.size != NUMBER_OF_PAYMENT_KEYS) return null
+        return HDWallet(walletPrefs, derivedKeys.identityKey, derivedKeys.paymentKeys, masterSeed)
+    }
+
     @Throws(IllegalStateException::class)
     private fun saveMasterSeedToStorage(masterSeed: String?) {
         try {
@@ -109,7 +119,7 @@ class HdWalletBuilder(
 
     private fun deriveKeysFromPaymentWallet(wallet: Wallet): List<ECKey> {
         try {
-            return deriveKeysFromWallet(wallet, 10, KeyChain.KeyPurpose.RECEIVE_FUNDS)
+            return deriveKeysFromWallet(wallet, NUMBER_OF_PAYMENT_KEYS, KeyChain.KeyPurpose.RECEIVE_FUNDS)
         } catch (ex: UnreadableWalletException) {
             LogUtil.exception("Error while deriving keys from wallet", ex)
             throw RuntimeException("Error deriving keys: $ex")
@@ -169,6 +179,9 @@ class HdWalletBuilder(
         return Single.fromCallable {
             val masterSeed = readMasterSeedFromStorage()
                     ?: throw InvalidMasterSeedException(Throwable("Master seed is null"))
+            // Only derive the keys again on first run after an update, or if the cache doesn't match the seed
+            val cachedWallet = createFromCache(masterSeed)
+            if (cachedWallet != null) return@fromCallable cachedWallet
             val wallet = initFromMasterSeed(masterSeed)
 
             return@fromCallable createFromWallet(wallet)
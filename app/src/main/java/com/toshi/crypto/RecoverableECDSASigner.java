@@ -0,0 +1,73 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto;
+
+
+import org.spongycastle.crypto.digests.SHA256Digest;
+import org.spongycastle.crypto.signers.DSAKCalculator;
+import org.spongycastle.crypto.signers.HMacDSAKCalculator;
+import org.spongycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+
+import static com.toshi.crypto.ECKey.CURVE;
+import static com.toshi.crypto.ECKey.HALF_CURVE_ORDER;
+
+/**
+ * Deterministic (RFC 6979) ECDSA signer over secp256k1 that keeps hold of the R point,
+ * so the recovery id falls out of the signature instead of having to be found by
+ * recovering the public key up to four times.
+ */
+/* package */ class RecoverableECDSASigner {
+
+    /**
+     * Signs a 32 byte hash and returns a canonical signature with v set to recId + 27.
+     */
+    /* package */ static ECKey.ECDSASignature sign(final BigInteger privateKey, final byte[] messageHash) {
+        final BigInteger n = CURVE.getN();
+        final BigInteger e = new BigInteger(1, messageHash);
+        final DSAKCalculator kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+        kCalculator.init(n, privateKey, messageHash);
+
+        BigInteger r, s;
+        ECPoint p;
+        do {
+            BigInteger k;
+            do {
+                k = kCalculator.nextK();
+                p = ECKey.multiplyGenerator(k);
+                r = p.getAffineXCoord().toBigInteger().mod(n);
+            } while (r.signum() == 0);
+            s = k.modInverse(n).multiply(e.add(privateKey.multiply(r))).mod(n);
+        } while (s.signum() == 0);
+
+        // Bit 0 is the parity of R's y coordinate, bit 1 is set when R's x coordinate overflowed the curve order
+        int recId = p.getAffineYCoord().testBitZero() ? 1 : 0;
+        if (p.getAffineXCoord().toBigInteger().compareTo(n) >= 0) recId |= 2;
+
+        // Canonicalising s negates R, which flips the parity of its y coordinate
+        if (s.compareTo(HALF_CURVE_ORDER) > 0) {
+            s = n.subtract(s);
+            recId ^= 1;
+        }
+
+        final ECKey.ECDSASignature signature = new ECKey.ECDSASignature(r, s);
+        signature.v = (byte) (recId + 27);
+        return signature;
+    }
+}
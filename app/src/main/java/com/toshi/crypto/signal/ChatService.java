@@ -22,6 +22,8 @@ import com.squareup.moshi.Moshi;
 import com.toshi.crypto.signal.model.SignalBootstrap;
 import com.toshi.crypto.signal.network.ChatInterface;
 import com.toshi.crypto.signal.store.ProtocolStore;
+import com.toshi.manager.network.HttpClientFactory;
+import com.toshi.manager.network.ServerClock;
 import com.toshi.manager.network.interceptor.AppInfoUserAgentInterceptor;
 import com.toshi.manager.network.interceptor.LoggingInterceptor;
 import com.toshi.manager.network.interceptor.SigningInterceptor;
@@ -45,7 +47,6 @@ import java.util.LinkedList;
 import java.util.List;
 
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
 import retrofit2.converter.moshi.MoshiConverterFactory;
@@ -76,7 +77,7 @@ public final class ChatService extends SignalServiceAccountManager {
                 password,
                 userAgent);
         this.url = urls[0].getUrl();
-        this.client = new OkHttpClient.Builder();
+        this.client = HttpClientFactory.INSTANCE.newBuilder();
         this.chatInterface = generateSignalInterface();
     }
 
@@ -105,13 +106,11 @@ public final class ChatService extends SignalServiceAccountManager {
     }
 
     private void addSigningInterceptor() {
-        this.client.addInterceptor(new SigningInterceptor());
+        this.client.addInterceptor(new SigningInterceptor(ChatInterface.TIMESTAMP_PATH));
     }
 
     private void addLogging() {
-        final HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(new LoggingInterceptor());
-        interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-        this.client.addInterceptor(interceptor);
+        this.client.addInterceptor(new LoggingInterceptor());
     }
 
     public Completable registerKeys(final ProtocolStore protocolStore) {
@@ -140,8 +139,8 @@ public final class ChatService extends SignalServiceAccountManager {
             final SignedPreKeyRecord signedPreKey,
             final List<PreKeyRecord> preKeys) {
 
-        return this.chatInterface
-                .getTimestamp()
+        return ServerClock.get()
+                .getTimestamp(this.chatInterface.getTimestamp())
                 .subscribeOn(Schedulers.io())
                 .observeOn(Schedulers.io())
                 .flatMapCompletable(
@@ -29,8 +29,10 @@ import rx.Single;
 
 public interface ChatInterface {
 
+    String TIMESTAMP_PATH = "/v1/accounts/bootstrap";
+
     @Headers("Cache-control: no-store")
-    @GET("/v1/accounts/bootstrap")
+    @GET(TIMESTAMP_PATH)
     Single<ServerTime> getTimestamp();
 
     @Headers({"Content-Type: application/json", "Cache-control: no-store"})
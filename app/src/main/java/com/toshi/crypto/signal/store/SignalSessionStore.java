@@ -20,6 +20,7 @@ package com.toshi.crypto.signal.store;
 import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.LruCache;
 
 import com.toshi.crypto.util.ByteUtil;
 import com.toshi.util.logging.LogUtil;
@@ -33,8 +34,8 @@ import org.whispersystems.signalservice.api.push.SignalServiceAddress;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.LinkedList;
@@ -42,10 +43,22 @@ import java.util.List;
 
 import static org.whispersystems.libsignal.state.StorageProtos.SessionStructure;
 
+/**
+ * Stores one session file per address, with the most recently used records cached in memory,
+ * so loads and containsSession checks of cached sessions don't read the file. Writes go through
+ * to disk, replacing the file atomically. The store guards each address with one of
+ * {@link #LOCK_STRIPES} locks, but libsignal's SessionCipher still encrypts and decrypts under
+ * its own global lock, so messages to different addresses are still encrypted one at a time.
+ */
 public class SignalSessionStore implements SessionStore {
 
     private static final String SESSIONS_DIRECTORY_V2 = "sessions-v2";
-    private static final Object FILE_LOCK             = new Object();
+    private static final String TEMP_DIRECTORY        = "sessions-v2.tmp";
+    private static final int    CACHE_SIZE            = 256;
+    private static final int    LOCK_STRIPES          = 32;
+
+    private static final LruCache<String, SessionRecord> RECORD_CACHE = new LruCache<>(CACHE_SIZE);
+    private static final Object[] LOCKS = createLocks();
 
     private static final int SINGLE_STATE_VERSION   = 1;
     private static final int ARCHIVE_STATES_VERSION = 2;
@@ -59,69 +72,116 @@ public class SignalSessionStore implements SessionStore {
         this.context = BaseApplication.get();
     }
 
+    private static Object[] createLocks() {
+        final Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
     @Override
     public SessionRecord loadSession(@NonNull final SignalProtocolAddress address) {
-        synchronized (FILE_LOCK) {
-            try {
-                FileInputStream in            = new FileInputStream(getSessionFile(address));
-                int             versionMarker = readInteger(in);
+        final String sessionName = getSessionName(address);
+        synchronized (getLock(sessionName)) {
+            final SessionRecord cachedRecord = RECORD_CACHE.get(sessionName);
+            // Callers change the record they are given, and only store it if that succeeds,
+            // so the cached record is never handed out
+            if (cachedRecord != null) return copyOf(cachedRecord);
+
+            final SessionRecord record = readSession(address);
+            if (record == null) return new SessionRecord();
+            RECORD_CACHE.put(sessionName, record);
+            return copyOf(record);
+        }
+    }
 
-                if (versionMarker > CURRENT_VERSION) {
-                    throw new AssertionError("Unknown version: " + versionMarker);
-                }
+    private @Nullable SessionRecord readSession(@NonNull final SignalProtocolAddress address) {
+        try {
+            FileInputStream in            = new FileInputStream(getSessionFile(address));
+            int             versionMarker = readInteger(in);
 
-                byte[] serialized = readBlob(in);
-                in.close();
+            if (versionMarker > CURRENT_VERSION) {
+                throw new AssertionError("Unknown version: " + versionMarker);
+            }
 
-                if (versionMarker < PLAINTEXT_VERSION) {
-                    throw new AssertionError("Session didn't get migrated: (" + versionMarker + "," + address + ")");
-                }
+            byte[] serialized = readBlob(in);
+            in.close();
 
-                if (versionMarker == SINGLE_STATE_VERSION) {
-                    SessionStructure sessionStructure = SessionStructure.parseFrom(serialized);
-                    SessionState     sessionState     = new SessionState(sessionStructure);
-                    return new SessionRecord(sessionState);
-                } else if (versionMarker >= ARCHIVE_STATES_VERSION) {
-                    return new SessionRecord(serialized);
-                } else {
-                    throw new AssertionError("Unknown version: " + versionMarker);
-                }
-            } catch (final IOException e) {
-                LogUtil.exception("No existing session information found.", e);
-                return new SessionRecord();
+            if (versionMarker < PLAINTEXT_VERSION) {
+                throw new AssertionError("Session didn't get migrated: (" + versionMarker + "," + address + ")");
             }
+
+            if (versionMarker == SINGLE_STATE_VERSION) {
+                SessionStructure sessionStructure = SessionStructure.parseFrom(serialized);
+                SessionState     sessionState     = new SessionState(sessionStructure);
+                return new SessionRecord(sessionState);
+            } else if (versionMarker >= ARCHIVE_STATES_VERSION) {
+                return new SessionRecord(serialized);
+            } else {
+                throw new AssertionError("Unknown version: " + versionMarker);
+            }
+        } catch (final IOException e) {
+            LogUtil.exception("No existing session information found.", e);
+            return null;
         }
     }
 
     @Override
     public void storeSession(@NonNull final SignalProtocolAddress address, @NonNull final SessionRecord record) {
-        synchronized (FILE_LOCK) {
+        final String sessionName = getSessionName(address);
+        synchronized (getLock(sessionName)) {
+            final byte[] serialized = record.serialize();
             try {
-                RandomAccessFile sessionFile  = new RandomAccessFile(getSessionFile(address), "rw");
-                FileChannel      out          = sessionFile.getChannel();
-
-                out.position(0);
-                writeInteger(CURRENT_VERSION, out);
-                writeBlob(record.serialize(), out);
-                out.truncate(out.position());
-
-                sessionFile.close();
+                writeSession(sessionName, serialized);
+                RECORD_CACHE.put(sessionName, new SessionRecord(serialized));
             } catch (IOException e) {
+                RECORD_CACHE.remove(sessionName);
                 LogUtil.exception("Error while storing session", e);
                 throw new AssertionError(e);
             }
         }
     }
 
+    // Writes to a temporary file and renames it over the session file,
+    // so a session file is never left half written
+    private void writeSession(final String sessionName, final byte[] serialized) throws IOException {
+        final File tempFile = new File(getTempDirectory(), sessionName);
+        final FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            final FileChannel channel = out.getChannel();
+            writeInteger(CURRENT_VERSION, channel);
+            writeBlob(serialized, channel);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+
+        final File sessionFile = new File(getSessionDirectory(), sessionName);
+        if (!tempFile.renameTo(sessionFile)) {
+            tempFile.delete();
+            throw new IOException("Unable to replace session file " + sessionName);
+        }
+    }
+
     @Override
     public boolean containsSession(final SignalProtocolAddress address) {
-        return getSessionFile(address).exists() &&
-                loadSession(address).getSessionState().hasSenderChain();
+        final String sessionName = getSessionName(address);
+        synchronized (getLock(sessionName)) {
+            final SessionRecord cachedRecord = RECORD_CACHE.get(sessionName);
+            if (cachedRecord != null) return cachedRecord.getSessionState().hasSenderChain();
+            return getSessionFile(address).exists() &&
+                    loadSession(address).getSessionState().hasSenderChain();
+        }
     }
 
     @Override
     public void deleteSession(final SignalProtocolAddress address) {
-        getSessionFile(address).delete();
+        final String sessionName = getSessionName(address);
+        synchronized (getLock(sessionName)) {
+            RECORD_CACHE.remove(sessionName);
+            getSessionFile(address).delete();
+        }
     }
 
     @Override
@@ -140,6 +200,7 @@ public class SignalSessionStore implements SessionStore {
         for (final String sessionName : sessionNames) {
             deleteAllSessions(sessionName);
         }
+        RECORD_CACHE.evictAll();
     }
 
     private List<String> getAllSessions() {
@@ -186,14 +247,14 @@ public class SignalSessionStore implements SessionStore {
 
 
     public void migrateSessions() {
-        synchronized (FILE_LOCK) {
-            File directory = getSessionDirectory();
+        File directory = getSessionDirectory();
 
-            for (File session : directory.listFiles()) {
-                if (session.isFile()) {
-                    SignalProtocolAddress address = getAddressName(session);
+        for (File session : directory.listFiles()) {
+            if (session.isFile()) {
+                SignalProtocolAddress address = getAddressName(session);
 
-                    if (address != null) {
+                if (address != null) {
+                    synchronized (getLock(getSessionName(address))) {
                         SessionRecord sessionRecord = loadSession(address);
                         storeSession(address, sessionRecord);
                     }
@@ -202,6 +263,18 @@ public class SignalSessionStore implements SessionStore {
         }
     }
 
+    private Object getLock(final String sessionName) {
+        return LOCKS[(sessionName.hashCode() & Integer.MAX_VALUE) % LOCKS.length];
+    }
+
+    private SessionRecord copyOf(final SessionRecord record) {
+        try {
+            return new SessionRecord(record.serialize());
+        } catch (final IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     private File getSessionFile(final SignalProtocolAddress address) {
         return new File(getSessionDirectory(), getSessionName(address));
     }
@@ -218,6 +291,18 @@ public class SignalSessionStore implements SessionStore {
         return directory;
     }
 
+    private File getTempDirectory() {
+        File directory = new File(context.getFilesDir(), TEMP_DIRECTORY);
+
+        if (!directory.exists()) {
+            if (!directory.mkdirs()) {
+                LogUtil.w("Session temp directory creation failed!");
+            }
+        }
+
+        return directory;
+    }
+
     private String getSessionName(final SignalProtocolAddress address) {
         final String recipientId = address.getName();
         final int deviceId = address.getDeviceId();
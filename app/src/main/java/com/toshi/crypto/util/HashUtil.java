@@ -23,20 +23,95 @@ import com.toshi.crypto.cryptohash.Keccak256;
 import org.spongycastle.util.Arrays;
 import org.whispersystems.signalservice.internal.util.Base64;
 
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
 public class HashUtil {
 
+    public static final int SHA3_LENGTH = 32;
+    private static final int BUFFER_CHUNK_SIZE = 4096;
+
+    // Keccak256 carries its state and block buffers with it, so reuse one per thread
+    // instead of allocating them for every hash.
+    private static final ThreadLocal<Keccak256> keccak = new ThreadLocal<Keccak256>() {
+        @Override
+        protected Keccak256 initialValue() {
+            return new Keccak256();
+        }
+    };
+
+    private static final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_CHUNK_SIZE];
+        }
+    };
+
     public static byte[] sha3omit12(byte[] input) {
-        byte[] hash = sha3(input);
-        return Arrays.copyOfRange(hash, 12, hash.length);
+        return sha3omit12(input, 0, input.length);
+    }
+
+    public static byte[] sha3omit12(byte[] input, int offset, int length) {
+        final byte[] hash = scratch.get();
+        sha3(input, offset, length, hash);
+        return Arrays.copyOfRange(hash, 12, SHA3_LENGTH);
     }
 
     public static byte[] sha3(byte[] input) {
-        Keccak256 digest = new Keccak256();
-        digest.update(input);
-        return digest.digest();
+        return sha3(input, 0, input.length);
+    }
+
+    public static byte[] sha3(byte[] input, int offset, int length) {
+        final byte[] hash = new byte[SHA3_LENGTH];
+        sha3(input, offset, length, hash);
+        return hash;
+    }
+
+    /**
+     * Hashes {@code length} bytes of {@code input} into the first {@link #SHA3_LENGTH} bytes of {@code output}.
+     */
+    public static void sha3(byte[] input, int offset, int length, byte[] output) {
+        sha3(input, offset, length, output, 0);
+    }
+
+    public static void sha3(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        final Keccak256 digest = getDigest();
+        digest.update(input, offset, length);
+        digest.digest(output, outputOffset, SHA3_LENGTH);
+    }
+
+    /**
+     * Hashes the remaining bytes of {@code input} into the first {@link #SHA3_LENGTH} bytes of {@code output}.
+     * Direct buffers are fed through a reused chunk, the position of {@code input} is advanced to its limit.
+     */
+    public static void sha3(ByteBuffer input, byte[] output) {
+        final Keccak256 digest = getDigest();
+        if (input.hasArray()) {
+            digest.update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            input.position(input.limit());
+        } else {
+            final byte[] chunk = scratch.get();
+            while (input.hasRemaining()) {
+                final int length = Math.min(chunk.length, input.remaining());
+                input.get(chunk, 0, length);
+                digest.update(chunk, 0, length);
+            }
+        }
+        digest.digest(output, 0, SHA3_LENGTH);
+    }
+
+    public static byte[] sha3(ByteBuffer input) {
+        final byte[] hash = new byte[SHA3_LENGTH];
+        sha3(input, hash);
+        return hash;
+    }
+
+    private static Keccak256 getDigest() {
+        final Keccak256 digest = keccak.get();
+        // A previous caller may have thrown halfway through an update
+        digest.reset();
+        return digest;
     }
 
     public static String getSecret(final int size) {
@@ -654,32 +654,169 @@ public class RLP {
     /**
      * Turn Object into its RLP encoded equivalent of a byte-array
      * Support for String, Integer, BigInteger and Lists of any of these types.
+     * The encoded length is worked out first, so the output is written into a single array.
      *
      * @param input as object or List of objects
      * @return byte[] RLP encoded
      */
     public static byte[] encode(Object input) {
-        Value val = new Value(input);
-        if (val.isList()) {
-            List<Object> inputArray = val.asList();
-            if (inputArray.isEmpty()) {
-                return encodeLength(inputArray.size(), OFFSET_SHORT_LIST);
-            }
-            byte[] output = ByteUtil.EMPTY_BYTE_ARRAY;
-            for (Object object : inputArray) {
-                output = concatenate(output, encode(object));
+        final byte[] output = new byte[encodedLength(input)];
+        writeEncoded(input, output, 0);
+        return output;
+    }
+
+    /**
+     * @return the number of bytes {@link #encode(Object)} produces for the input
+     */
+    public static int encodedLength(Object input) {
+        final Object value = unwrap(input);
+        if (isList(value)) {
+            final int payloadLength = listPayloadLength((Object[]) value);
+            return lengthPrefixSize(payloadLength) + payloadLength;
+        }
+        if (isSingleByteItem(value)) return 1;
+        final int itemLength = itemLength(value);
+        return lengthPrefixSize(itemLength) + itemLength;
+    }
+
+    /**
+     * Writes the RLP encoding of the input into output, starting at pos.
+     *
+     * @return the position after the last byte written
+     */
+    public static int writeEncoded(Object input, byte[] output, int pos) {
+        final Object value = unwrap(input);
+        if (isList(value)) {
+            final Object[] items = (Object[]) value;
+            pos = writeLength(listPayloadLength(items), OFFSET_SHORT_LIST, output, pos);
+            for (Object item : items) {
+                pos = writeEncoded(item, output, pos);
             }
-            byte[] prefix = encodeLength(output.length, OFFSET_SHORT_LIST);
-            return concatenate(prefix, output);
-        } else {
-            byte[] inputAsBytes = toBytes(input);
-            if (inputAsBytes.length == 1 && (inputAsBytes[0] & 0xff) <= 0x80) {
-                return inputAsBytes;
-            } else {
-                byte[] firstByte = encodeLength(inputAsBytes.length, OFFSET_SHORT_ITEM);
-                return concatenate(firstByte, inputAsBytes);
+            return pos;
+        }
+        if (isSingleByteItem(value)) {
+            output[pos] = (byte) singleByteValue(value);
+            return pos + 1;
+        }
+        pos = writeLength(itemLength(value), OFFSET_SHORT_ITEM, output, pos);
+        return writeItem(value, output, pos);
+    }
+
+    /**
+     * @return the size of the header of a list with the given payload length
+     */
+    public static int listHeaderLength(int payloadLength) {
+        return lengthPrefixSize(payloadLength);
+    }
+
+    /**
+     * Writes the header of a list with the given payload length into output, starting at pos.
+     *
+     * @return the position after the last byte written
+     */
+    public static int writeListHeader(int payloadLength, byte[] output, int pos) {
+        return writeLength(payloadLength, OFFSET_SHORT_LIST, output, pos);
+    }
+
+    private static Object unwrap(Object input) {
+        return input instanceof Value ? ((Value) input).asObj() : input;
+    }
+
+    private static boolean isList(Object value) {
+        return value != null && value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive();
+    }
+
+    private static int listPayloadLength(Object[] items) {
+        int payloadLength = 0;
+        for (Object item : items) {
+            payloadLength += encodedLength(item);
+        }
+        return payloadLength;
+    }
+
+    private static int lengthPrefixSize(int length) {
+        if (length < SIZE_THRESHOLD) return 1;
+        return 1 + bytesNeeded(length);
+    }
+
+    private static int bytesNeeded(long value) {
+        int byteCount = 0;
+        while (value != 0) {
+            byteCount++;
+            value >>>= 8;
+        }
+        return byteCount;
+    }
+
+    private static int writeLength(int length, int offset, byte[] output, int pos) {
+        if (length < SIZE_THRESHOLD) {
+            output[pos] = (byte) (length + offset);
+            return pos + 1;
+        }
+        final int lengthOfLength = bytesNeeded(length);
+        output[pos++] = (byte) (lengthOfLength + offset + SIZE_THRESHOLD - 1);
+        for (int i = lengthOfLength - 1; i >= 0; i--) {
+            output[pos++] = (byte) (length >>> (8 * i));
+        }
+        return pos;
+    }
+
+    // Returns the value of an item that is its own encoding, or -1 if it isn't one
+    private static int singleByteValue(Object value) {
+        if (value instanceof byte[]) {
+            final byte[] bytes = (byte[]) value;
+            return bytes.length == 1 && (bytes[0] & 0xFF) < OFFSET_SHORT_ITEM ? bytes[0] : -1;
+        } else if (value instanceof Integer || value instanceof Long) {
+            final long number = ((Number) value).longValue();
+            return number > 0 && number < OFFSET_SHORT_ITEM ? (int) number : -1;
+        } else if (value instanceof BigInteger) {
+            final BigInteger number = (BigInteger) value;
+            return number.signum() > 0 && number.bitLength() < 8 ? number.intValue() : -1;
+        } else if (value instanceof String) {
+            final String string = (String) value;
+            return string.length() == 1 && string.charAt(0) < OFFSET_SHORT_ITEM ? string.charAt(0) : -1;
+        }
+        return -1;
+    }
+
+    private static boolean isSingleByteItem(Object value) {
+        return singleByteValue(value) >= 0;
+    }
+
+    private static int itemLength(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof Integer || value instanceof Long) {
+            return bytesNeeded(((Number) value).longValue());
+        } else if (value instanceof BigInteger) {
+            return (((BigInteger) value).bitLength() + 7) / 8;
+        }
+        return toBytes(value).length;
+    }
+
+    private static int writeItem(Object value, byte[] output, int pos) {
+        if (value instanceof byte[]) {
+            final byte[] bytes = (byte[]) value;
+            System.arraycopy(bytes, 0, output, pos, bytes.length);
+            return pos + bytes.length;
+        } else if (value instanceof Integer || value instanceof Long) {
+            final long number = ((Number) value).longValue();
+            for (int i = bytesNeeded(number) - 1; i >= 0; i--) {
+                output[pos++] = (byte) (number >>> (8 * i));
             }
+            return pos;
+        } else if (value instanceof BigInteger) {
+            final BigInteger number = (BigInteger) value;
+            if (number.signum() == 0) return pos;
+            // toByteArray() may have a leading sign byte
+            final byte[] bytes = number.toByteArray();
+            final int length = (number.bitLength() + 7) / 8;
+            System.arraycopy(bytes, bytes.length - length, output, pos, length);
+            return pos + length;
         }
+        final byte[] bytes = toBytes(value);
+        System.arraycopy(bytes, 0, output, pos, bytes.length);
+        return pos + bytes.length;
     }
 
     /**
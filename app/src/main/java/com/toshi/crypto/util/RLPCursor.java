@@ -0,0 +1,149 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto.util;
+
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Reads RLP items in place. The cursor points at one item at a time, and {@link #next()}
+ * moves it along; nothing is copied unless {@link #getBytes()} or {@link #asBigInteger()}
+ * is called. {@link #enterList()} returns a new cursor over the items of the current list.
+ */
+public class RLPCursor {
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private final byte[] data;
+    private final int end;
+    private int nextPos;
+
+    private int encodedOffset;
+    private int payloadOffset;
+    private int payloadLength;
+    private boolean isList;
+
+    public RLPCursor(final byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public RLPCursor(final byte[] data, final int start, final int end) {
+        this.data = data;
+        this.end = end;
+        this.nextPos = start;
+    }
+
+    /**
+     * Moves to the next item.
+     *
+     * @return false if there are no more items
+     */
+    public boolean next() {
+        if (this.nextPos >= this.end) return false;
+        this.encodedOffset = this.nextPos;
+        final int prefix = this.data[this.encodedOffset] & 0xFF;
+        if (prefix < OFFSET_SHORT_ITEM) {
+            setItem(this.encodedOffset, 1, false);
+        } else if (prefix <= OFFSET_LONG_ITEM) {
+            setItem(this.encodedOffset + 1, prefix - OFFSET_SHORT_ITEM, false);
+        } else if (prefix < OFFSET_SHORT_LIST) {
+            final int lengthOfLength = prefix - OFFSET_LONG_ITEM;
+            setItem(this.encodedOffset + 1 + lengthOfLength, readLength(lengthOfLength), false);
+        } else if (prefix <= OFFSET_LONG_LIST) {
+            setItem(this.encodedOffset + 1, prefix - OFFSET_SHORT_LIST, true);
+        } else {
+            final int lengthOfLength = prefix - OFFSET_LONG_LIST;
+            setItem(this.encodedOffset + 1 + lengthOfLength, readLength(lengthOfLength), true);
+        }
+        this.nextPos = this.payloadOffset + this.payloadLength;
+        if (this.nextPos > this.end) throw new IllegalStateException("RLP item runs past the end of its list");
+        return true;
+    }
+
+    private void setItem(final int payloadOffset, final int payloadLength, final boolean isList) {
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+        this.isList = isList;
+    }
+
+    private int readLength(final int lengthOfLength) {
+        if (lengthOfLength > 4) throw new IllegalStateException("RLP item is too long");
+        int length = 0;
+        for (int i = 1; i <= lengthOfLength; i++) {
+            length = (length << 8) | (this.data[this.encodedOffset + i] & 0xFF);
+        }
+        if (length < 0) throw new IllegalStateException("RLP item is too long");
+        return length;
+    }
+
+    public RLPCursor enterList() {
+        if (!this.isList) throw new IllegalStateException("RLP item is not a list");
+        return new RLPCursor(this.data, this.payloadOffset, this.payloadOffset + this.payloadLength);
+    }
+
+    public boolean isList() {
+        return this.isList;
+    }
+
+    public boolean isEmpty() {
+        return this.payloadLength == 0;
+    }
+
+    public byte[] getData() {
+        return this.data;
+    }
+
+    public int getPayloadOffset() {
+        return this.payloadOffset;
+    }
+
+    public int getPayloadLength() {
+        return this.payloadLength;
+    }
+
+    // The offset and length of the item including its prefix
+    public int getEncodedOffset() {
+        return this.encodedOffset;
+    }
+
+    public int getEncodedLength() {
+        return this.payloadOffset + this.payloadLength - this.encodedOffset;
+    }
+
+    public byte[] getBytes() {
+        return Arrays.copyOfRange(this.data, this.payloadOffset, this.payloadOffset + this.payloadLength);
+    }
+
+    public long asLong() {
+        if (this.isList || this.payloadLength > 8) throw new IllegalStateException("RLP item is not a number");
+        long value = 0;
+        for (int i = 0; i < this.payloadLength; i++) {
+            value = (value << 8) | (this.data[this.payloadOffset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    public BigInteger asBigInteger() {
+        if (this.isList) throw new IllegalStateException("RLP item is not a number");
+        return this.payloadLength == 0 ? BigInteger.ZERO : new BigInteger(1, getBytes());
+    }
+}
@@ -83,39 +83,61 @@ public class TypeConverter {
         return String.valueOf(new BigInteger(hex, 16));
     }
 
+    // The skeleton is an unsigned transaction whose last three fields are the chain id and two empty
+    // values. The first six fields are copied over unchanged and the last three replaced by v, r and s.
     public static String skeletonAndSignatureToRLPEncodedHex(final String skeleton, final String signature) {
-        final Object[] decoded = (Object[])RLP.decode(TypeConverter.StringHexToByteArray(skeleton), 0).getDecoded();
+        final byte[] skeletonBytes = TypeConverter.StringHexToByteArray(skeleton);
+        final RLPCursor transaction = new RLPCursor(skeletonBytes);
+        if (!transaction.next() || !transaction.isList()) {
+            throw new IllegalStateException("Invalid Transaction Skeleton: Not an RLP list");
+        }
+
+        final RLPCursor fields = transaction.enterList();
+        int fieldCount = 0;
+        int unsignedFieldsEnd = transaction.getPayloadOffset();
+        int vee = 27;
+        boolean isSigned = false;
+        while (fields.next()) {
+            if (fieldCount < 6) unsignedFieldsEnd = fields.getEncodedOffset() + fields.getEncodedLength();
+            else if (fieldCount == 6) vee = getVee(fields);
+            else isSigned |= fields.isList() || !fields.isEmpty();
+            fieldCount++;
+        }
 
-        if (decoded.length != 9) {
+        if (fieldCount != 9) {
             throw new IllegalStateException("Invalid Transaction Skeleton: Decoded RLP length is wrong");
         }
 
-        if (!isEmptyString(decoded[decoded.length - 2])
-            ||!isEmptyString(decoded[decoded.length - 1])) {
+        if (isSigned) {
             throw new IllegalStateException("Transaction is already signed!");
         }
 
         final BigInteger r = TypeConverter.StringHexToBigInteger(signature.substring(2, 66));
         final BigInteger s = TypeConverter.StringHexToBigInteger(signature.substring(66, 130));
         final int v = TypeConverter.StringHexToBigInteger(signature.substring(130)).intValue();
-        final int vee = getVee(decoded[decoded.length - 3]);
-
-        decoded[decoded.length - 3] = v + vee;
-        decoded[decoded.length - 2] = r;
-        decoded[decoded.length - 1] = s;
-        return TypeConverter.toJsonHex(RLP.encode(decoded));
-    }
-
-    private static int getVee(final Object obj) {
-        if (obj instanceof byte[]) {
-            int networkId = RLP.decodeInt((byte[]) obj, 0);
-            return 35 + networkId * 2;
-        }
-        return 27;
+        final Integer signedV = v + vee;
+
+        final int unsignedFieldsStart = transaction.getPayloadOffset();
+        final int unsignedFieldsLength = unsignedFieldsEnd - unsignedFieldsStart;
+        final int payloadLength = unsignedFieldsLength
+                + RLP.encodedLength(signedV)
+                + RLP.encodedLength(r)
+                + RLP.encodedLength(s);
+
+        final byte[] output = new byte[RLP.listHeaderLength(payloadLength) + payloadLength];
+        int pos = RLP.writeListHeader(payloadLength, output, 0);
+        System.arraycopy(skeletonBytes, unsignedFieldsStart, output, pos, unsignedFieldsLength);
+        pos += unsignedFieldsLength;
+        pos = RLP.writeEncoded(signedV, output, pos);
+        pos = RLP.writeEncoded(r, output, pos);
+        RLP.writeEncoded(s, output, pos);
+        return TypeConverter.toJsonHex(output);
     }
 
-    private static boolean isEmptyString(final Object obj) {
-        return obj instanceof String && ((String) obj).length() == 0;
+    private static int getVee(final RLPCursor chainId) {
+        if (chainId.isList() || chainId.isEmpty()) return 27;
+        final int networkId = (int) chainId.asLong();
+        return 35 + networkId * 2;
     }
 
     // Set pattern to null if you want the original format
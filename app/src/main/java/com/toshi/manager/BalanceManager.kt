@@ -21,10 +21,12 @@ import com.toshi.crypto.HDWallet
 import com.toshi.crypto.util.TypeConverter
 import com.toshi.extensions.getTimeoutSingle
 import com.toshi.manager.ethRegistration.EthGcmRegistration
+import com.toshi.manager.exchangeRate.ExchangeRateCache
 import com.toshi.manager.network.CurrencyInterface
 import com.toshi.manager.network.CurrencyService
 import com.toshi.manager.network.EthereumService
 import com.toshi.manager.network.EthereumServiceInterface
+import com.toshi.manager.network.ServerClock
 import com.toshi.model.local.network.Network
 import com.toshi.model.network.Balance
 import com.toshi.model.network.Currencies
@@ -61,23 +63,29 @@ class BalanceManager(
         private val appPrefs: AppPrefsInterface = AppPrefs,
         private val baseApplication: BaseApplication = BaseApplication.get(),
         private val walletObservable: Observable<HDWallet>,
+        private val serverClock: ServerClock = ServerClock.get(),
         private val ethGcmRegistration: EthGcmRegistration = EthGcmRegistration(
                 ethService = ethService,
-                walletObservable = walletObservable
+                walletObservable = walletObservable,
+                serverClock = serverClock
         ),
-        private val scheduler: Scheduler = Schedulers.io()
+        private val scheduler: Scheduler = Schedulers.io(),
+        private val exchangeRateCache: ExchangeRateCache = ExchangeRateCache(
+                currencyService = currencyService,
+                balancePrefs = balancePrefs,
+                scheduler = scheduler
+        )
 ) {
     private var connectivitySub: Subscription? = null
     val balanceObservable: BehaviorSubject<Balance> = BehaviorSubject.create<Balance>()
 
-    fun init(): Completable {
-        initCachedBalance()
+    fun initNetworkSync(): Completable {
         return registerEthGcm()
                 .onErrorComplete()
                 .doOnCompleted { attachConnectivityObserver() }
     }
 
-    private fun initCachedBalance() {
+    fun initCachedBalance() {
         readLastKnownBalance()
                 .map { Balance(it) }
                 .flatMapCompletable { handleNewBalance(it) }
@@ -162,9 +170,8 @@ class BalanceManager(
     }
 
     fun addCustomToken(customERCToken: CustomERCToken): Completable {
-        return ethService
-                .get()
-                .timestamp
+        return serverClock
+                .getTimestamp(ethService.get().timestamp)
                 .flatMapCompletable { ethService.get().addCustomToken(it.get(), customERCToken) }
                 .subscribeOn(scheduler)
     }
@@ -190,11 +197,19 @@ class BalanceManager(
 
     fun getLocalCurrencyExchangeRate(): Single<ExchangeRate> {
         return getLocalCurrency()
-                .flatMap { fetchLatestExchangeRate(it) }
+                .flatMap { exchangeRateCache.get(it) }
                 .subscribeOn(scheduler)
     }
 
-    private fun fetchLatestExchangeRate(code: String): Single<ExchangeRate> = currencyService.getRates(code)
+    /**
+     * Like [getLocalCurrencyExchangeRate], but never returns a stale rate.
+     * Use this when the rate decides how much is sent.
+     */
+    fun getFreshLocalCurrencyExchangeRate(): Single<ExchangeRate> {
+        return getLocalCurrency()
+                .flatMap { exchangeRateCache.getFresh(it) }
+                .subscribeOn(scheduler)
+    }
 
     fun getCurrencies(): Single<Currencies> {
         return currencyService
@@ -226,7 +241,7 @@ class BalanceManager(
     private fun getLocalCurrency(): Single<String> = Single.fromCallable { appPrefs.getCurrency() }
 
     fun convertLocalCurrencyToEth(localAmount: BigDecimal): Single<BigDecimal> {
-        return getLocalCurrencyExchangeRate()
+        return getFreshLocalCurrencyExchangeRate()
                 .flatMap { mapToEth(it, localAmount) }
     }
 
@@ -264,6 +279,7 @@ class BalanceManager(
     fun clear() {
         clearConnectivitySubscription()
         balancePrefs.clear()
+        exchangeRateCache.clear()
         ethGcmRegistration.clear()
     }
 
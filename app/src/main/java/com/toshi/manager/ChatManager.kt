@@ -22,11 +22,15 @@ import com.toshi.manager.chat.SofaMessageManager
 import com.toshi.manager.store.ConversationStore
 import com.toshi.model.local.Conversation
 import com.toshi.model.local.ConversationObservables
+import com.toshi.model.local.ConversationSummary
 import com.toshi.model.local.Group
 import com.toshi.model.local.IncomingMessage
+import com.toshi.model.local.MessagePage
 import com.toshi.model.local.Recipient
 import com.toshi.model.local.User
 import com.toshi.model.sofa.SofaMessage
+import io.realm.Realm
+import io.realm.RealmResults
 import rx.Completable
 import rx.Observable
 import rx.Scheduler
@@ -60,12 +64,28 @@ class ChatManager(
                 .subscribeOn(scheduler)
     }
 
+    fun loadLiveMessages(realm: Realm, threadId: String): RealmResults<SofaMessage>? {
+        return conversationStore.loadLiveMessages(realm, threadId)
+    }
+
+    fun loadAllConversationSummaries(): Single<List<ConversationSummary>> {
+        return conversationStore
+                .loadAllConversationSummaries()
+                .subscribeOn(scheduler)
+    }
+
     fun loadConversation(threadId: String): Single<Conversation> {
         return conversationStore
                 .loadByThreadId(threadId)
                 .subscribeOn(scheduler)
     }
 
+    fun loadMessagesPage(threadId: String, beforeIndex: Int, limit: Int): Single<MessagePage> {
+        return conversationStore
+                .loadMessagesPage(threadId, beforeIndex, limit)
+                .subscribeOn(scheduler)
+    }
+
     fun loadConversationAndResetUnreadCounter(threadId: String): Single<Conversation> {
         return loadConversation(threadId)
                 .flatMap { createEmptyConversationIfNullAndSetToAccepted(it, threadId) }
@@ -80,9 +100,11 @@ class ChatManager(
                 .flatMap { conversationStore.createEmptyConversation(it) }
     }
 
-    fun deleteConversation(conversation: Conversation): Completable {
+    fun deleteConversation(conversation: Conversation): Completable = deleteConversation(conversation.threadId)
+
+    fun deleteConversation(threadId: String): Completable {
         return conversationStore
-                .deleteByThreadId(conversation.threadId)
+                .deleteByThreadId(threadId)
                 .subscribeOn(scheduler)
     }
 
@@ -108,8 +130,8 @@ class ChatManager(
     }
 
     fun areUnreadMessages(): Single<Boolean> {
-        return Single
-                .fromCallable { conversationStore.areUnreadMessages() }
+        return conversationStore
+                .areUnreadMessages()
                 .subscribeOn(scheduler)
     }
 
@@ -3,6 +3,7 @@ package com.toshi.manager
 import com.toshi.extensions.getQueryMap
 import com.toshi.extensions.isGroupId
 import com.toshi.manager.network.IdService
+import com.toshi.manager.network.ServerClock
 import com.toshi.manager.store.BlockedUserStore
 import com.toshi.manager.store.GroupStore
 import com.toshi.manager.store.UserStore
@@ -30,6 +31,7 @@ class RecipientManager(
         private val userStore: UserStore = UserStore(),
         private val blockedUserStore: BlockedUserStore = BlockedUserStore(),
         private val baseApplication: BaseApplication = BaseApplication.get(),
+        private val serverClock: ServerClock = ServerClock.get(),
         private val scheduler: Scheduler = Schedulers.io()
 ) {
 
@@ -195,7 +197,7 @@ class RecipientManager(
                 )
     }
 
-    fun getTimestamp(): Single<ServerTime> = idService.api.timestamp
+    fun getTimestamp(): Single<ServerTime> = serverClock.getTimestamp(idService.api.timestamp)
 
     fun clear() = clearCache()
 
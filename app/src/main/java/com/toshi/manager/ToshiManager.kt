@@ -22,6 +22,9 @@ import com.toshi.crypto.HDWallet
 import com.toshi.crypto.HdWalletBuilder
 import com.toshi.extensions.getTimeoutSingle
 import com.toshi.extensions.toast
+import com.toshi.manager.network.interceptor.SigningInterceptor
+import com.toshi.manager.startup.StartupOrchestrator
+import com.toshi.manager.startup.StartupPhase
 import com.toshi.manager.store.DbMigration
 import com.toshi.util.ImageUtil
 import com.toshi.util.logging.LogUtil
@@ -33,12 +36,12 @@ import com.toshi.view.BaseApplication
 import io.realm.Realm
 import io.realm.RealmConfiguration
 import rx.Completable
+import rx.Observable
 import rx.Scheduler
 import rx.Single
 import rx.schedulers.Schedulers
 import rx.subjects.BehaviorSubject
 import java.util.concurrent.Executors
-import java.util.concurrent.TimeUnit
 
 class ToshiManager(
         private val walletSubject: BehaviorSubject<HDWallet> = BehaviorSubject.create<HDWallet>(),
@@ -56,8 +59,19 @@ class ToshiManager(
         private val scheduler: Scheduler = Schedulers.from(Executors.newSingleThreadExecutor())
 ) {
 
+    companion object {
+        private const val REALM_PHASE = "realm"
+        private const val TRANSACTIONS_PHASE = "transactions"
+        private const val BALANCE_PHASE = "balance"
+        private const val CHAT_PHASE = "chat"
+        private const val USER_PHASE = "user"
+        private const val ETH_GCM_PHASE = "ethGcm"
+        private const val PENDING_TRANSACTIONS_PHASE = "pendingTransactions"
+    }
+
     private var areManagersInitialised = false
-    private var realmConfig: RealmConfiguration? = null
+    // Empty until initRealm has run, and null after signing out
+    private val realmConfigSubject = BehaviorSubject.create<RealmConfiguration>()
     private var wallet: HDWallet? = null
 
     init {
@@ -77,17 +91,25 @@ class ToshiManager(
         LogUtil.exception("Early init failed.", throwable)
     }
 
-    val realm: Single<Realm>
-        get() = getRealmInstance()
+    val currentRealmConfiguration: RealmConfiguration?
+        get() = realmConfigSubject.value
 
-    private fun getRealmInstance(): Single<Realm> {
-        return Single.fromCallable {
-            while (realmConfig == null) Thread.sleep(100)
-            Realm.getDefaultInstance()
-        }
-        .timeout(30, TimeUnit.SECONDS)
+    /**
+     * Emits the Realm configuration as soon as initRealm has run, without holding a thread.
+     * Before signing in this waits until the user has signed in, so it never times out.
+     */
+    fun getRealmConfiguration(): Single<RealmConfiguration> {
+        return realmConfigSubject
+                .filter { it != null }
+                .first()
+                .toSingle()
     }
 
+    /**
+     * Emits the current Realm configuration and every change to it, with null after signing out.
+     */
+    fun getRealmConfigurationChanges(): Observable<RealmConfiguration?> = realmConfigSubject.asObservable()
+
     // Ignores any data that may be stored on disk and initializes a wallet once
     fun initNewWallet(): Completable {
         return if (wallet != null && areManagersInitialised) {
@@ -124,6 +146,7 @@ class ToshiManager(
 
     private fun setWallet(wallet: HDWallet?) {
         this.wallet = wallet
+        SigningInterceptor.setWallet(wallet)
         walletSubject.onNext(wallet)
     }
 
@@ -131,18 +154,38 @@ class ToshiManager(
         if (wallet == null) throw IllegalStateException("Wallet is null when initManagers")
 
         return if (areManagersInitialised) Completable.complete()
-        else Completable.fromAction {
-            initRealm(wallet)
-            transactionManager.init()
-        }
-        .onErrorComplete()
-        .andThen(Completable.mergeDelayError(
-                balanceManager.init(),
-                chatManager.init(wallet),
-                userManager.init(wallet)
-        ))
-        .doOnError { handleInitManagersError(it) }
-        .doOnCompleted { areManagersInitialised = true }
+        else StartupOrchestrator(getStartupPhases(wallet))
+                .start()
+                .doOnError { handleInitManagersError(it) }
+                .doOnCompleted { areManagersInitialised = true }
+    }
+
+    // The app is usable once the critical phases have finished, the deferred phases only
+    // talk to the network and are started after that
+    private fun getStartupPhases(wallet: HDWallet): List<StartupPhase> {
+        return listOf(
+                StartupPhase(name = REALM_PHASE, ignoreErrors = true) {
+                    Completable.fromAction { initRealm(wallet) }
+                },
+                StartupPhase(name = TRANSACTIONS_PHASE, dependencies = listOf(REALM_PHASE), ignoreErrors = true) {
+                    Completable.fromAction { transactionManager.initSubscribers() }
+                },
+                StartupPhase(name = BALANCE_PHASE) {
+                    Completable.fromAction { balanceManager.initCachedBalance() }
+                },
+                StartupPhase(name = CHAT_PHASE, dependencies = listOf(REALM_PHASE)) {
+                    chatManager.init(wallet)
+                },
+                StartupPhase(name = USER_PHASE, dependencies = listOf(REALM_PHASE)) {
+                    userManager.init(wallet)
+                },
+                StartupPhase(name = ETH_GCM_PHASE, dependencies = listOf(BALANCE_PHASE), isDeferred = true) {
+                    balanceManager.initNetworkSync()
+                },
+                StartupPhase(name = PENDING_TRANSACTIONS_PHASE, dependencies = listOf(TRANSACTIONS_PHASE), isDeferred = true) {
+                    Completable.fromAction { transactionManager.updatePendingTransactions() }
+                }
+        )
     }
 
     private fun handleInitManagersError(throwable: Throwable) {
@@ -151,19 +194,19 @@ class ToshiManager(
     }
 
     private fun initRealm(wallet: HDWallet) {
-        if (realmConfig != null) return
+        if (currentRealmConfiguration != null) return
 
         val key = wallet.generateDatabaseEncryptionKey()
         Realm.init(baseApplication)
-        realmConfig = RealmConfiguration.Builder()
-                .schemaVersion(22)
+        val realmConfig = RealmConfiguration.Builder()
+                .schemaVersion(24)
                 .migration(DbMigration(wallet))
                 .name(wallet.ownerAddress)
                 .encryptionKey(key)
                 .build()
 
-        val realmConfig = realmConfig ?: throw IllegalStateException("realmConfig is null when initRealm")
         Realm.setDefaultConfiguration(realmConfig)
+        realmConfigSubject.onNext(realmConfig)
     }
 
     fun getWallet(): Single<HDWallet> {
@@ -199,7 +242,7 @@ class ToshiManager(
     }
 
     private fun closeDatabase() {
-        realmConfig = null
+        realmConfigSubject.onNext(null)
         Realm.removeDefaultConfiguration()
     }
 
@@ -28,6 +28,7 @@ import com.toshi.manager.network.EthereumService
 import com.toshi.manager.network.EthereumServiceInterface
 import com.toshi.manager.store.PendingTransactionStore
 import com.toshi.manager.transaction.IncomingTransactionManager
+import com.toshi.manager.transaction.LocalTransactionBuilder
 import com.toshi.manager.transaction.OutgoingTransactionManager
 import com.toshi.manager.transaction.TransactionSigner
 import com.toshi.manager.transaction.UpdateTransactionManager
@@ -58,7 +59,12 @@ class TransactionManager(
         private val ethService: EthereumServiceInterface = EthereumService,
         private val pendingTransactionStore: PendingTransactionStore = PendingTransactionStore(),
         private val walletObservable: Observable<HDWallet>,
-        private val transactionSigner: TransactionSigner = TransactionSigner(ethService, walletObservable),
+        private val localTransactionBuilder: LocalTransactionBuilder = LocalTransactionBuilder(),
+        private val transactionSigner: TransactionSigner = TransactionSigner(
+                ethereumService = ethService,
+                walletObservable = walletObservable,
+                transactionBuilder = localTransactionBuilder
+        ),
         private val incomingTransactionManager: IncomingTransactionManager = IncomingTransactionManager(pendingTransactionStore),
         private val outgoingTransactionManager: OutgoingTransactionManager = OutgoingTransactionManager(pendingTransactionStore, transactionSigner),
         private val updateTransactionManager: UpdateTransactionManager = UpdateTransactionManager(pendingTransactionStore),
@@ -76,17 +82,12 @@ class TransactionManager(
     }
     private val subscriptions by lazy { CompositeSubscription() }
 
-    fun init(): TransactionManager {
-        initEverything()
-        return this
-    }
-
-    private fun initEverything() {
-        updatePendingTransactions()
+    fun initSubscribers(): TransactionManager {
         attachSubscribers()
+        return this
     }
 
-    private fun updatePendingTransactions() = updateTransactionManager.updatePendingTransactions()
+    fun updatePendingTransactions() = updateTransactionManager.updatePendingTransactions()
 
     fun signW3Transaction(paymentTask: W3PaymentTask): Single<SignedTransaction> {
         return transactionSigner.signW3Transaction(paymentTask)
@@ -175,9 +176,12 @@ class TransactionManager(
     }
 
     fun createTransaction(transactionRequest: TransactionRequest): Single<UnsignedTransaction> {
+        val localTransaction = localTransactionBuilder.build(transactionRequest)
+        if (localTransaction != null) return Single.just(localTransaction)
         return ethService
                 .get()
                 .createTransaction(transactionRequest)
+                .doOnSuccess { localTransactionBuilder.onServerTransaction(transactionRequest, it) }
                 .subscribeOn(scheduler)
                 .doOnError { LogUtil.exception("Error while creating transaction", it) }
     }
@@ -20,6 +20,7 @@ package com.toshi.manager
 import com.toshi.crypto.HDWallet
 import com.toshi.extensions.getTimeoutSingle
 import com.toshi.manager.network.IdService
+import com.toshi.manager.network.ServerClock
 import com.toshi.model.local.User
 import com.toshi.model.network.ServerTime
 import com.toshi.model.network.UserDetails
@@ -47,6 +48,7 @@ class UserManager(
         private val fileUploader: FileUploader = FileUploader(idService.api),
         private val userPrefs: UserPrefsInterface = UserPrefs(),
         private val appPrefs: AppPrefsInterface = AppPrefs,
+        private val serverClock: ServerClock = ServerClock.get(),
         private val recipientManager: RecipientManager,
         private val baseApplication: BaseApplication = BaseApplication.get(),
         private val walletObservable: Observable<HDWallet>,
@@ -202,7 +204,7 @@ class UserManager(
                 .doOnSuccess { userSubject.onNext(it) }
     }
 
-    private fun getTimestamp() = idService.api.timestamp
+    private fun getTimestamp() = serverClock.getTimestamp(idService.api.timestamp)
 
     fun webLogin(loginToken: String): Completable {
         return getTimestamp()
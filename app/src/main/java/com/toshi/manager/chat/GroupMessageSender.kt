@@ -0,0 +1,74 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.chat
+
+import com.toshi.manager.model.GroupSendResult
+import com.toshi.util.logging.LogUtil
+import org.whispersystems.signalservice.api.SignalServiceMessageSender
+import org.whispersystems.signalservice.api.messages.SignalServiceDataMessage
+import org.whispersystems.signalservice.api.push.SignalServiceAddress
+import rx.Observable
+import rx.schedulers.Schedulers
+import java.util.concurrent.Executors
+
+/**
+ * Sends a group message to each member separately, a few members at a time, so one slow
+ * member doesn't hold up the rest and a failure only affects the members it happened to.
+ * Members that already received the message in an earlier attempt are skipped.
+ *
+ * [send] still blocks its caller until every member has been sent to. SofaMessageSender
+ * handles its queue one task at a time, so the messages after a group message to a large
+ * group wait until it has been sent. That keeps messages in the order they were written in.
+ */
+class GroupMessageSender(private val signalMessageSender: SignalServiceMessageSender) {
+
+    companion object {
+        private const val MAX_CONCURRENT_SENDS = 4
+    }
+
+    private val sendExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_SENDS)
+    private val sendScheduler = Schedulers.from(sendExecutor)
+
+    // Blocks until every member has either received the message or failed
+    fun send(members: List<SignalServiceAddress>,
+             message: SignalServiceDataMessage,
+             deliveredAddresses: List<String> = emptyList()): GroupSendResult {
+        val outcomes = Observable
+                .from(members)
+                .filter { !deliveredAddresses.contains(it.number) }
+                .flatMap({ sendToMember(it, message) }, MAX_CONCURRENT_SENDS)
+                .toMap({ it.first }, { it.second })
+                .toBlocking()
+                .single()
+        return GroupSendResult(outcomes)
+    }
+
+    private fun sendToMember(member: SignalServiceAddress, message: SignalServiceDataMessage): Observable<Pair<String, Exception?>> {
+        return Observable.fromCallable {
+            try {
+                signalMessageSender.sendMessage(member, message)
+                Pair<String, Exception?>(member.number, null)
+            } catch (ex: Exception) {
+                LogUtil.w("Unable to send group message to ${member.number} $ex")
+                Pair<String, Exception?>(member.number, ex)
+            }
+        }.subscribeOn(sendScheduler)
+    }
+
+    fun clear() = sendExecutor.shutdown()
+}
@@ -66,6 +66,7 @@ public class SofaMessageSender {
     private final ProtocolStore protocolStore;
     private final PublishSubject<SofaMessageTask> messageQueue;
     private final SignalServiceMessageSender signalMessageSender;
+    private final GroupMessageSender groupMessageSender;
     private final SendMessageToRecipientTask taskSendMessage;
     private final StoreMessageTask taskStoreMessage;
 
@@ -91,11 +92,13 @@ public class SofaMessageSender {
                         Optional.absent()
                 );
 
+        this.groupMessageSender = new GroupMessageSender(this.signalMessageSender);
         this.taskSendMessage = new SendMessageToRecipientTask(
                 this.conversationStore,
                 this.pendingMessageStore,
                 this.protocolStore,
-                this.signalMessageSender);
+                this.signalMessageSender,
+                this.groupMessageSender);
         this.taskStoreMessage = new StoreMessageTask(this.conversationStore);
 
         attachSubscriber();
@@ -139,7 +142,8 @@ public class SofaMessageSender {
     }
 
     public void sendPendingMessage(final SofaMessage sofaMessage) {
-        Single.fromCallable(() -> this.pendingMessageStore.fetchPendingMessage(sofaMessage))
+        this.pendingMessageStore
+                .fetchPendingMessage(sofaMessage)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .doOnError(throwable -> handleMessageError(throwable, "Error while sending pending message"))
@@ -152,7 +156,8 @@ public class SofaMessageSender {
         final SofaMessageTask messageTask = new SofaMessageTask(
                 pendingMessage.getReceiver(),
                 pendingMessage.getSofaMessage(),
-                SofaMessageTask.SEND_AND_SAVE);
+                SofaMessageTask.SEND_AND_SAVE,
+                pendingMessage.getDeliveredAddresses());
         addNewTask(messageTask);
     }
 
@@ -182,6 +187,7 @@ public class SofaMessageSender {
 
     public void clear() {
         this.subscriptions.clear();
+        this.groupMessageSender.clear();
     }
 
     private void handleMessageError(final Throwable throwable, final String message) {
@@ -57,11 +57,30 @@ class HandleMessageTask(
     fun run(messageSource: String, dataMessage: SignalServiceDataMessage): IncomingMessage? {
         val signalGroup = dataMessage.groupInfo
         val messageBody = dataMessage.body
+        if (messageBody.isPresent && handleUnrenderedMessage(messageSource, messageBody.get())) return null
         val attachments = dataMessage.attachments
         val decryptedMessage = DecryptedSignalMessage(messageSource, messageBody.get(), attachments, signalGroup)
         return saveIncomingMessageToDatabase(decryptedMessage)
     }
 
+    // Init requests and payments are never rendered, so they are handled straight from the
+    // Signal body before any SofaMessage, attachment or recipient is created for them.
+    private fun handleUnrenderedMessage(messageSource: String, messageBody: String): Boolean {
+        val type = SofaType.getTypeFromPayload(messageBody)
+        if (type != SofaType.INIT_REQUEST && type != SofaType.PAYMENT) return false
+        try {
+            val sender = getUser(messageSource)
+            if (type == SofaType.INIT_REQUEST) respondToInitRequest(sender, messageBody)
+            // Don't render incoming SOFA::Payments, getting the sender above ensures it is cached.
+        } catch (ex: Exception) {
+            when (ex) {
+                is IllegalStateException, is TimeoutException -> LogUtil.exception("Error handling incoming message $ex")
+                else -> throw ex
+            }
+        }
+        return true
+    }
+
     private fun saveIncomingMessageToDatabase(signalMessage: DecryptedSignalMessage?): IncomingMessage? {
         if (signalMessage?.isValid != true) {
             LogUtil.w("Attempt to save invalid DecryptedSignalMessage to database.")
@@ -102,23 +121,21 @@ class HandleMessageTask(
                 .toBlocking()
                 .value() ?: throw IllegalStateException("Failure to generate Recipient")
 
-        val conversation = saveIncomingMessageToDatabase(sender, remoteMessage, recipient) ?: return null
+        val conversation = saveIncomingMessageToDatabase(remoteMessage, recipient) ?: return null
         return IncomingMessage(remoteMessage, recipient, conversation)
     }
 
-    private fun saveIncomingMessageToDatabase(sender: User, remoteMessage: SofaMessage, senderRecipient: Recipient): Conversation? {
+    private fun saveIncomingMessageToDatabase(remoteMessage: SofaMessage, senderRecipient: Recipient): Conversation? {
         return when {
-            remoteMessage.type == SofaType.INIT_REQUEST -> respondToInitRequest(sender, remoteMessage)
-            remoteMessage.type == SofaType.PAYMENT -> fetchAndCacheIncomingPaymentSender(sender)
             remoteMessage.type == SofaType.PAYMENT_REQUEST -> savePaymentRequestAndShowNotification(remoteMessage, senderRecipient)
             else -> saveMessageToDatabase(remoteMessage, senderRecipient)
         }
     }
 
-    private fun respondToInitRequest(sender: User, remoteMessage: SofaMessage): Conversation? {
+    private fun respondToInitRequest(sender: User, messageBody: String) {
         // Don't render initRequests, but respond to them.
         try {
-            val initRequest = SofaAdapters.get().initRequestFrom(remoteMessage.payload)
+            val initRequest = SofaAdapters.get().initRequestFrom(SofaMessage.cleanPayload(messageBody))
             val initMessage = Init().construct(initRequest, getWallet().paymentAddress)
             val payload = SofaAdapters.get().toJson(initMessage)
             val newSofaMessage = SofaMessage().makeNew(sender, payload)
@@ -129,17 +146,10 @@ class HandleMessageTask(
         } catch (e: TimeoutException) {
             LogUtil.exception("Failed to respond to incoming init request. $e")
         }
-        return null
     }
 
     private fun getWallet() = hdWalletObservable.getTimeoutSingle().toBlocking().value()
 
-    private fun fetchAndCacheIncomingPaymentSender(sender: User): Conversation? {
-        // Don't render incoming SOFA::Payments, but ensure we have the sender cached.
-        recipientManager.getUserFromToshiId(sender.toshiId)
-        return null
-    }
-
     private fun savePaymentRequestAndShowNotification(remoteMessage: SofaMessage, senderRecipient: Recipient): Conversation {
         if (Looper.myLooper() == Looper.getMainLooper()) throw IllegalStateException("Running a blocking DB call on main thread!")
         val updatedPayload = generatePayloadWithLocalAmountEmbedded(remoteMessage)
@@ -190,7 +200,7 @@ class HandleMessageTask(
 
     private fun generatePayloadWithLocalAmountEmbedded(remoteMessage: SofaMessage): Single<String> {
         try {
-            val request = SofaAdapters.get().txRequestFrom(remoteMessage.payload)
+            val request = SofaAdapters.get().txRequestFrom(remoteMessage)
             return request
                     .generateLocalPrice()
                     .map { updatedPaymentRequest -> SofaAdapters.get().toJson(updatedPaymentRequest) }
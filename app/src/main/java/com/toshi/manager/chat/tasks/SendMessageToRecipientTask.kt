@@ -18,6 +18,8 @@
 package com.toshi.manager.chat.tasks
 
 import com.toshi.crypto.signal.store.ProtocolStore
+import com.toshi.manager.chat.GroupMessageSender
+import com.toshi.manager.model.GroupSendResult
 import com.toshi.manager.model.SofaMessageTask
 import com.toshi.manager.store.ConversationStore
 import com.toshi.manager.store.PendingMessageStore
@@ -43,7 +45,8 @@ class SendMessageToRecipientTask(
         private val conversationStore: ConversationStore,
         private val pendingMessageStore: PendingMessageStore,
         private val protocolStore: ProtocolStore,
-        private val signalMessageSender: SignalServiceMessageSender
+        private val signalMessageSender: SignalServiceMessageSender,
+        private val groupMessageSender: GroupMessageSender
 ) {
     fun run(messageTask: SofaMessageTask, saveMessageToDatabase: Boolean) {
         if (messageTask.receiver.isGroup) sendMessageToGroup(messageTask, saveMessageToDatabase)
@@ -55,7 +58,44 @@ class SendMessageToRecipientTask(
         if (isOfflineAndCache(messageTask, saveMessageToDatabase)) return
 
         try {
-            sendToSignal(messageTask.receiver.group.memberAddresses, messageTask)
+            val message = buildMessage(messageTask)
+            if (message.attachments.isPresent) {
+                sendGroupMessageWithAttachment(messageTask, message, saveMessageToDatabase)
+                return
+            }
+            val members = messageTask.receiver.group.memberAddresses
+            val result = groupMessageSender.send(members, message, messageTask.deliveredAddresses)
+            handleGroupSendResult(messageTask, result, saveMessageToDatabase)
+        } catch (ex: IOException) {
+            LogUtil.exception("Error while sending message to group", ex)
+            val errorMessage = getErrorMessageFromException(ex)
+            if (saveMessageToDatabase) saveAndUpdateExistingMessageWithErrorMessage(messageTask, errorMessage)
+        }
+    }
+
+    private fun handleGroupSendResult(messageTask: SofaMessageTask, result: GroupSendResult, saveMessageToDatabase: Boolean) {
+        for (uie in result.untrustedIdentities) {
+            LogUtil.exception("Keys have changed.", uie)
+            protocolStore.saveIdentity(SignalProtocolAddress(uie.e164Number, SignalServiceAddress.DEFAULT_DEVICE_ID), uie.identityKey)
+        }
+        if (!saveMessageToDatabase) return
+        if (result.isDelivered()) {
+            messageTask.sofaMessage.sendState = SendState.STATE_SENT
+            updateExistingMessage(messageTask)
+        } else {
+            LogUtil.w("Group message not delivered to ${result.failedAddresses.size} of ${result.outcomes.size} members")
+            val deliveredAddresses = messageTask.deliveredAddresses + result.deliveredAddresses
+            val errorMessage = SofaError().createNotDeliveredMessage(BaseApplication.get())
+            saveAndUpdateExistingMessageWithErrorMessage(messageTask, errorMessage, deliveredAddresses)
+        }
+    }
+
+    // Sending to members one by one would upload the attachment once per member,
+    // so these are still sent to the whole group in one go
+    @Throws(IOException::class)
+    private fun sendGroupMessageWithAttachment(messageTask: SofaMessageTask, message: SignalServiceDataMessage, saveMessageToDatabase: Boolean) {
+        try {
+            signalMessageSender.sendMessage(messageTask.receiver.group.memberAddresses, message)
             if (saveMessageToDatabase) {
                 messageTask.sofaMessage.sendState = SendState.STATE_SENT
                 updateExistingMessage(messageTask)
@@ -65,10 +105,6 @@ class SendMessageToRecipientTask(
                 LogUtil.exception("Keys have changed.", e)
                 protocolStore.saveIdentity(SignalProtocolAddress(uie.e164Number, SignalServiceAddress.DEFAULT_DEVICE_ID), uie.identityKey)
             }
-        } catch (ex: IOException) {
-            LogUtil.exception("Error while sending message to group", ex)
-            val errorMessage = getErrorMessageFromException(ex)
-            if (saveMessageToDatabase) saveAndUpdateExistingMessageWithErrorMessage(messageTask, errorMessage)
         }
     }
 
@@ -99,12 +135,14 @@ class SendMessageToRecipientTask(
         }
     }
 
-    private fun saveAndUpdateExistingMessageWithErrorMessage(messageTask: SofaMessageTask, errorMessage: SofaError) {
+    private fun saveAndUpdateExistingMessageWithErrorMessage(messageTask: SofaMessageTask,
+                                                             errorMessage: SofaError,
+                                                             deliveredAddresses: List<String> = messageTask.deliveredAddresses) {
         try {
             messageTask.sofaMessage.errorMessage = errorMessage
             messageTask.sofaMessage.sendState = SendState.STATE_FAILED
             updateExistingMessage(messageTask)
-            savePendingMessage(messageTask)
+            savePendingMessage(messageTask, deliveredAddresses)
         } catch (ex: IOException) {
             LogUtil.exception("Error while saving and updating existing message", ex)
         }
@@ -120,12 +158,6 @@ class SendMessageToRecipientTask(
         return !isConnected
     }
 
-    @Throws(IOException::class, EncapsulatedExceptions::class)
-    private fun sendToSignal(signalAddresses: List<SignalServiceAddress>, messageTask: SofaMessageTask) {
-        val message = buildMessage(messageTask)
-        signalMessageSender.sendMessage(signalAddresses, message)
-    }
-
     @Throws(UntrustedIdentityException::class, IOException::class)
     private fun sendToSignal(signalAddress: String, messageTask: SofaMessageTask) {
         val receivingAddress = SignalServiceAddress(signalAddress)
@@ -169,6 +201,8 @@ class SendMessageToRecipientTask(
     }
 
     private fun saveMessageToDatabase(messageTask: SofaMessageTask) = conversationStore.saveNewMessage(messageTask.receiver, messageTask.sofaMessage)
-    private fun savePendingMessage(messageTask: SofaMessageTask) = pendingMessageStore.save(messageTask.receiver, messageTask.sofaMessage)
+    private fun savePendingMessage(messageTask: SofaMessageTask, deliveredAddresses: List<String> = messageTask.deliveredAddresses) {
+        pendingMessageStore.save(messageTask.receiver, messageTask.sofaMessage, deliveredAddresses)
+    }
     private fun updateExistingMessage(messageTask: SofaMessageTask) = conversationStore.updateMessage(messageTask.receiver, messageTask.sofaMessage)
 }
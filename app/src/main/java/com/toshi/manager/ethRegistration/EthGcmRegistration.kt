@@ -20,6 +20,7 @@ package com.toshi.manager.ethRegistration
 import com.toshi.crypto.HDWallet
 import com.toshi.extensions.getTimeoutSingle
 import com.toshi.manager.network.EthereumServiceInterface
+import com.toshi.manager.network.ServerClock
 import com.toshi.model.local.network.Network
 import com.toshi.model.local.network.Networks
 import com.toshi.model.network.GcmDeregistration
@@ -43,6 +44,7 @@ class EthGcmRegistration(
         private val gcmPrefs: EthGcmPrefsInterface = EthGcmPrefs(),
         private val gcmToken: GcmTokenInterface = GcmToken(),
         private val walletObservable: Observable<HDWallet>,
+        private val serverClock: ServerClock = ServerClock.get(),
         private val scheduler: Scheduler = Schedulers.io()
 ) {
     //Don't unregister the default network
@@ -64,9 +66,8 @@ class EthGcmRegistration(
 
     fun unregisterFromEthGcm(token: String?): Completable {
         val currentNetworkId = networks.currentNetwork.id
-        return ethService
-                .get()
-                .timestamp
+        return serverClock
+                .getTimestamp(ethService.get().timestamp)
                 .flatMapCompletable { unregisterEthGcmWithTimestamp(token, it) }
                 .doOnCompleted { gcmPrefs.setEthGcmTokenSentToServer(currentNetworkId, false) }
                 .subscribeOn(scheduler)
@@ -91,9 +92,8 @@ class EthGcmRegistration(
     }
 
     private fun registerEthGcmToken(token: String?): Completable {
-        return ethService
-                .get()
-                .timestamp
+        return serverClock
+                .getTimestamp(ethService.get().timestamp)
                 .flatMapCompletable { registerEthGcmWithTimestamp(token, it) }
     }
 
@@ -0,0 +1,118 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.exchangeRate
+
+import com.toshi.manager.network.CurrencyInterface
+import com.toshi.model.local.CachedExchangeRate
+import com.toshi.model.network.ExchangeRate
+import com.toshi.util.logging.LogUtil
+import com.toshi.util.sharedPrefs.BalancePrefsInterface
+import rx.Scheduler
+import rx.Single
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Caches exchange rates per currency code, in memory and in [BalancePrefsInterface].
+ *
+ * A rate younger than [FRESH_MS] is returned as is. An older rate, up to [MAX_STALE_MS],
+ * is returned straight away while a new one is fetched in the background. Anything older
+ * is fetched before returning, falling back to the old rate if that fails.
+ * This is only good enough for displaying amounts; use [getFresh] when the rate decides
+ * how much is sent. Concurrent callers share a single request per currency code.
+ */
+class ExchangeRateCache(
+        private val currencyService: CurrencyInterface,
+        private val balancePrefs: BalancePrefsInterface,
+        private val scheduler: Scheduler,
+        private val currentTimeMillis: () -> Long = { System.currentTimeMillis() }
+) {
+
+    companion object {
+        private val FRESH_MS = TimeUnit.MINUTES.toMillis(5)
+        private val MAX_STALE_MS = TimeUnit.HOURS.toMillis(24)
+    }
+
+    private val rates = ConcurrentHashMap<String, CachedExchangeRate>()
+    private val inFlightRequests = HashMap<String, Single<ExchangeRate>>()
+
+    fun get(code: String): Single<ExchangeRate> {
+        return Single.defer {
+            val cachedRate = getCachedRate(code) ?: return@defer fetch(code)
+            val age = cachedRate.ageMillis(currentTimeMillis())
+            when {
+                age < FRESH_MS -> Single.just(cachedRate.exchangeRate)
+                age < MAX_STALE_MS -> {
+                    refreshInBackground(code)
+                    Single.just(cachedRate.exchangeRate)
+                }
+                else -> fetch(code).onErrorReturn { cachedRate.exchangeRate }
+            }
+        }
+    }
+
+    /**
+     * Returns a rate younger than [FRESH_MS], fetching a new one if needed. Never falls back
+     * to an older rate, so use this when converting amounts that are about to be sent.
+     */
+    fun getFresh(code: String): Single<ExchangeRate> {
+        return Single.defer {
+            val cachedRate = getCachedRate(code)
+            if (cachedRate != null && cachedRate.ageMillis(currentTimeMillis()) < FRESH_MS) {
+                Single.just(cachedRate.exchangeRate)
+            } else {
+                fetch(code)
+            }
+        }
+    }
+
+    private fun getCachedRate(code: String): CachedExchangeRate? {
+        return rates[code] ?: balancePrefs.readExchangeRate(code)?.also { rates.putIfAbsent(code, it) }
+    }
+
+    private fun fetch(code: String): Single<ExchangeRate> {
+        synchronized(inFlightRequests) {
+            inFlightRequests[code]?.let { return it }
+            val request = currencyService
+                    .getRates(code)
+                    .subscribeOn(scheduler)
+                    .doOnSuccess { store(code, it) }
+                    .doAfterTerminate { synchronized(inFlightRequests) { inFlightRequests.remove(code) } }
+                    .toObservable()
+                    .cache()
+                    .toSingle()
+            inFlightRequests[code] = request
+            return request
+        }
+    }
+
+    private fun refreshInBackground(code: String) {
+        fetch(code).subscribe(
+                { },
+                { LogUtil.w("Unable to refresh exchange rate for $code $it") }
+        )
+    }
+
+    private fun store(code: String, exchangeRate: ExchangeRate) {
+        val cachedRate = CachedExchangeRate(exchangeRate, currentTimeMillis())
+        rates[code] = cachedRate
+        balancePrefs.writeExchangeRate(code, cachedRate)
+    }
+
+    fun clear() = rates.clear()
+}
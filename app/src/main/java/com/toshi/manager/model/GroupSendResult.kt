@@ -0,0 +1,39 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.model
+
+import org.whispersystems.signalservice.api.crypto.UntrustedIdentityException
+import org.whispersystems.signalservice.api.push.exceptions.UnregisteredUserException
+
+/**
+ * The outcome of sending a group message, with one entry per member.
+ * A null error means the message was delivered to that member.
+ */
+class GroupSendResult(val outcomes: Map<String, Exception?>) {
+
+    val deliveredAddresses: List<String> get() = outcomes.filterValues { it == null }.keys.toList()
+
+    val untrustedIdentities: List<UntrustedIdentityException>
+        get() = outcomes.values.filterIsInstance<UntrustedIdentityException>()
+
+    // Members that are no longer registered will never receive the message, so they don't count as failures
+    val failedAddresses: List<String>
+        get() = outcomes.filterValues { it != null && it !is UnregisteredUserException }.keys.toList()
+
+    fun isDelivered() = failedAddresses.isEmpty()
+}
@@ -0,0 +1,37 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.model
+
+/**
+ * How long a phase of the startup took. [startMillis] is relative to the start of the startup.
+ */
+data class PhaseTiming(
+        val name: String,
+        val isDeferred: Boolean,
+        val startMillis: Long,
+        val durationMillis: Long,
+        val error: Throwable? = null
+) {
+    val isSuccessful: Boolean
+        get() = error == null
+
+    override fun toString(): String {
+        val result = if (isSuccessful) "ok" else "failed ($error)"
+        return "phase=$name deferred=$isDeferred start=${startMillis}ms duration=${durationMillis}ms result=$result"
+    }
+}
@@ -23,6 +23,9 @@ import android.support.annotation.IntDef;
 import com.toshi.model.local.Recipient;
 import com.toshi.model.sofa.SofaMessage;
 
+import java.util.Collections;
+import java.util.List;
+
 public final class SofaMessageTask {
 
     @IntDef({SEND_AND_SAVE, SAVE_ONLY, SEND_ONLY, UPDATE_MESSAGE, SAVE_TRANSACTION})
@@ -36,14 +39,24 @@ public final class SofaMessageTask {
     private final Recipient receiver;
     private final SofaMessage sofaMessage;
     private final @Action int action;
+    private final List<String> deliveredAddresses;
 
     public SofaMessageTask(
             final Recipient receiver,
             final SofaMessage sofaMessage,
             final @Action int action) {
+        this(receiver, sofaMessage, action, Collections.emptyList());
+    }
+
+    public SofaMessageTask(
+            final Recipient receiver,
+            final SofaMessage sofaMessage,
+            final @Action int action,
+            final List<String> deliveredAddresses) {
         this.receiver = receiver;
         this.sofaMessage = sofaMessage;
         this.action = action;
+        this.deliveredAddresses = deliveredAddresses;
     }
 
     public boolean isGroup() {
@@ -61,4 +74,8 @@ public final class SofaMessageTask {
     public int getAction() {
         return action;
     }
+
+    public List<String> getDeliveredAddresses() {
+        return deliveredAddresses;
+    }
 }
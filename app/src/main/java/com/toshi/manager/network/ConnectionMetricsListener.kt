@@ -0,0 +1,65 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.network
+
+import com.toshi.util.logging.LogUtil
+import okhttp3.Call
+import okhttp3.Connection
+import okhttp3.EventListener
+import okhttp3.Protocol
+import java.net.InetSocketAddress
+import java.net.Proxy
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counts how often calls get a pooled connection instead of opening a new one.
+ * One instance is shared by every call, so it only keeps counters.
+ */
+class ConnectionMetricsListener : EventListener() {
+
+    companion object {
+        private const val LOG_INTERVAL = 50L
+    }
+
+    private val acquiredConnections = AtomicLong(0)
+    private val newConnections = AtomicLong(0)
+    private val http2Acquisitions = AtomicLong(0)
+
+    override fun connectEnd(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy, protocol: Protocol?) {
+        newConnections.incrementAndGet()
+    }
+
+    override fun connectionAcquired(call: Call, connection: Connection) {
+        if (connection.protocol() == Protocol.HTTP_2) http2Acquisitions.incrementAndGet()
+        val acquired = acquiredConnections.incrementAndGet()
+        if (acquired % LOG_INTERVAL == 0L) {
+            LogUtil.d("Connections acquired: $acquired, opened: ${getNewConnectionCount()}, " +
+                    "reuse rate: ${(getReuseRate() * 100).toInt()}%, http/2: ${http2Acquisitions.get()}")
+        }
+    }
+
+    fun getAcquiredConnectionCount() = acquiredConnections.get()
+
+    fun getNewConnectionCount() = newConnections.get()
+
+    fun getReuseRate(): Double {
+        val acquired = acquiredConnections.get()
+        if (acquired == 0L) return 0.0
+        return (acquired - newConnections.get()).coerceAtLeast(0L).toDouble() / acquired
+    }
+}
@@ -32,7 +32,6 @@ import java.io.File;
 
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
 import retrofit2.converter.moshi.MoshiConverterFactory;
@@ -67,8 +66,8 @@ public class CurrencyService {
         final RxJavaCallAdapterFactory rxAdapter = RxJavaCallAdapterFactory
                 .createWithScheduler(Schedulers.io());
         final File cachePath = new File(BaseApplication.get().getCacheDir(), "ratesCache");
-        this.client = new OkHttpClient
-                .Builder()
+        this.client = HttpClientFactory.INSTANCE
+                .newBuilder()
                 .cache(new Cache(cachePath, 1024 * 1024))
                 .addNetworkInterceptor(new ReadFromCacheInterceptor())
                 .addInterceptor(new OfflineCacheInterceptor());
@@ -95,7 +94,6 @@ public class CurrencyService {
     }
 
     private void addLogging() {
-        final HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(new LoggingInterceptor());
-        this.client.addInterceptor(interceptor);
+        this.client.addInterceptor(new LoggingInterceptor());
     }
 }
@@ -28,7 +28,6 @@ import com.toshi.model.adapter.RealmListAdapter
 import com.toshi.view.BaseApplication
 import okhttp3.Cache
 import okhttp3.OkHttpClient
-import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Retrofit
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory
 import retrofit2.converter.moshi.MoshiConverterFactory
@@ -45,7 +44,7 @@ object DirectoryService {
         val rxAdapter = RxJavaCallAdapterFactory.createWithScheduler(Schedulers.io())
         val cachePath = File(BaseApplication.get().cacheDir, "dirCache")
         val cache = Cache(cachePath, (1024 * 1024 * 2).toLong())
-        val client = OkHttpClient.Builder()
+        val client = HttpClientFactory.newBuilder()
                 .cache(cache)
                 .addNetworkInterceptor(ReadFromCacheInterceptor())
                 .addInterceptor(OfflineCacheInterceptor())
@@ -72,12 +71,11 @@ object DirectoryService {
     }
 
     private fun addSigningInterceptor(client: OkHttpClient.Builder) {
-        client.addInterceptor(SigningInterceptor())
+        // The directory service has no timestamp endpoint to resync the clock with
+        client.addInterceptor(SigningInterceptor(null))
     }
 
     private fun addLogging(client: OkHttpClient.Builder) {
-        val interceptor = HttpLoggingInterceptor(LoggingInterceptor())
-        interceptor.level = HttpLoggingInterceptor.Level.BODY
-        client.addInterceptor(interceptor)
+        client.addInterceptor(LoggingInterceptor())
     }
 }
\ No newline at end of file
@@ -41,6 +41,8 @@ import rx.Single;
 
 public interface EthereumInterface {
 
+    String TIMESTAMP_PATH = "/v1/timestamp";
+
     @POST("/v1/tx/skel")
     Single<UnsignedTransaction> createTransaction(@Body TransactionRequest request);
 
@@ -53,7 +55,7 @@ public interface EthereumInterface {
     @GET("/v1/balance/{id}")
     Single<Balance> getBalance(@Path("id") String walletAddress);
 
-    @GET("/v1/timestamp")
+    @GET(TIMESTAMP_PATH)
     Single<ServerTime> getTimestamp();
 
     @POST("/v1/gcm/register")
@@ -28,7 +28,6 @@ import com.toshi.model.sofa.SofaMessage
 import com.toshi.model.sofa.payment.Payment
 import okhttp3.OkHttpClient
 import okhttp3.Request
-import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Retrofit
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory
 import retrofit2.converter.moshi.MoshiConverterFactory
@@ -60,10 +59,10 @@ object EthereumService : EthereumServiceInterface {
         val rxAdapter = RxJavaCallAdapterFactory
                 .createWithScheduler(Schedulers.io())
 
-        val client: OkHttpClient.Builder = OkHttpClient.Builder()
+        val client: OkHttpClient.Builder = HttpClientFactory.newBuilder()
                 .addInterceptor(AppInfoUserAgentInterceptor())
-                .addInterceptor(SigningInterceptor())
-                .addInterceptor(buildLoggingInterceptor())
+                .addInterceptor(SigningInterceptor(EthereumInterface.TIMESTAMP_PATH))
+                .addInterceptor(LoggingInterceptor())
 
         val retrofit = Retrofit.Builder()
                 .baseUrl(baseUrl)
@@ -75,12 +74,6 @@ object EthereumService : EthereumServiceInterface {
         return retrofit.create(EthereumInterface::class.java)
     }
 
-    private fun buildLoggingInterceptor(): HttpLoggingInterceptor {
-        val interceptor = HttpLoggingInterceptor(LoggingInterceptor())
-        interceptor.level = HttpLoggingInterceptor.Level.BODY
-        return interceptor
-    }
-
     override fun changeBaseUrl(baseUrl: String) {
         this.baseUrl = baseUrl
         ethereumInterface = buildEthereumInterface(this.baseUrl)
@@ -95,7 +88,7 @@ object EthereumService : EthereumServiceInterface {
                     .url(url)
                     .build()
 
-            val response = OkHttpClient()
+            val response = HttpClientFactory.client
                     .newCall(request)
                     .execute()
 
@@ -103,7 +96,7 @@ object EthereumService : EthereumServiceInterface {
             val sofaMessage = SofaMessage().makeNew(response.body()?.string().orEmpty())
             response.close()
 
-            return@fromCallable SofaAdapters.get().paymentFrom(sofaMessage.payload)
+            return@fromCallable SofaAdapters.get().paymentFrom(sofaMessage)
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.network
+
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import java.util.concurrent.TimeUnit
+
+/**
+ * Owns the single connection pool and dispatcher used by every service. Services derive their
+ * own client from [newBuilder], so interceptors and caches stay per service while connections,
+ * including multiplexed HTTP/2 connections to the same host, and threads are shared.
+ */
+object HttpClientFactory {
+
+    private const val MAX_IDLE_CONNECTIONS = 10
+    private const val KEEP_ALIVE_DURATION_MINUTES = 5L
+    private const val MAX_REQUESTS_PER_HOST = 10
+
+    val connectionMetrics = ConnectionMetricsListener()
+
+    val client: OkHttpClient by lazy { buildClient() }
+
+    private fun buildClient(): OkHttpClient {
+        val dispatcher = Dispatcher()
+        dispatcher.maxRequestsPerHost = MAX_REQUESTS_PER_HOST
+
+        return OkHttpClient.Builder()
+                .connectionPool(ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .protocols(listOf(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .eventListener(connectionMetrics)
+                .build()
+    }
+
+    fun newBuilder(): OkHttpClient.Builder = client.newBuilder()
+}
@@ -45,8 +45,10 @@ import rx.Single;
 
 public interface IdInterface {
 
+    String TIMESTAMP_PATH = "/v1/timestamp";
+
     @Headers("Cache-control: no-store")
-    @GET("/v1/timestamp")
+    @GET(TIMESTAMP_PATH)
     Single<ServerTime> getTimestamp();
 
     @Headers("Cache-control: no-store")
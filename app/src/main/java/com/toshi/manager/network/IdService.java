@@ -35,7 +35,6 @@ import java.io.IOException;
 
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
 import retrofit2.converter.moshi.MoshiConverterFactory;
@@ -81,13 +80,13 @@ public class IdService {
     }
 
     private OkHttpClient.Builder buildClient(final Cache cache) {
-        final OkHttpClient.Builder clientBuilder = new OkHttpClient
-                .Builder()
+        final OkHttpClient.Builder clientBuilder = HttpClientFactory.INSTANCE
+                .newBuilder()
                 .cache(cache)
                 .addNetworkInterceptor(new ReadFromCacheInterceptor())
                 .addInterceptor(new OfflineCacheInterceptor())
                 .addInterceptor(new AppInfoUserAgentInterceptor())
-                .addInterceptor(new SigningInterceptor());
+                .addInterceptor(new SigningInterceptor(IdInterface.TIMESTAMP_PATH));
 
         addLogging(clientBuilder);
         return clientBuilder;
@@ -99,9 +98,7 @@ public class IdService {
     }
 
     private void addLogging(final OkHttpClient.Builder builder) {
-        final HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(new LoggingInterceptor());
-        interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-        builder.addInterceptor(interceptor);
+        builder.addInterceptor(new LoggingInterceptor());
     }
 
     private Retrofit buildRetrofit(final OkHttpClient.Builder clientBuilder) {
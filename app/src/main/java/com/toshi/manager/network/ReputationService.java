@@ -30,7 +30,6 @@ import java.io.File;
 
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
 import retrofit2.converter.moshi.MoshiConverterFactory;
@@ -64,8 +63,8 @@ public class ReputationService {
         final RxJavaCallAdapterFactory rxAdapter = RxJavaCallAdapterFactory
                 .createWithScheduler(Schedulers.io());
         final File cachePath = new File(BaseApplication.get().getCacheDir(), "repCache");
-        this.client = new OkHttpClient
-                .Builder()
+        this.client = HttpClientFactory.INSTANCE
+                .newBuilder()
                 .cache(new Cache(cachePath, 1024 * 1024))
                 .addNetworkInterceptor(new ReadFromCacheInterceptor())
                 .addInterceptor(new OfflineCacheInterceptor());
@@ -92,12 +91,11 @@ public class ReputationService {
     }
 
     private void addSigningInterceptor() {
-        this.client.addInterceptor(new SigningInterceptor());
+        // The reputation service has no timestamp endpoint to resync the clock with
+        this.client.addInterceptor(new SigningInterceptor(null));
     }
 
     private void addLogging() {
-        final HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(new LoggingInterceptor());
-        interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-        this.client.addInterceptor(interceptor);
+        this.client.addInterceptor(new LoggingInterceptor());
     }
 }
@@ -0,0 +1,130 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.network
+
+import com.toshi.model.network.ServerTime
+import com.toshi.util.logging.LogUtil
+import com.toshi.util.sharedPrefs.AppPrefs
+import com.toshi.util.sharedPrefs.AppPrefsInterface
+import rx.Single
+import rx.schedulers.Schedulers
+import java.util.Date
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Keeps track of the difference between the local clock and the server clock, so signed
+ * requests can be stamped locally instead of asking the server for the time first.
+ *
+ * The offset is learnt from [ServerTime] responses and from the Date header of signed
+ * responses, and persisted between launches. A persisted offset is used straight away
+ * but refreshed in the background, as is an offset older than [REFRESH_INTERVAL_MS].
+ */
+class ServerClock(
+        private val appPrefs: AppPrefsInterface,
+        private val currentTimeMillis: () -> Long = { System.currentTimeMillis() }
+) {
+
+    companion object {
+        private val REFRESH_INTERVAL_MS = TimeUnit.MINUTES.toMillis(30)
+        // The Date header only has second precision, so smaller differences are noise
+        private val DATE_HEADER_TOLERANCE_MS = TimeUnit.SECONDS.toMillis(2)
+        private val instance by lazy { ServerClock(AppPrefs) }
+
+        @JvmStatic
+        fun get() = instance
+    }
+
+    @Volatile private var offsetMillis: Long? = null
+    @Volatile private var hasLoadedOffset = false
+    @Volatile private var lastSyncMillis = 0L
+    private val isRefreshing = AtomicBoolean(false)
+
+    /**
+     * Returns the server time, fetching it with [serverTime] only if the offset is not known yet.
+     */
+    fun getTimestamp(serverTime: Single<ServerTime>): Single<ServerTime> {
+        if (getOffsetMillis() == null) return syncWith(serverTime)
+        if (isStale()) refreshInBackground(serverTime)
+        return Single.just(ServerTime(nowSeconds()))
+    }
+
+    fun isSynced() = getOffsetMillis() != null
+
+    fun nowSeconds(): Long = TimeUnit.MILLISECONDS.toSeconds(currentTimeMillis() + (getOffsetMillis() ?: 0))
+
+    /**
+     * Learns the offset from a [ServerTime] in seconds, assuming the server read its clock
+     * halfway through the round trip.
+     */
+    fun onServerTime(serverSeconds: Long, sentAtMillis: Long, receivedAtMillis: Long) {
+        // The server truncates to whole seconds, so aim for the middle of that second
+        val serverMillis = TimeUnit.SECONDS.toMillis(serverSeconds) + 500
+        setOffsetMillis(serverMillis - (sentAtMillis + receivedAtMillis) / 2)
+    }
+
+    /**
+     * Learns the offset from the Date header of a response, unless it agrees with the
+     * current offset to within the precision of the header.
+     *
+     * @return true if the offset was changed
+     */
+    fun onDateHeader(date: Date?, sentAtMillis: Long, receivedAtMillis: Long): Boolean {
+        if (date == null) return false
+        val newOffset = date.time + 500 - (sentAtMillis + receivedAtMillis) / 2
+        val currentOffset = getOffsetMillis()
+        if (currentOffset != null && Math.abs(newOffset - currentOffset) <= DATE_HEADER_TOLERANCE_MS) return false
+        setOffsetMillis(newOffset)
+        return true
+    }
+
+    private fun syncWith(serverTime: Single<ServerTime>): Single<ServerTime> {
+        return Single.defer {
+            val sentAt = currentTimeMillis()
+            serverTime.doOnSuccess { onServerTime(it.get(), sentAt, currentTimeMillis()) }
+        }
+    }
+
+    private fun refreshInBackground(serverTime: Single<ServerTime>) {
+        if (!isRefreshing.compareAndSet(false, true)) return
+        syncWith(serverTime)
+                .subscribeOn(Schedulers.io())
+                .doAfterTerminate { isRefreshing.set(false) }
+                .subscribe(
+                        { },
+                        { LogUtil.w("Unable to refresh server clock offset $it") }
+                )
+    }
+
+    private fun isStale() = currentTimeMillis() - lastSyncMillis > REFRESH_INTERVAL_MS
+
+    private fun getOffsetMillis(): Long? {
+        if (!hasLoadedOffset) {
+            offsetMillis = offsetMillis ?: appPrefs.getServerClockOffset()
+            hasLoadedOffset = true
+        }
+        return offsetMillis
+    }
+
+    private fun setOffsetMillis(offset: Long) {
+        offsetMillis = offset
+        hasLoadedOffset = true
+        lastSyncMillis = currentTimeMillis()
+        appPrefs.setServerClockOffset(offset)
+    }
+}
@@ -24,6 +24,7 @@ import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
 import com.bumptech.glide.load.model.ModelLoaderFactory;
 import com.bumptech.glide.module.GlideModule;
+import com.toshi.manager.network.HttpClientFactory;
 import com.toshi.manager.network.interceptor.LoggingInterceptor;
 import com.toshi.manager.network.interceptor.AppInfoUserAgentInterceptor;
 import com.toshi.view.BaseApplication;
@@ -33,7 +34,6 @@ import java.io.InputStream;
 
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 
 public class GlideOkHttpStack implements GlideModule {
 
@@ -48,10 +48,10 @@ public class GlideOkHttpStack implements GlideModule {
         final Cache cache = new Cache(cacheDir, MAX_SIZE);
 
         final OkHttpClient client =
-                new OkHttpClient().newBuilder()
+                HttpClientFactory.INSTANCE.newBuilder()
                 .cache(cache)
                 .addInterceptor(new AppInfoUserAgentInterceptor())
-                .addInterceptor(new HttpLoggingInterceptor(new LoggingInterceptor()).setLevel(HttpLoggingInterceptor.Level.BODY))
+                .addInterceptor(new LoggingInterceptor())
                 .build();
 
 
@@ -17,14 +17,117 @@
 
 package com.toshi.manager.network.interceptor;
 
+import com.toshi.BuildConfig;
 import com.toshi.util.logging.LogUtil;
 
-import okhttp3.logging.HttpLoggingInterceptor;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+/**
+ * Logs one line per request with its timing and size. At {@link Level#BODY} the bodies of
+ * text requests and responses are logged as well, truncated to a byte cap. Response bodies
+ * are peeked, so nothing beyond the cap is buffered, and binary bodies are never read.
+ * The level comes from the build type unless one is given.
+ */
+public class LoggingInterceptor implements Interceptor {
+
+    public enum Level { NONE, BASIC, BODY }
+
+    private static final long DEFAULT_MAX_BODY_BYTES = 4 * 1024;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Level level;
+    private final long maxBodyBytes;
+
+    public LoggingInterceptor() {
+        this(Level.valueOf(BuildConfig.HTTP_LOG_LEVEL), DEFAULT_MAX_BODY_BYTES);
+    }
+
+    public LoggingInterceptor(final Level level, final long maxBodyBytes) {
+        this.level = level;
+        this.maxBodyBytes = maxBodyBytes;
+    }
 
-public class LoggingInterceptor implements HttpLoggingInterceptor.Logger {
     @Override
-    public void log(final String message) {
-        LogUtil.print(message);
+    public Response intercept(final Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (this.level == Level.NONE) return chain.proceed(request);
+
+        final String requestLine = request.method() + " " + request.url();
+        final RequestBody requestBody = request.body();
+        final long requestSize = requestBody != null ? requestBody.contentLength() : 0;
+        LogUtil.print("--> " + requestLine + " (" + describeSize(requestSize) + ")");
+        if (this.level == Level.BODY && requestBody != null) logRequestBody(requestBody);
+
+        final long startNs = System.nanoTime();
+        final Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (final IOException ex) {
+            LogUtil.print("<-- HTTP FAILED " + requestLine + " after " + millisSince(startNs) + "ms: " + ex);
+            throw ex;
+        }
+
+        final ResponseBody responseBody = response.body();
+        final long responseSize = responseBody != null ? responseBody.contentLength() : 0;
+        LogUtil.print("<-- " + response.code() + " " + requestLine
+                + " in " + millisSince(startNs) + "ms (" + describeSize(responseSize) + ")");
+        if (this.level == Level.BODY && responseBody != null) logResponseBody(response, responseBody);
+
+        return response;
+    }
+
+    private void logRequestBody(final RequestBody requestBody) throws IOException {
+        final long contentLength = requestBody.contentLength();
+        if (!isText(requestBody.contentType()) || contentLength < 0) return;
+        if (contentLength > this.maxBodyBytes) {
+            LogUtil.print("(request body of " + describeSize(contentLength) + " omitted)");
+            return;
+        }
+
+        final Buffer buffer = new Buffer();
+        requestBody.writeTo(buffer);
+        LogUtil.print(buffer.readString(charsetOf(requestBody.contentType())));
+    }
+
+    private void logResponseBody(final Response response, final ResponseBody responseBody) throws IOException {
+        if (!isText(responseBody.contentType())) return;
+        final ResponseBody peekedBody = response.peekBody(this.maxBodyBytes);
+        final long peekedSize = peekedBody.contentLength();
+        final String body = peekedBody.source().readString(charsetOf(responseBody.contentType()));
+        final long contentLength = responseBody.contentLength();
+        final boolean isTruncated = contentLength > peekedSize || (contentLength < 0 && peekedSize == this.maxBodyBytes);
+        LogUtil.print(isTruncated ? body + "… (truncated)" : body);
+    }
+
+    private static boolean isText(final MediaType contentType) {
+        if (contentType == null) return false;
+        if ("text".equals(contentType.type())) return true;
+        final String subtype = contentType.subtype();
+        return subtype.contains("json")
+                || subtype.contains("xml")
+                || subtype.contains("javascript")
+                || subtype.equals("x-www-form-urlencoded");
+    }
+
+    private static Charset charsetOf(final MediaType contentType) {
+        return contentType != null ? contentType.charset(UTF8) : UTF8;
+    }
+
+    private static long millisSince(final long startNs) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+    }
+
+    private static String describeSize(final long bytes) {
+        return bytes < 0 ? "unknown size" : bytes + " bytes";
     }
 }
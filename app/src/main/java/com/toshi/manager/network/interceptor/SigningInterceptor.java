@@ -18,26 +18,58 @@
 package com.toshi.manager.network.interceptor;
 
 
+import android.support.annotation.Nullable;
 import android.util.Base64;
 
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.Moshi;
 import com.toshi.crypto.HDWallet;
 import com.toshi.crypto.util.HashUtil;
-import com.toshi.view.BaseApplication;
+import com.toshi.manager.network.ServerClock;
+import com.toshi.model.network.ServerTime;
+import com.toshi.util.logging.LogUtil;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
+import okhttp3.CacheControl;
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import okio.Buffer;
 
+/**
+ * Signs requests that have a timestamp argument with the current wallet.
+ *
+ * If the server rejects the timestamp, the request is signed again once the clock is corrected,
+ * either from the Date header or by asking the service for its time at {@code timestampPath}.
+ * Services without a timestamp endpoint pass null and only retry when the Date header corrects it.
+ * All services share the single {@link ServerClock} offset, which assumes their clocks agree.
+ */
 public class SigningInterceptor implements Interceptor {
 
+    // Published by ToshiManager whenever the wallet changes, so signing never waits for it
+    private static final AtomicReference<HDWallet> currentWallet = new AtomicReference<>();
+
+    public static void setWallet(@Nullable final HDWallet wallet) {
+        currentWallet.set(wallet);
+    }
+
     private final String TIMESTAMP_QUERY_PARAMETER = "timestamp";
     private final String ADDRESS_HEADER = "Toshi-ID-Address";
     private final String SIGNATURE_HEADER = "Toshi-Signature";
     private final String TIMESTAMP_HEADER = "Toshi-Timestamp";
+    private final String INVALID_TIMESTAMP_ERROR = "invalid_timestamp";
+    private final long MAX_ERROR_BODY_BYTES = 1024;
+    private final JsonAdapter<ServerTime> serverTimeAdapter = new Moshi.Builder().build().adapter(ServerTime.class);
+    private final @Nullable String timestampPath;
+
+    public SigningInterceptor(@Nullable final String timestampPath) {
+        this.timestampPath = timestampPath;
+    }
 
     @Override
     public Response intercept(final Chain chain) throws IOException {
@@ -48,32 +80,52 @@ public class SigningInterceptor implements Interceptor {
             return chain.proceed(original);
         }
 
-        final HDWallet wallet = getWallet();
+        final HDWallet wallet = currentWallet.get();
         if (wallet == null) {
-            // Only signing outgoing requests that have a timestamp argument
-            return chain.proceed(original);
+            // Sending it unsigned would only get a 401, so fail it the way callers already handle
+            throw new IOException("No wallet to sign " + original.url().encodedPath() + " with");
         }
 
+        final String encodedBody = encodeBody(original);
+        final long sentAt = System.currentTimeMillis();
+        final Response response = chain.proceed(sign(original, wallet, timestamp, encodedBody));
+        final boolean hasClockChanged = isFromNetwork(response)
+                && ServerClock.get().onDateHeader(response.headers().getDate("Date"), sentAt, System.currentTimeMillis());
+        if (!isTimestampRejected(response, hasClockChanged)) return response;
+
+        // Unless the Date header has already corrected the clock, ask the server for its time,
+        // as signing again with the same offset would be rejected the same way
+        if (!hasClockChanged && !resyncServerClock(chain, original)) return response;
+        final String correctedTimestamp = String.valueOf(ServerClock.get().nowSeconds());
+        LogUtil.w("Timestamp " + timestamp + " was rejected, retrying with " + correctedTimestamp);
+        response.close();
+        return chain.proceed(sign(original, wallet, correctedTimestamp, encodedBody));
+    }
+
+    private String encodeBody(final Request original) throws IOException {
+        if (original.body() == null) return "";
         final Buffer buffer = new Buffer();
+        original.body().writeTo(buffer);
+        final byte[] body = buffer.readByteArray();
+        final byte[] hashedBody = HashUtil.sha3(body);
+        return Base64.encodeToString(hashedBody, Base64.NO_WRAP);
+    }
+
+    private Request sign(final Request original,
+                         final HDWallet wallet,
+                         final String timestamp,
+                         final String encodedBody) {
         final String method = original.method();
         final String path = original.url().encodedPath();
-        String encodedBody = "";
-        if (original.body() != null) {
-            original.body().writeTo(buffer);
-            final byte[] body = buffer.readByteArray();
-            final byte[] hashedBody = HashUtil.sha3(body);
-            encodedBody = Base64.encodeToString(hashedBody, Base64.NO_WRAP);
-        }
-
         final String forSigning = method + "\n" + path + "\n" + timestamp + "\n" + encodedBody;
         final String signature = wallet.signIdentity(forSigning);
 
-        final HttpUrl url = chain.request().url()
+        final HttpUrl url = original.url()
                 .newBuilder()
                 .removeAllQueryParameters(TIMESTAMP_QUERY_PARAMETER)
                 .build();
 
-        final Request request = original.newBuilder()
+        return original.newBuilder()
                 .removeHeader(TIMESTAMP_QUERY_PARAMETER)
                 .method(original.method(), original.body())
                 .addHeader(TIMESTAMP_HEADER, timestamp)
@@ -81,17 +133,51 @@ public class SigningInterceptor implements Interceptor {
                 .addHeader(ADDRESS_HEADER, wallet.getOwnerAddress())
                 .url(url)
                 .build();
+    }
+
+    // A cached response carries the Date of when it was first fetched, so it says nothing about the clock
+    private boolean isFromNetwork(final Response response) {
+        return response.networkResponse() != null && response.cacheResponse() == null;
+    }
+
+    private boolean resyncServerClock(final Chain chain, final Request original) {
+        if (this.timestampPath == null) return false;
+        final HttpUrl url = original.url()
+                .newBuilder()
+                .encodedPath(this.timestampPath)
+                .query(null)
+                .build();
+        final Request request = new Request.Builder()
+                .url(url)
+                .cacheControl(CacheControl.FORCE_NETWORK)
+                .build();
 
-        return chain.proceed(request);
+        final long sentAt = System.currentTimeMillis();
+        Response response = null;
+        try {
+            response = chain.proceed(request);
+            final ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                LogUtil.w("Unable to resync server clock, got " + response.code());
+                return false;
+            }
+            final ServerTime serverTime = serverTimeAdapter.fromJson(body.source());
+            if (serverTime == null) return false;
+            ServerClock.get().onServerTime(serverTime.get(), sentAt, System.currentTimeMillis());
+            return true;
+        } catch (final IOException | JsonDataException ex) {
+            LogUtil.w("Unable to resync server clock " + ex);
+            return false;
+        } finally {
+            if (response != null) response.close();
+        }
     }
 
-    public HDWallet getWallet() {
-            return BaseApplication
-                    .get()
-                    .getToshiManager()
-                    .getWallet()
-                    .onErrorReturn(__ -> null)
-                    .toBlocking()
-                    .value();
+    // A rejection only counts as skew if the server says so, or if our clock turned out to be off
+    private boolean isTimestampRejected(final Response response, final boolean hasClockChanged) throws IOException {
+        if (response.code() != 400 && response.code() != 401) return false;
+        if (hasClockChanged) return true;
+        final String errorBody = response.peekBody(MAX_ERROR_BODY_BYTES).string();
+        return errorBody.contains(INVALID_TIMESTAMP_ERROR);
     }
 }
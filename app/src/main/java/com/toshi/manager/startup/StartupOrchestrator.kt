@@ -0,0 +1,162 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.startup
+
+import android.support.v4.os.TraceCompat
+import com.toshi.manager.model.PhaseTiming
+import com.toshi.util.logging.LogUtil
+import rx.Completable
+import rx.Scheduler
+import rx.schedulers.Schedulers
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+/**
+ * Runs the [StartupPhase]s of the app in dependency order, running independent phases at the
+ * same time.
+ *
+ * [start] completes when every critical phase has finished, and fails if one of them failed,
+ * after the others have finished. Deferred phases are then started on [deferredScheduler].
+ *
+ * Every phase is timed and logged as one line, and the critical path is summarised once it
+ * finishes. The synchronous part of each phase, up to the point where it goes asynchronous,
+ * is also wrapped in a Systrace section called "Startup:<name>".
+ */
+class StartupOrchestrator(
+        private val phases: List<StartupPhase>,
+        private val deferredScheduler: Scheduler = Schedulers.io(),
+        private val nanoTime: () -> Long = { System.nanoTime() }
+) {
+
+    companion object {
+        private const val TRACE_SECTION_PREFIX = "Startup:"
+    }
+
+    private val phasesByName = phases.associateBy { it.name }
+    private val timings = CopyOnWriteArrayList<PhaseTiming>()
+
+    init {
+        validatePhases()
+    }
+
+    fun getTimings(): List<PhaseTiming> = timings.toList()
+
+    fun start(): Completable {
+        return Completable.defer {
+            timings.clear()
+            val startNanos = nanoTime()
+            val runningPhases = HashMap<String, Completable>()
+            val criticalPhases = phases
+                    .filter { !it.isDeferred }
+                    .map { getPhase(it, runningPhases, startNanos) }
+            Completable.mergeDelayError(criticalPhases)
+                    .doOnTerminate {
+                        logCriticalPath(startNanos)
+                        startDeferredPhases(runningPhases, startNanos)
+                    }
+        }
+    }
+
+    private fun startDeferredPhases(runningPhases: MutableMap<String, Completable>, startNanos: Long) {
+        val deferredPhases = phases
+                .filter { it.isDeferred }
+                .map { getPhase(it, runningPhases, startNanos) }
+        Completable.mergeDelayError(deferredPhases)
+                .subscribeOn(deferredScheduler)
+                .subscribe(
+                        { },
+                        { LogUtil.exception("Error while running deferred startup phases", it) }
+                )
+    }
+
+    // Every phase runs once, however many phases depend on it
+    private fun getPhase(phase: StartupPhase,
+                         runningPhases: MutableMap<String, Completable>,
+                         startNanos: Long): Completable {
+        runningPhases[phase.name]?.let { return it }
+        val dependencies = phase.dependencies.map { getPhase(phasesByName.getValue(it), runningPhases, startNanos) }
+        val runningPhase = Completable.merge(dependencies)
+                .andThen(Completable.defer { runPhase(phase, startNanos) })
+                .toObservable<Any>()
+                .cache()
+                .toCompletable()
+        runningPhases[phase.name] = runningPhase
+        return runningPhase
+    }
+
+    private fun runPhase(phase: StartupPhase, startNanos: Long): Completable {
+        val phaseStartNanos = nanoTime()
+        val tracedPhase = Completable.create { subscriber ->
+            TraceCompat.beginSection(TRACE_SECTION_PREFIX + phase.name)
+            try {
+                Completable.defer { phase.task() }.subscribe(subscriber)
+            } finally {
+                TraceCompat.endSection()
+            }
+        }
+        return tracedPhase
+                .doOnCompleted { addTiming(phase, startNanos, phaseStartNanos, null) }
+                .doOnError { addTiming(phase, startNanos, phaseStartNanos, it) }
+                .let { if (phase.ignoreErrors) it.onErrorComplete() else it }
+    }
+
+    private fun addTiming(phase: StartupPhase, startNanos: Long, phaseStartNanos: Long, error: Throwable?) {
+        val timing = PhaseTiming(
+                name = phase.name,
+                isDeferred = phase.isDeferred,
+                startMillis = toMillis(phaseStartNanos - startNanos),
+                durationMillis = toMillis(nanoTime() - phaseStartNanos),
+                error = error
+        )
+        timings.add(timing)
+        LogUtil.i("Startup $timing")
+    }
+
+    private fun logCriticalPath(startNanos: Long) {
+        val phaseDurations = timings
+                .filter { !it.isDeferred }
+                .joinToString(separator = ", ") { "${it.name}=${it.durationMillis}ms" }
+        LogUtil.i("Startup critical path took ${toMillis(nanoTime() - startNanos)}ms: $phaseDurations")
+    }
+
+    private fun toMillis(nanos: Long) = TimeUnit.NANOSECONDS.toMillis(nanos)
+
+    @Throws(IllegalStateException::class)
+    private fun validatePhases() {
+        if (phasesByName.size != phases.size) throw IllegalStateException("Startup phase names must be unique")
+        phases.forEach { phase ->
+            phase.dependencies.forEach {
+                val dependency = phasesByName[it]
+                        ?: throw IllegalStateException("Startup phase ${phase.name} depends on unknown phase $it")
+                if (!phase.isDeferred && dependency.isDeferred) {
+                    throw IllegalStateException("Critical startup phase ${phase.name} depends on deferred phase $it")
+                }
+            }
+        }
+        val visitedPhases = HashSet<String>()
+        phases.forEach { checkForCycles(it, visitedPhases, LinkedHashSet()) }
+    }
+
+    private fun checkForCycles(phase: StartupPhase, visitedPhases: MutableSet<String>, path: MutableSet<String>) {
+        if (!path.add(phase.name)) throw IllegalStateException("Startup phases have a cycle: ${path.joinToString(" -> ")} -> ${phase.name}")
+        if (visitedPhases.add(phase.name)) {
+            phase.dependencies.forEach { checkForCycles(phasesByName.getValue(it), visitedPhases, path) }
+        }
+        path.remove(phase.name)
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.startup
+
+import rx.Completable
+
+/**
+ * One step of starting the app.
+ *
+ * A phase starts once all of its [dependencies] have finished. Critical phases make up the
+ * path to a usable app, deferred phases only start after that path has finished. If
+ * [ignoreErrors] is set a failure is logged, and counts as finished for the phases after it.
+ */
+class StartupPhase(
+        val name: String,
+        val dependencies: List<String> = emptyList(),
+        val isDeferred: Boolean = false,
+        val ignoreErrors: Boolean = false,
+        val task: () -> Completable
+)
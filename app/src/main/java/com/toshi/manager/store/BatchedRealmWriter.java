@@ -0,0 +1,197 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.store;
+
+
+import com.toshi.util.logging.LogUtil;
+import com.toshi.view.BaseApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.realm.Realm;
+import rx.Single;
+import rx.SingleSubscriber;
+
+/**
+ * Coalesces Realm writes into as few transactions as possible.
+ * <p>
+ * Writes are queued and drained on the given executor. Everything that is queued when a drain
+ * starts is executed in a single transaction, bounded by {@link #MAX_BATCH_SIZE} writes and
+ * {@link #MAX_BATCH_DURATION_MS} of work. Subscribers are only notified after the transaction
+ * has been committed, so broadcasts made from {@code doOnSuccess} never see uncommitted data.
+ */
+public class BatchedRealmWriter {
+
+    public interface Write<T> {
+        T execute(final Realm realm);
+    }
+
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final long MAX_BATCH_DURATION_MS = 250;
+
+    private final Executor executor;
+    private final Queue<PendingWrite<?>> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isDrainScheduled = new AtomicBoolean(false);
+    private final AtomicLong commitCount = new AtomicLong(0);
+    private final AtomicLong writeCount = new AtomicLong(0);
+    private volatile int largestBatchSize = 0;
+
+    public BatchedRealmWriter(final Executor executor) {
+        this.executor = executor;
+    }
+
+    public <T> Single<T> write(final Write<T> write) {
+        return Single.create(subscriber -> {
+            this.pendingWrites.add(new PendingWrite<>(write, subscriber));
+            scheduleDrain();
+        });
+    }
+
+    // Writes can be queued while the app is starting, so only drain once the database is ready
+    private void scheduleDrain() {
+        if (!this.isDrainScheduled.compareAndSet(false, true)) return;
+        BaseApplication
+                .get()
+                .getToshiManager()
+                .getRealmConfiguration()
+                .subscribe(
+                        __ -> this.executor.execute(this::drain),
+                        this::failPendingWrites
+                );
+    }
+
+    private void drain() {
+        this.isDrainScheduled.set(false);
+        final List<PendingWrite<?>> batch = new ArrayList<>();
+        final Realm realm;
+        try {
+            realm = BaseApplication.get().getRealm();
+        } catch (final RuntimeException ex) {
+            // The database couldn't be opened; fail the writes instead of leaving them hanging
+            LogUtil.w("Unable to open Realm for batched writes. " + ex);
+            failPendingWrites(ex);
+            return;
+        }
+
+        try {
+            executeBatch(realm, batch);
+        } finally {
+            realm.close();
+        }
+
+        if (!this.pendingWrites.isEmpty()) scheduleDrain();
+    }
+
+    private void failPendingWrites(final Throwable throwable) {
+        PendingWrite<?> pendingWrite;
+        while ((pendingWrite = this.pendingWrites.poll()) != null) {
+            pendingWrite.notifyError(throwable);
+        }
+    }
+
+    private void executeBatch(final Realm realm, final List<PendingWrite<?>> batch) {
+        final long start = System.currentTimeMillis();
+        realm.beginTransaction();
+        try {
+            while (batch.size() < MAX_BATCH_SIZE && System.currentTimeMillis() - start < MAX_BATCH_DURATION_MS) {
+                final PendingWrite<?> pendingWrite = this.pendingWrites.poll();
+                if (pendingWrite == null) break;
+                batch.add(pendingWrite);
+                pendingWrite.execute(realm);
+            }
+            realm.commitTransaction();
+        } catch (final Exception ex) {
+            realm.cancelTransaction();
+            LogUtil.w("Batched write failed, retrying " + batch.size() + " writes one by one. " + ex);
+            executeIndividually(realm, batch);
+            return;
+        }
+
+        recordCommit(batch.size());
+        for (final PendingWrite<?> pendingWrite : batch) pendingWrite.notifySuccess();
+    }
+
+    // Isolates the failing write so the rest of the batch still gets committed
+    private void executeIndividually(final Realm realm, final List<PendingWrite<?>> batch) {
+        for (final PendingWrite<?> pendingWrite : batch) {
+            realm.beginTransaction();
+            try {
+                pendingWrite.execute(realm);
+                realm.commitTransaction();
+            } catch (final Exception ex) {
+                realm.cancelTransaction();
+                pendingWrite.notifyError(ex);
+                continue;
+            }
+            recordCommit(1);
+            pendingWrite.notifySuccess();
+        }
+    }
+
+    private void recordCommit(final int batchSize) {
+        if (batchSize == 0) return;
+        final long commits = this.commitCount.incrementAndGet();
+        final long writes = this.writeCount.addAndGet(batchSize);
+        if (batchSize > this.largestBatchSize) this.largestBatchSize = batchSize;
+        if (batchSize > 1) {
+            LogUtil.d("Committed " + batchSize + " writes in one transaction. "
+                    + "Commits: " + commits + ", writes: " + writes + ", largest batch: " + this.largestBatchSize);
+        }
+    }
+
+    public long getCommitCount() {
+        return this.commitCount.get();
+    }
+
+    public long getWriteCount() {
+        return this.writeCount.get();
+    }
+
+    public int getLargestBatchSize() {
+        return this.largestBatchSize;
+    }
+
+    private static class PendingWrite<T> {
+        private final Write<T> write;
+        private final SingleSubscriber<? super T> subscriber;
+        private T result;
+
+        private PendingWrite(final Write<T> write, final SingleSubscriber<? super T> subscriber) {
+            this.write = write;
+            this.subscriber = subscriber;
+        }
+
+        private void execute(final Realm realm) {
+            this.result = this.write.execute(realm);
+        }
+
+        private void notifySuccess() {
+            if (!this.subscriber.isUnsubscribed()) this.subscriber.onSuccess(this.result);
+        }
+
+        private void notifyError(final Throwable throwable) {
+            if (!this.subscriber.isUnsubscribed()) this.subscriber.onError(throwable);
+        }
+    }
+}
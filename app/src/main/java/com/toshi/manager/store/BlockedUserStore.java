@@ -21,15 +21,22 @@ import com.toshi.model.local.BlockedUser;
 import com.toshi.view.BaseApplication;
 
 import io.realm.Realm;
+import io.realm.RealmConfiguration;
 import rx.Single;
 
 public class BlockedUserStore {
 
     public Single<Boolean> isBlocked(final String address) {
-        return Single.fromCallable(() -> loadWhere("owner_address", address))
+        return whenRealmReady()
+                .flatMap(__ -> Single.fromCallable(() -> loadWhere("owner_address", address)))
                 .map(blockedUser -> blockedUser != null);
     }
 
+    // Incoming push messages check this, which can happen before the database is ready
+    private Single<RealmConfiguration> whenRealmReady() {
+        return BaseApplication.get().getToshiManager().getRealmConfiguration();
+    }
+
     private BlockedUser loadWhere(final String fieldName, final String value) {
         final Realm realm = BaseApplication.get().getRealm();
         final BlockedUser user =
@@ -25,10 +25,14 @@ import com.toshi.extensions.SofaMessageUtil;
 import com.toshi.model.local.Avatar;
 import com.toshi.model.local.Conversation;
 import com.toshi.model.local.ConversationObservables;
+import com.toshi.model.local.ConversationStatus;
+import com.toshi.model.local.ConversationSummary;
 import com.toshi.model.local.Group;
+import com.toshi.model.local.MessagePage;
 import com.toshi.model.local.Recipient;
 import com.toshi.model.local.User;
 import com.toshi.model.sofa.SofaMessage;
+import com.toshi.model.sofa.SofaType;
 import com.toshi.util.logging.LogUtil;
 import com.toshi.util.statusMessage.StatusMessageBuilder;
 import com.toshi.view.BaseApplication;
@@ -36,17 +40,18 @@ import com.toshi.view.BaseApplication;
 import org.jetbrains.annotations.NotNull;
 import org.whispersystems.signalservice.api.messages.SignalServiceGroup;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import io.realm.Realm;
+import io.realm.RealmList;
 import io.realm.RealmQuery;
 import io.realm.RealmResults;
 import io.realm.Sort;
 import rx.Completable;
 import rx.Observable;
 import rx.Single;
+import rx.functions.Action1;
 import rx.schedulers.Schedulers;
 import rx.subjects.PublishSubject;
 
@@ -62,7 +67,8 @@ public class ConversationStore {
     private final static PublishSubject<SofaMessage> DELETED_MESSAGE_SUBJECT = PublishSubject.create();
     private final static PublishSubject<Conversation> CONVERSATION_CHANGED_SUBJECT = PublishSubject.create();
     private final static PublishSubject<Conversation> CONVERSATION_UPDATED_SUBJECT = PublishSubject.create();
-    private final static ExecutorService dbThread = Executors.newSingleThreadExecutor();
+    private final static RealmStoreExecutor dbThread = new RealmStoreExecutor();
+    private final static BatchedRealmWriter dbWriter = new BatchedRealmWriter(dbThread);
 
 
     //##############################################################################################
@@ -112,47 +118,35 @@ public class ConversationStore {
     }
 
     public Single<Conversation> createEmptyConversation(final Recipient recipient) {
-        return Single.fromCallable(() -> {
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
+        return dbWriter.write(realm -> {
             final Conversation conversation = new Conversation(recipient);
             conversation.getConversationStatus().setAccepted(true);
             realm.copyToRealmOrUpdate(conversation);
-            realm.commitTransaction();
-            realm.close();
             return conversation;
         })
-        .subscribeOn(Schedulers.from(dbThread))
         .doOnError(throwable -> handleError(throwable, "Error while creating empty conversation"));
     }
 
     private Single<Conversation> copyOrUpdateGroup(@NonNull final Group group) {
-        return Single.fromCallable(() -> {
-            final Conversation conversationToStore = getOrCreateConversation(group);
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
-            conversationToStore.updateRecipient(new Recipient(group));
-            final Conversation storedConversation = realm.copyToRealmOrUpdate(conversationToStore);
-            realm.commitTransaction();
-            final Conversation conversationForBroadcast = realm.copyFromRealm(storedConversation);
-            realm.close();
-            return conversationForBroadcast;
+        return dbWriter.write(realm -> {
+            final Recipient storedRecipient = realm.copyToRealmOrUpdate(new Recipient(group));
+            final Conversation storedConversation = getOrCreateConversation(realm, storedRecipient);
+            storedConversation.updateRecipient(storedRecipient);
+            return copyHeaderFromRealm(realm, storedConversation);
         })
-        .subscribeOn(Schedulers.from(dbThread))
         .doOnError(throwable -> handleError(throwable, "Error while updating group"));
     }
 
+    // Must be called inside a transaction. Returns the managed conversation so that
+    // the message list is modified in place instead of being copied in and out of Realm.
     @NonNull
-    private Conversation getOrCreateConversation(final Group group) {
-        final Recipient recipient = new Recipient(group);
-        return getOrCreateConversation(recipient);
-    }
-
-    @NonNull
-    private Conversation getOrCreateConversation(final Recipient recipient) {
-        final Conversation existingConversation = loadWhere(THREAD_ID_FIELD, recipient.getThreadId());
+    private Conversation getOrCreateConversation(final Realm realm, final Recipient recipient) {
+        final Conversation existingConversation = realm
+                .where(Conversation.class)
+                .equalTo(THREAD_ID_FIELD, recipient.getThreadId())
+                .findFirst();
         return existingConversation == null
-            ? new Conversation(recipient)
+            ? realm.copyToRealmOrUpdate(new Conversation(recipient))
             : existingConversation;
     }
 
@@ -182,75 +176,63 @@ public class ConversationStore {
     private Single<Conversation> saveMessage(
         @NonNull final Recipient receiver,
         @Nullable final SofaMessage message) {
-        return Single.fromCallable(() -> {
-            final Conversation conversationToStore = getOrCreateConversation(receiver);
-
-            if (message != null && shouldSaveTimestampMessage(message, conversationToStore)) {
-                final SofaMessage timestampMessage = generateTimestampMessage();
-                conversationToStore.addMessage(timestampMessage);
-                broadcastNewChatMessage(receiver.getThreadId(), timestampMessage);
-            }
-
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
-
-            if (message != null) {
-                final SofaMessage storedMessage = realm.copyToRealmOrUpdate(message);
-                final boolean updateUnreadCounter = !conversationToStore.getThreadId().equals(watchedThreadId)
-                    && !SofaMessageUtil.isLocalStatusMessage(storedMessage);
-                if (updateUnreadCounter) conversationToStore.setLatestMessageAndUpdateUnreadCounter(storedMessage);
-                else conversationToStore.setLatestMessage(storedMessage);
-                broadcastNewChatMessage(receiver.getThreadId(), message);
-            }
-
-            final Conversation storedConversation = realm.copyToRealmOrUpdate(conversationToStore);
-            realm.commitTransaction();
-            final Conversation conversationForBroadcast = realm.copyFromRealm(storedConversation);
-            realm.close();
-
-            return conversationForBroadcast;
+        return Single.defer(() -> {
+            // Messages are broadcast once the batch containing them has been committed
+            final List<SofaMessage> newMessages = new ArrayList<>(2);
+            return dbWriter.write(realm -> {
+                // A write can be retried if another write in its batch failed
+                newMessages.clear();
+                final Conversation storedConversation = getOrCreateConversation(realm, receiver);
+
+                if (message != null && shouldSaveTimestampMessage(message, storedConversation)) {
+                    final SofaMessage timestampMessage = generateTimestampMessage();
+                    storedConversation.addMessage(realm.copyToRealmOrUpdate(timestampMessage));
+                    newMessages.add(timestampMessage);
+                }
+
+                if (message != null) {
+                    final SofaMessage storedMessage = realm.copyToRealmOrUpdate(message);
+                    final boolean updateUnreadCounter = !storedConversation.getThreadId().equals(watchedThreadId)
+                        && !SofaMessageUtil.isLocalStatusMessage(storedMessage);
+                    if (updateUnreadCounter) storedConversation.setLatestMessageAndUpdateUnreadCounter(storedMessage);
+                    else storedConversation.setLatestMessage(storedMessage);
+                    newMessages.add(message);
+                }
+
+                return copyHeaderFromRealm(realm, storedConversation);
+            })
+            .doOnSuccess(__ -> {
+                for (final SofaMessage newMessage : newMessages) {
+                    broadcastNewChatMessage(receiver.getThreadId(), newMessage);
+                }
+            });
         })
-        .subscribeOn(Schedulers.from(dbThread))
         .doOnError(throwable -> handleError(throwable, "Error while saving new message"));
     }
 
     public void updateMessage(final Recipient receiver, final SofaMessage message) {
-        Completable.fromAction(() -> {
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
+        dbWriter.write(realm -> {
             realm.insertOrUpdate(message);
-            realm.commitTransaction();
-            realm.close();
+            return message;
         })
-        .observeOn(Schedulers.immediate())
-        .subscribeOn(Schedulers.from(dbThread))
+        .toCompletable()
         .subscribe(
                 () -> broadcastUpdatedChatMessage(receiver.getThreadId(), message),
                 throwable -> handleError(throwable, "Error while updating message")
         );
     }
 
-    private Completable updateLatestMessage(final String threadId) {
-        return Completable.fromAction(() -> {
-            final Realm realm = BaseApplication.get().getRealm();
-            final Conversation conversation = realm
-                .where(Conversation.class)
-                .equalTo(THREAD_ID_FIELD, threadId)
-                .findFirst();
-            if (conversation == null) {
-                realm.close();
-                return;
-            }
-            if (conversation.getAllMessages() != null && conversation.getAllMessages().size() > 0) {
-                final SofaMessage lastMessage = conversation.getAllMessages().get(conversation.getAllMessages().size() - 1);
-                realm.beginTransaction();
-                conversation.updateLatestMessage(lastMessage);
-                realm.commitTransaction();
-            }
-            realm.close();
-        })
-        .subscribeOn(Schedulers.from(dbThread))
-        .doOnError(throwable -> handleError(throwable, "Error while updating latest message"));
+    // Must be called inside a transaction
+    private void updateLatestMessage(final Realm realm, final String threadId) {
+        final Conversation conversation = realm
+            .where(Conversation.class)
+            .equalTo(THREAD_ID_FIELD, threadId)
+            .findFirst();
+        if (conversation == null) return;
+        final List<SofaMessage> allMessages = conversation.getAllMessages();
+        if (allMessages != null && allMessages.size() > 0) {
+            conversation.updateLatestMessage(allMessages.get(allMessages.size() - 1));
+        }
     }
 
     //##############################################################################################
@@ -365,7 +347,7 @@ public class ConversationStore {
     }
 
     private Single<List<Conversation>> loadAllConversations(final boolean isAccepted) {
-        return Single.fromCallable(() -> {
+        return dbThread.fromCallable(() -> {
             final Realm realm = BaseApplication.get().getRealm();
             final RealmQuery<Conversation> query =
                 realm.where(Conversation.class)
@@ -374,44 +356,140 @@ public class ConversationStore {
             final RealmResults<Conversation> results = query
                     .sort("updatedTime", Sort.DESCENDING)
                     .findAll();
-            final List<Conversation> allConversations = realm.copyFromRealm(results);
+            final List<Conversation> allConversations = new ArrayList<>(results.size());
+            for (final Conversation result : results) {
+                allConversations.add(copyHeaderFromRealm(realm, result));
+            }
             realm.close();
             return allConversations;
         })
-        .subscribeOn(Schedulers.from(dbThread))
         .doOnError(throwable -> handleError(throwable, "Error while loading all conversations"));
     }
 
+    /**
+     * Loads a summary of every conversation that has messages, accepted or not, newest first.
+     */
+    public Single<List<ConversationSummary>> loadAllConversationSummaries() {
+        return dbThread.fromCallable(() -> {
+            final Realm realm = BaseApplication.get().getRealm();
+            final RealmResults<Conversation> results = realm
+                    .where(Conversation.class)
+                    .isNotEmpty("allMessages")
+                    .sort("updatedTime", Sort.DESCENDING)
+                    .findAll();
+            final List<ConversationSummary> summaries = new ArrayList<>(results.size());
+            for (final Conversation result : results) {
+                summaries.add(ConversationSummary.from(copyHeaderFromRealm(realm, result)));
+            }
+            realm.close();
+            return summaries;
+        })
+        .doOnError(throwable -> handleError(throwable, "Error while loading conversation summaries"));
+    }
+
     public Single<Conversation> loadByThreadId(final String threadId) {
-        return Single.fromCallable(() -> loadWhere(THREAD_ID_FIELD, threadId))
-                .subscribeOn(Schedulers.from(dbThread))
+        return dbThread.fromCallable(() -> loadHeaderWhere(THREAD_ID_FIELD, threadId))
                 .doOnError(throwable -> handleError(throwable, "Error while loading thread by id"));
     }
 
-    private Conversation loadWhere(final String fieldName, final String value) {
+    /**
+     * Loads a window of messages from a conversation, ordered the same way they were stored.
+     *
+     * @param threadId      the id of the conversation
+     * @param beforeIndex   only messages stored before this position are returned; pass
+     *                      {@link Integer#MAX_VALUE} to load the newest messages
+     * @param limit         the maximum number of messages to return
+     * @return              the page of messages and the position of the first message in it
+     */
+    public Single<MessagePage> loadMessagesPage(final String threadId, final int beforeIndex, final int limit) {
+        return dbThread.fromCallable(() -> {
+            final Realm realm = BaseApplication.get().getRealm();
+            final Conversation result = realm
+                    .where(Conversation.class)
+                    .equalTo(THREAD_ID_FIELD, threadId)
+                    .findFirst();
+            if (result == null || result.getAllMessages() == null) {
+                realm.close();
+                return new MessagePage(new ArrayList<>(0), 0);
+            }
+
+            final RealmList<SofaMessage> allMessages = result.getAllMessages();
+            final int endIndex = Math.min(beforeIndex, allMessages.size());
+            final int startIndex = Math.max(0, endIndex - limit);
+            final List<SofaMessage> messages = realm.copyFromRealm(allMessages.subList(startIndex, endIndex));
+            realm.close();
+            return new MessagePage(messages, startIndex);
+        })
+        .doOnError(throwable -> handleError(throwable, "Error while loading messages page"));
+    }
+
+    /**
+     * Returns the user visible messages of a conversation as live, managed results, in the order
+     * they were stored, which is the order loadMessagesPage uses. Nothing is copied; the results can
+     * only be used on the thread of the given Realm, which must be a Looper thread for change
+     * listeners, and only until that Realm is closed.
+     *
+     * @param realm     a Realm owned by the caller
+     * @param threadId  the id of the conversation
+     * @return          the live results, or null if the conversation doesn't exist yet
+     */
+    @Nullable
+    public RealmResults<SofaMessage> loadLiveMessages(final Realm realm, final String threadId) {
+        final Conversation conversation = realm
+                .where(Conversation.class)
+                .equalTo(THREAD_ID_FIELD, threadId)
+                .findFirst();
+        if (conversation == null || conversation.getAllMessages() == null) return null;
+        return conversation
+                .getAllMessages()
+                .where()
+                .notEqualTo("type", SofaType.UNKNOWN)
+                .notEqualTo("type", SofaType.INIT)
+                .notEqualTo("type", SofaType.INIT_REQUEST)
+                .findAll();
+    }
+
+    @Nullable
+    private Conversation loadHeaderWhere(final String fieldName, final String value) {
         final Realm realm = BaseApplication.get().getRealm();
         final Conversation result = realm
             .where(Conversation.class)
             .equalTo(fieldName, value)
             .findFirst();
-        final Conversation queriedConversation = result == null ? null : realm.copyFromRealm(result);
+        final Conversation queriedConversation = result == null ? null : copyHeaderFromRealm(realm, result);
         realm.close();
         return queriedConversation;
     }
 
-    public boolean areUnreadMessages() {
-        final Realm realm = BaseApplication.get().getRealm();
-        final Conversation result = realm
-            .where(Conversation.class)
-            .greaterThan("numberOfUnread", 0)
-            .findFirst();
-        final boolean areUnreadMessages = result != null;
-        realm.close();
-        return areUnreadMessages;
+    // Copies everything but the message list, which can hold tens of thousands of messages.
+    // Use loadMessagesPage to read the messages of a conversation.
+    private Conversation copyHeaderFromRealm(final Realm realm, final Conversation managedConversation) {
+        final SofaMessage latestMessage = managedConversation.getLatestMessage();
+        final ConversationStatus conversationStatus = managedConversation.getConversationStatus();
+        return new Conversation(
+                realm.copyFromRealm(managedConversation.getRecipient()),
+                latestMessage == null ? null : realm.copyFromRealm(latestMessage),
+                managedConversation.getUpdatedTime(),
+                managedConversation.getNumberOfUnread(),
+                conversationStatus == null ? null : realm.copyFromRealm(conversationStatus)
+        );
+    }
+
+    public Single<Boolean> areUnreadMessages() {
+        return dbThread.fromCallable(() -> {
+            final Realm realm = BaseApplication.get().getRealm();
+            final Conversation result = realm
+                .where(Conversation.class)
+                .greaterThan("numberOfUnread", 0)
+                .findFirst();
+            final boolean areUnreadMessages = result != null;
+            realm.close();
+            return areUnreadMessages;
+        });
     }
 
     public Single<SofaMessage> getSofaMessageById(final String id) {
-        return Single.fromCallable(() -> {
+        return dbThread.fromCallable(() -> {
             final Realm realm = BaseApplication.get().getRealm();
             final SofaMessage result =
                 realm
@@ -422,7 +500,6 @@ public class ConversationStore {
             realm.close();
             return sofaMessage;
         })
-        .subscribeOn(Schedulers.from(dbThread))
         .doOnError(throwable -> handleError(throwable, "Error while getting message by id"));
     }
 
@@ -432,36 +509,29 @@ public class ConversationStore {
     //##############################################################################################
 
     public Completable deleteByThreadId(final String threadId) {
-        return Completable.fromAction(() -> {
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
+        return dbWriter.write(realm -> {
             final Conversation conversationToDelete = realm
                     .where(Conversation.class)
                     .equalTo(THREAD_ID_FIELD, threadId)
                     .findFirst();
             if (conversationToDelete != null) conversationToDelete.cascadeDelete();
-            realm.commitTransaction();
-            realm.close();
+            return threadId;
         })
-        .subscribeOn(Schedulers.from(dbThread))
+        .toCompletable()
         .doOnError(throwable -> handleError(throwable, "Error while deleting thread by id"));
     }
 
     public Completable deleteMessageById(final Recipient receiver, final SofaMessage message) {
-        return Completable.fromAction(() -> {
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
+        return dbWriter.write(realm -> {
             realm
                     .where(SofaMessage.class)
                     .equalTo(MESSAGE_ID_FIELD, message.getPrivateKey())
                     .findFirst()
                     .deleteFromRealm();
-            realm.commitTransaction();
-            realm.close();
+            updateLatestMessage(realm, receiver.getThreadId());
+            return message;
         })
-        .observeOn(Schedulers.immediate())
-        .subscribeOn(Schedulers.from(dbThread))
-        .andThen(updateLatestMessage(receiver.getThreadId()))
+        .toCompletable()
         .doOnCompleted(() -> broadcastDeletedChatMessage(receiver.getThreadId(), message))
         .doOnError(throwable -> handleError(throwable, "Error while deleting message by id"));
     }
@@ -471,50 +541,47 @@ public class ConversationStore {
     //##############################################################################################
 
     public Single<Conversation> muteConversation(final Conversation conversation, final boolean mute) {
-        return Single.fromCallable(() -> {
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
+        return updateConversationStatus(conversation.getThreadId(), status -> status.setMuted(mute))
+        .map(__ -> {
             conversation.getConversationStatus().setMuted(mute);
-            realm.copyToRealmOrUpdate(conversation);
-            realm.commitTransaction();
-            realm.close();
             return conversation;
         })
-        .subscribeOn(Schedulers.from(dbThread))
         .doOnError(throwable -> handleError(throwable, "Error while muting conversation"));
     }
 
     public Single<Conversation> acceptConversation(final Conversation conversation) {
-        return Single.fromCallable(() -> {
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
+        return updateConversationStatus(conversation.getThreadId(), status -> status.setAccepted(true))
+        .map(__ -> {
             conversation.getConversationStatus().setAccepted(true);
-            realm.copyToRealmOrUpdate(conversation);
-            realm.commitTransaction();
-            realm.close();
             return conversation;
         })
-        .subscribeOn(Schedulers.from(dbThread))
         .doOnError(throwable -> handleError(throwable, "Error while accepting conversation"));
     }
 
-    public void resetUnreadMessageCounter(final String threadId) {
-        Single.fromCallable(() -> {
-            final Conversation storedConversation = loadWhere(THREAD_ID_FIELD, threadId);
-            if (storedConversation == null) {
-                return null;
+    // Updates the stored status in place so the conversation's messages are never rewritten.
+    private Single<String> updateConversationStatus(final String threadId, final Action1<ConversationStatus> update) {
+        return dbWriter.write(realm -> {
+            final Conversation storedConversation = realm
+                    .where(Conversation.class)
+                    .equalTo(THREAD_ID_FIELD, threadId)
+                    .findFirst();
+            if (storedConversation != null && storedConversation.getConversationStatus() != null) {
+                update.call(storedConversation.getConversationStatus());
             }
+            return threadId;
+        });
+    }
 
-            final Realm realm = BaseApplication.get().getRealm();
-            realm.beginTransaction();
+    public void resetUnreadMessageCounter(final String threadId) {
+        dbWriter.write(realm -> {
+            final Conversation storedConversation = realm
+                    .where(Conversation.class)
+                    .equalTo(THREAD_ID_FIELD, threadId)
+                    .findFirst();
+            if (storedConversation == null) return null;
             storedConversation.resetUnreadCounter();
-            realm.insertOrUpdate(storedConversation);
-            realm.commitTransaction();
-            realm.close();
-            return storedConversation;
+            return copyHeaderFromRealm(realm, storedConversation);
         })
-        .observeOn(Schedulers.immediate())
-        .subscribeOn(Schedulers.from(dbThread))
         .subscribe(
                 this::broadcastConversationChanged,
                 throwable -> handleError(throwable, "Error while resetting unread message counter")
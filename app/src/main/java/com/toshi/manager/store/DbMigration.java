@@ -19,8 +19,12 @@ package com.toshi.manager.store;
 
 
 import com.toshi.crypto.HDWallet;
+import com.toshi.model.sofa.SofaAdapters;
+import com.toshi.model.sofa.SofaMessage;
+import com.toshi.model.sofa.payment.Payment;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -344,6 +348,36 @@ public class DbMigration implements RealmMigration {
             }
             oldVersion++;
         }
+
+        // Migrate to version 23:
+        // Store the payment status on PendingTransaction so it can be queried
+        if (oldVersion == 22) {
+            schema.get("PendingTransaction")
+                    .addField("status", String.class, FieldAttribute.INDEXED)
+                    .transform(obj -> obj.setString("status", getPaymentStatus(obj.getObject("sofaMessage"))));
+            oldVersion++;
+        }
+
+        // Migrate to version 24:
+        // Remember which group members already received a pending message
+        if (oldVersion == 23) {
+            schema.get("PendingMessage")
+                    .addField("deliveredAddresses", String.class);
+            oldVersion++;
+        }
+    }
+
+    // Payloads that can't be parsed get no status, so they are not refreshed as pending transactions
+    private String getPaymentStatus(final DynamicRealmObject sofaMessage) {
+        if (sofaMessage == null) return null;
+        final String payload = sofaMessage.getString("payload");
+        if (payload == null) return null;
+        try {
+            final Payment payment = SofaAdapters.get().paymentFrom(SofaMessage.cleanPayload(payload));
+            return payment == null ? null : payment.getStatus();
+        } catch (final IOException ex) {
+            return null;
+        }
     }
 
     @Override
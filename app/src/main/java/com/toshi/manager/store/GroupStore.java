@@ -22,12 +22,19 @@ import com.toshi.model.local.Group;
 import com.toshi.view.BaseApplication;
 
 import io.realm.Realm;
+import io.realm.RealmConfiguration;
 import rx.Single;
 
 public class GroupStore {
 
     public Single<Group> loadForId(final String id) {
-        return Single.fromCallable(() -> loadWhere("id", id));
+        return whenRealmReady()
+                .flatMap(__ -> Single.fromCallable(() -> loadWhere("id", id)));
+    }
+
+    // Groups are looked up while handling incoming messages, which can happen before the database is ready
+    private Single<RealmConfiguration> whenRealmReady() {
+        return BaseApplication.get().getToshiManager().getRealmConfiguration();
     }
 
     private Group loadWhere(final String fieldName, final String value) {
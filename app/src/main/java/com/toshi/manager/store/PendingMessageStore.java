@@ -23,17 +23,27 @@ import com.toshi.model.local.Recipient;
 import com.toshi.model.sofa.SofaMessage;
 import com.toshi.view.BaseApplication;
 
+import java.util.Collections;
+import java.util.List;
+
 import io.realm.Realm;
+import io.realm.RealmConfiguration;
+import rx.Single;
 
 public class PendingMessageStore {
 
     private static final String PRIVATE_KEY = "privateKey";
 
     public void save(final Recipient receiver, final SofaMessage message) {
+        save(receiver, message, Collections.emptyList());
+    }
+
+    public void save(final Recipient receiver, final SofaMessage message, final List<String> deliveredAddresses) {
         final PendingMessage pendingMessage = new PendingMessage()
                 .setPrivateKey(message.getPrivateKey())
                 .setReceiver(receiver)
-                .setSofaMessage(message);
+                .setSofaMessage(message)
+                .setDeliveredAddresses(deliveredAddresses);
 
         final Realm realm = BaseApplication.get().getRealm();
         realm.beginTransaction();
@@ -42,7 +52,17 @@ public class PendingMessageStore {
         realm.close();
     }
 
-    public PendingMessage fetchPendingMessage(final SofaMessage sofaMessage) {
+    public Single<PendingMessage> fetchPendingMessage(final SofaMessage sofaMessage) {
+        return whenRealmReady()
+                .flatMap(__ -> Single.fromCallable(() -> removePendingMessage(sofaMessage)));
+    }
+
+    // Pending messages are resent when the connection comes back, which can be while the app is starting
+    private Single<RealmConfiguration> whenRealmReady() {
+        return BaseApplication.get().getToshiManager().getRealmConfiguration();
+    }
+
+    private PendingMessage removePendingMessage(final SofaMessage sofaMessage) {
         final Realm realm = BaseApplication.get().getRealm();
         final PendingMessage result = realm
                 .where(PendingMessage.class)
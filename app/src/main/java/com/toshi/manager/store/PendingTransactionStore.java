@@ -19,11 +19,13 @@ package com.toshi.manager.store;
 
 
 import com.toshi.model.local.PendingTransaction;
+import com.toshi.model.sofa.SofaType;
 import com.toshi.view.BaseApplication;
 
 import java.util.List;
 
 import io.realm.Realm;
+import io.realm.RealmConfiguration;
 import io.realm.RealmQuery;
 import rx.Single;
 import rx.subjects.PublishSubject;
@@ -48,12 +50,31 @@ public class PendingTransactionStore {
         broadcastPendingTransaction(pendingTransaction);
     }
 
+    public void saveAll(final List<PendingTransaction> pendingTransactions) {
+        if (pendingTransactions.isEmpty()) return;
+        final Realm realm = BaseApplication.get().getRealm();
+        realm.beginTransaction();
+        realm.insertOrUpdate(pendingTransactions);
+        realm.commitTransaction();
+        realm.close();
+        for (final PendingTransaction pendingTransaction : pendingTransactions) {
+            broadcastPendingTransaction(pendingTransaction);
+        }
+    }
+
     public Single<PendingTransaction> loadTransaction(final String txHash) {
-        return Single.fromCallable(() -> loadSingleWhere("txHash", txHash));
+        return whenRealmReady()
+                .flatMap(__ -> Single.fromCallable(() -> loadSingleWhere("txHash", txHash)));
     }
 
-    public Single<List<PendingTransaction>> loadAllTransactions() {
-        return Single.fromCallable(this::loadAll);
+    public Single<List<PendingTransaction>> loadUnconfirmedTransactions() {
+        return whenRealmReady()
+                .flatMap(__ -> Single.fromCallable(() -> loadAllWhere("status", SofaType.UNCONFIRMED)));
+    }
+
+    // Loads can be started while the app is starting, before the database is ready
+    private Single<RealmConfiguration> whenRealmReady() {
+        return BaseApplication.get().getToshiManager().getRealmConfiguration();
     }
 
     private PendingTransaction loadSingleWhere(final String fieldName, final String value) {
@@ -68,18 +89,18 @@ public class PendingTransactionStore {
         return queriedPendingTransaction;
     }
 
-    private List<PendingTransaction> loadAll() {
+    private List<PendingTransaction> loadAllWhere(final String fieldName, final String value) {
         final Realm realm = BaseApplication.get().getRealm();
         final RealmQuery<PendingTransaction> query = realm
-                .where(PendingTransaction.class);
+                .where(PendingTransaction.class)
+                .equalTo(fieldName, value);
 
         final List<PendingTransaction> pendingTransactions = query.findAll();
-        final List<PendingTransaction> allPendingTransactions = realm.copyFromRealm(pendingTransactions);
+        final List<PendingTransaction> queriedPendingTransactions = realm.copyFromRealm(pendingTransactions);
         realm.close();
-        return allPendingTransactions;
+        return queriedPendingTransactions;
     }
 
-
     private void broadcastPendingTransaction(final PendingTransaction pendingTransaction) {
         this.pendingTransactionObservable.onNext(pendingTransaction);
     }
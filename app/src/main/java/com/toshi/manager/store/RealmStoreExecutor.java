@@ -0,0 +1,120 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.store;
+
+import com.toshi.manager.ToshiManager;
+import com.toshi.util.logging.LogUtil;
+import com.toshi.view.BaseApplication;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+import rx.Completable;
+import rx.Scheduler;
+import rx.Single;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+
+/**
+ * The single thread a store does its Realm work on.
+ * <p>
+ * Work is only handed to the thread once the database is ready, so nothing waits on it while
+ * the app starts. The thread also keeps a Realm open for as long as the configuration doesn't
+ * change. Realm caches instances per thread, so the getRealm and close calls of the store only
+ * change a reference count instead of opening and closing the database every time. The open
+ * instance is refreshed before each piece of work, so it sees what other threads committed,
+ * and closed as soon as the configuration changes or is removed when signing out.
+ */
+public class RealmStoreExecutor implements Executor {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Scheduler scheduler = Schedulers.from(this);
+    private final AtomicBoolean isFollowingConfiguration = new AtomicBoolean(false);
+    // Only used on the thread of the executor
+    private Realm pinnedRealm;
+
+    @Override
+    public void execute(final Runnable runnable) {
+        this.executor.execute(() -> {
+            pinRealm();
+            runnable.run();
+        });
+    }
+
+    public <T> Single<T> fromCallable(final Callable<T> callable) {
+        followConfiguration();
+        return getToshiManager()
+                .getRealmConfiguration()
+                .flatMap(config -> Single.fromCallable(callable).subscribeOn(this.scheduler));
+    }
+
+    public Completable fromAction(final Action0 action) {
+        followConfiguration();
+        return getToshiManager()
+                .getRealmConfiguration()
+                .toCompletable()
+                .andThen(Completable.fromAction(action).subscribeOn(this.scheduler));
+    }
+
+    // Stores are created before ToshiManager, so this waits for the first piece of work
+    private void followConfiguration() {
+        if (!this.isFollowingConfiguration.compareAndSet(false, true)) return;
+        getToshiManager()
+                .getRealmConfigurationChanges()
+                .subscribe(
+                        __ -> this.executor.execute(this::releaseStaleRealm),
+                        throwable -> LogUtil.exception("Error while following the Realm configuration", throwable)
+                );
+    }
+
+    private void pinRealm() {
+        releaseStaleRealm();
+        if (this.pinnedRealm != null) {
+            // There is no Looper to refresh the cached instance, so bring it up to date by hand
+            this.pinnedRealm.refresh();
+            return;
+        }
+        final RealmConfiguration config = getToshiManager().getCurrentRealmConfiguration();
+        if (config == null) return;
+        try {
+            this.pinnedRealm = Realm.getInstance(config);
+        } catch (final RuntimeException ex) {
+            // The work itself will open the Realm and report the error
+            LogUtil.w("Unable to keep Realm open on store thread " + ex);
+        }
+    }
+
+    // Closes the pinned Realm if the configuration changed or was removed when signing out
+    private void releaseStaleRealm() {
+        if (this.pinnedRealm == null) return;
+        final RealmConfiguration config = getToshiManager().getCurrentRealmConfiguration();
+        final boolean isClosed = this.pinnedRealm.isClosed();
+        if (!isClosed && this.pinnedRealm.getConfiguration().equals(config)) return;
+        if (!isClosed) this.pinnedRealm.close();
+        this.pinnedRealm = null;
+    }
+
+    private static ToshiManager getToshiManager() {
+        return BaseApplication.get().getToshiManager();
+    }
+}
@@ -22,17 +22,14 @@ import com.toshi.model.local.User;
 import com.toshi.view.BaseApplication;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import io.realm.Realm;
 import rx.Completable;
 import rx.Single;
-import rx.schedulers.Schedulers;
 
 public class UserStore {
 
-    private final static ExecutorService dbThread = Executors.newSingleThreadExecutor();
+    private final static RealmStoreExecutor dbThread = new RealmStoreExecutor();
 
     public Single<User> loadForToshiId(final String toshiId) {
         return loadWhere("owner_address", toshiId);
@@ -48,29 +45,27 @@ public class UserStore {
     }
 
     public Completable saveUsers(final List<User> users) {
-        return Completable.fromAction(() -> {
+        return dbThread.fromAction(() -> {
             final Realm realm = BaseApplication.get().getRealm();
             realm.beginTransaction();
             realm.insertOrUpdate(users);
             realm.commitTransaction();
             realm.close();
-        })
-        .subscribeOn(Schedulers.from(dbThread));
+        });
     }
 
     public Completable save(final User user) {
-        return Completable.fromAction(() -> {
+        return dbThread.fromAction(() -> {
             final Realm realm = BaseApplication.get().getRealm();
             realm.beginTransaction();
             realm.insertOrUpdate(user);
             realm.commitTransaction();
             realm.close();
-        })
-        .subscribeOn(Schedulers.from(dbThread));
+        });
     }
 
     private Single<User> loadWhere(final String fieldName, final String value) {
-        return Single.fromCallable(() -> {
+        return dbThread.fromCallable(() -> {
             final Realm realm = BaseApplication.get().getRealm();
             final User user = realm
                     .where(User.class)
@@ -80,7 +75,6 @@ public class UserStore {
             final User queriedUser = user == null ? null : realm.copyFromRealm(user);
             realm.close();
             return queriedUser;
-        })
-        .subscribeOn(Schedulers.from(dbThread));
+        });
     }
 }
@@ -0,0 +1,162 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.transaction
+
+import com.toshi.crypto.util.TypeConverter
+import com.toshi.model.network.TransactionRequest
+import com.toshi.model.network.UnsignedTransaction
+import com.toshi.util.logging.LogUtil
+import com.toshi.util.sharedPrefs.AppPrefs
+import com.toshi.util.sharedPrefs.AppPrefsInterface
+import java.math.BigInteger
+import java.util.concurrent.TimeUnit
+
+/**
+ * Builds transaction skeletons on the device instead of asking /v1/tx/skel for them.
+ *
+ * Only plain value transfers are built locally, and only once the server has told us the
+ * gas price and chain id of the network, the gas a transfer to the recipient needs and the
+ * nonce of the sender. Everything else is learnt from the skeletons the server builds, so
+ * [build] returns null until then, and the caller falls back to the server.
+ *
+ * Nonces are reserved at send time with [reserveNonce], which also bumps the nonce of a
+ * skeleton that was built before an earlier transaction from the same address was sent.
+ * The sender's nonce is only known for a short while after such a send, see [NonceManager].
+ */
+class LocalTransactionBuilder(
+        private val isEnabled: Boolean = true,
+        private val appPrefs: AppPrefsInterface = AppPrefs,
+        private val nonceManager: NonceManager = NonceManager(appPrefs),
+        private val currentTimeMillis: () -> Long = { System.currentTimeMillis() }
+) {
+
+    companion object {
+        private val GAS_PRICE_TTL_MS = TimeUnit.MINUTES.toMillis(5)
+        private const val MAX_CACHED_GAS_LIMITS = 64
+        private const val HEX_PREFIX = "0x"
+    }
+
+    private data class NetworkEstimate(
+            val networkId: String?,
+            val gasPrice: BigInteger,
+            val chainId: BigInteger?,
+            val fetchedAtMillis: Long
+    )
+
+    @Volatile private var networkEstimate: NetworkEstimate? = null
+    private val gasLimits = object : LinkedHashMap<String, BigInteger>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, BigInteger>?) = size > MAX_CACHED_GAS_LIMITS
+    }
+
+    /**
+     * @return a skeleton for the request, or null if it has to be built by the server
+     */
+    fun build(request: TransactionRequest): UnsignedTransaction? {
+        if (!isEnabled || !isPlainTransfer(request)) return null
+        val from = request.from ?: return null
+        val to = request.to ?: return null
+        val estimate = getNetworkEstimate() ?: return null
+        val gas = getGasLimit(to) ?: return null
+        val nonce = nonceManager.peekNextNonce(from) ?: return null
+
+        val skeleton = TransactionSkeleton(
+                nonce = nonce,
+                gasPrice = estimate.gasPrice,
+                gas = gas,
+                to = TypeConverter.StringHexToByteArray(to),
+                value = TypeConverter.StringHexToBigInteger(request.value),
+                data = ByteArray(0),
+                chainId = estimate.chainId
+        )
+        return toUnsignedTransaction(skeleton)
+    }
+
+    /**
+     * Remembers what a skeleton built by the server says about the network and the recipient.
+     */
+    fun onServerTransaction(request: TransactionRequest, unsignedTransaction: UnsignedTransaction) {
+        try {
+            val skeleton = TransactionSkeleton.decode(unsignedTransaction.transaction)
+            // A gas price set by the request, e.g. by a dapp, says nothing about the network
+            if (request.gasPrice == null) {
+                networkEstimate = NetworkEstimate(
+                        networkId = appPrefs.getCurrentNetworkId(),
+                        gasPrice = skeleton.gasPrice,
+                        chainId = skeleton.chainId,
+                        fetchedAtMillis = currentTimeMillis()
+                )
+            }
+            val to = request.to
+            if (isPlainTransfer(request) && to != null) setGasLimit(to, skeleton.gas)
+        } catch (e: IllegalStateException) {
+            LogUtil.w("Unable to read transaction skeleton $e")
+        }
+    }
+
+    /**
+     * Reserves the nonce the transaction is sent with, rebuilding the skeleton if an earlier
+     * transaction from the address has already taken its nonce.
+     */
+    fun reserveNonce(unsignedTransaction: UnsignedTransaction, fromAddress: String): UnsignedTransaction {
+        val skeleton = TransactionSkeleton.decode(unsignedTransaction.transaction)
+        val nonce = nonceManager.reserveNonce(fromAddress, skeleton.nonce)
+        if (nonce == skeleton.nonce) return unsignedTransaction
+        return toUnsignedTransaction(skeleton.copy(nonce = nonce))
+    }
+
+    /**
+     * Forgets the nonce and the network estimate, after a failed send or a transaction whose
+     * nonce was chosen elsewhere, as either might be wrong now.
+     */
+    fun invalidate(fromAddress: String) {
+        nonceManager.invalidate(fromAddress)
+        networkEstimate = null
+    }
+
+    private fun isPlainTransfer(request: TransactionRequest): Boolean {
+        return request.value?.startsWith(HEX_PREFIX) == true
+                && request.tokenAddress == null
+                && request.data == null
+                && request.gas == null
+                && request.gasPrice == null
+                && request.nonce == null
+    }
+
+    private fun getNetworkEstimate(): NetworkEstimate? {
+        val estimate = networkEstimate ?: return null
+        val isFresh = currentTimeMillis() - estimate.fetchedAtMillis <= GAS_PRICE_TTL_MS
+        val isSameNetwork = estimate.networkId == appPrefs.getCurrentNetworkId()
+        return if (isFresh && isSameNetwork) estimate else null
+    }
+
+    private fun getGasLimit(to: String): BigInteger? = synchronized(gasLimits) { gasLimits[toGasLimitKey(to)] }
+
+    private fun setGasLimit(to: String, gas: BigInteger) = synchronized(gasLimits) { gasLimits[toGasLimitKey(to)] = gas }
+
+    private fun toGasLimitKey(to: String) = "${appPrefs.getCurrentNetworkId()}_${to.toLowerCase()}"
+
+    private fun toUnsignedTransaction(skeleton: TransactionSkeleton): UnsignedTransaction {
+        return UnsignedTransaction(
+                skeleton.encode(),
+                TypeConverter.toJsonHex(skeleton.gas),
+                TypeConverter.toJsonHex(skeleton.gasPrice),
+                TypeConverter.toJsonHex(skeleton.nonce),
+                TypeConverter.toJsonHex(skeleton.value)
+        )
+    }
+}
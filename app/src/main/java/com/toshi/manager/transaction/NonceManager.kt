@@ -0,0 +1,80 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.transaction
+
+import com.toshi.util.sharedPrefs.AppPrefs
+import com.toshi.util.sharedPrefs.AppPrefsInterface
+import java.math.BigInteger
+import java.util.concurrent.TimeUnit
+
+/**
+ * Tracks the nonces this process has handed out for each payment address on the current
+ * network, so transactions sent in quick succession get consecutive nonces even before the
+ * server has seen the earlier ones.
+ *
+ * The server's nonce is authoritative. A reservation only overrides it for
+ * [RESERVATION_TTL_MS] after it was made, and reservations are kept in memory only, so a
+ * transaction that was dropped or replaced can never push later nonces past a gap for good.
+ * If a send fails the address is forgotten straight away.
+ */
+class NonceManager(
+        private val appPrefs: AppPrefsInterface = AppPrefs,
+        private val currentTimeMillis: () -> Long = { System.currentTimeMillis() }
+) {
+
+    companion object {
+        private val RESERVATION_TTL_MS = TimeUnit.MINUTES.toMillis(2)
+    }
+
+    private data class Reservation(val nextNonce: BigInteger, val reservedAtMillis: Long)
+
+    private val reservations = HashMap<String, Reservation>()
+
+    /**
+     * @return the nonce the next transaction from the address should use, or null if no
+     * nonce has been reserved for it recently
+     */
+    @Synchronized
+    fun peekNextNonce(address: String): BigInteger? = getNextNonce(toKey(address))
+
+    /**
+     * Reserves a nonce for a transaction from the address. This is [minimum], the nonce the
+     * server gave, unless a higher nonce has been handed out recently.
+     */
+    @Synchronized
+    fun reserveNonce(address: String, minimum: BigInteger): BigInteger {
+        val key = toKey(address)
+        val nonce = getNextNonce(key)?.max(minimum) ?: minimum
+        reservations[key] = Reservation(nonce.add(BigInteger.ONE), currentTimeMillis())
+        return nonce
+    }
+
+    @Synchronized
+    fun invalidate(address: String) {
+        reservations.remove(toKey(address))
+    }
+
+    private fun getNextNonce(key: String): BigInteger? {
+        val reservation = reservations[key] ?: return null
+        if (currentTimeMillis() - reservation.reservedAtMillis <= RESERVATION_TTL_MS) return reservation.nextNonce
+        reservations.remove(key)
+        return null
+    }
+
+    private fun toKey(address: String) = "${appPrefs.getCurrentNetworkId()}_${address.toLowerCase()}"
+}
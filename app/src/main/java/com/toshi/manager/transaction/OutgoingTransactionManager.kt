@@ -31,6 +31,7 @@ import com.toshi.model.local.SendState
 import com.toshi.model.local.User
 import com.toshi.model.sofa.SofaAdapters
 import com.toshi.model.sofa.SofaMessage
+import com.toshi.model.sofa.SofaType
 import com.toshi.model.sofa.payment.Payment
 import com.toshi.util.logging.LogUtil
 import com.toshi.view.BaseApplication
@@ -190,6 +191,7 @@ class OutgoingTransactionManager(
         val pendingTransaction = PendingTransaction()
                 .setSofaMessage(message)
                 .setTxHash(txHash)
+                .setStatus(SofaType.UNCONFIRMED)
         pendingTransactionStore.save(pendingTransaction)
     }
 
@@ -22,6 +22,7 @@ import com.toshi.crypto.HDWallet
 import com.toshi.extensions.getTimeoutSingle
 import com.toshi.manager.model.W3PaymentTask
 import com.toshi.manager.network.EthereumServiceInterface
+import com.toshi.manager.network.ServerClock
 import com.toshi.model.network.SentTransaction
 import com.toshi.model.network.ServerTime
 import com.toshi.model.network.SignedTransaction
@@ -32,23 +33,37 @@ import rx.Single
 
 class TransactionSigner(
         private val ethereumService: EthereumServiceInterface,
-        private val walletObservable: Observable<HDWallet>
+        private val walletObservable: Observable<HDWallet>,
+        private val serverClock: ServerClock = ServerClock.get(),
+        private val transactionBuilder: LocalTransactionBuilder = LocalTransactionBuilder()
 ) {
 
     fun signAndSendTransaction(unsignedTransaction: UnsignedTransaction): Single<SentTransaction> {
+        return getWallet()
+                .flatMap { signAndSendTransaction(it, unsignedTransaction) }
+    }
+
+    private fun signAndSendTransaction(wallet: HDWallet, unsignedTransaction: UnsignedTransaction): Single<SentTransaction> {
+        val fromAddress = wallet.paymentAddress
+        val transaction = transactionBuilder.reserveNonce(unsignedTransaction, fromAddress)
         return Single.zip(
-                signTransaction(unsignedTransaction),
+                signTransaction(wallet, transaction),
                 getServerTime(),
                 { first, second -> Pair(first, second) }
         )
         .flatMap { pair -> sendSignedTransaction(pair.first, pair.second) }
+        .doOnError { transactionBuilder.invalidate(fromAddress) }
     }
 
-    fun signW3Transaction(paymentTask: W3PaymentTask) = signTransaction(paymentTask.unsignedTransaction)
-
-    private fun signTransaction(unsignedTransaction: UnsignedTransaction): Single<SignedTransaction> {
+    fun signW3Transaction(paymentTask: W3PaymentTask): Single<SignedTransaction> {
         return getWallet()
-                .flatMap { it.signTransaction(unsignedTransaction.transaction) }
+                // The nonce of a W3 transaction is chosen by the dapp
+                .doOnSuccess { transactionBuilder.invalidate(it.paymentAddress) }
+                .flatMap { signTransaction(it, paymentTask.unsignedTransaction) }
+    }
+
+    private fun signTransaction(wallet: HDWallet, unsignedTransaction: UnsignedTransaction): Single<SignedTransaction> {
+        return wallet.signTransaction(unsignedTransaction.transaction)
                 .flatMap { setTransactionSignature(unsignedTransaction, it) }
                 .doOnError { LogUtil.exception("Error while signing transaction TransactionSigner::signTransaction", it) }
     }
@@ -76,5 +91,5 @@ class TransactionSigner(
                 .sendSignedTransaction(timestamp, signedTransaction)
     }
 
-    private fun getServerTime() = ethereumService.get().timestamp
+    private fun getServerTime() = serverClock.getTimestamp(ethereumService.get().timestamp)
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.manager.transaction
+
+import com.toshi.crypto.util.RLP
+import com.toshi.crypto.util.RLPCursor
+import com.toshi.crypto.util.TypeConverter
+import java.math.BigInteger
+
+/**
+ * The fields of an unsigned transaction skeleton, in the same format as /v1/tx/skel returns:
+ * an RLP list of nonce, gas price, gas, to, value, data, chain id and two empty values.
+ */
+data class TransactionSkeleton(
+        val nonce: BigInteger,
+        val gasPrice: BigInteger,
+        val gas: BigInteger,
+        val to: ByteArray,
+        val value: BigInteger,
+        val data: ByteArray,
+        val chainId: BigInteger?
+) {
+
+    companion object {
+        private const val FIELD_COUNT = 9
+
+        @JvmStatic
+        fun decode(skeleton: String): TransactionSkeleton {
+            val transaction = RLPCursor(TypeConverter.StringHexToByteArray(skeleton))
+            if (!transaction.next() || !transaction.isList) {
+                throw IllegalStateException("Invalid Transaction Skeleton: Not an RLP list")
+            }
+
+            val fields = transaction.enterList()
+            val values = ArrayList<ByteArray>(FIELD_COUNT)
+            while (fields.next()) {
+                if (fields.isList) throw IllegalStateException("Invalid Transaction Skeleton: Unexpected list")
+                values.add(fields.bytes)
+            }
+            if (values.size != FIELD_COUNT) {
+                throw IllegalStateException("Invalid Transaction Skeleton: Decoded RLP length is wrong")
+            }
+
+            return TransactionSkeleton(
+                    nonce = toBigInteger(values[0]),
+                    gasPrice = toBigInteger(values[1]),
+                    gas = toBigInteger(values[2]),
+                    to = values[3],
+                    value = toBigInteger(values[4]),
+                    data = values[5],
+                    chainId = if (values[6].isEmpty()) null else toBigInteger(values[6])
+            )
+        }
+
+        private fun toBigInteger(bytes: ByteArray) = if (bytes.isEmpty()) BigInteger.ZERO else BigInteger(1, bytes)
+    }
+
+    fun encode(): String {
+        val fields = arrayOf<Any>(
+                nonce,
+                gasPrice,
+                gas,
+                to,
+                value,
+                data,
+                chainId ?: ByteArray(0),
+                ByteArray(0),
+                ByteArray(0)
+        )
+        return TypeConverter.toJsonHex(RLP.encode(fields))
+    }
+}
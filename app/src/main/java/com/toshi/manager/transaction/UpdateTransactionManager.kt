@@ -17,7 +17,6 @@
 
 package com.toshi.manager.transaction
 
-import android.util.Pair
 import com.toshi.exception.UnknownTransactionException
 import com.toshi.manager.store.PendingTransactionStore
 import com.toshi.model.local.PendingTransaction
@@ -26,21 +25,34 @@ import com.toshi.model.local.User
 import com.toshi.model.sofa.PaymentRequest
 import com.toshi.model.sofa.SofaAdapters
 import com.toshi.model.sofa.SofaMessage
-import com.toshi.model.sofa.SofaType
 import com.toshi.model.sofa.payment.Payment
 import com.toshi.util.logging.LogUtil
 import com.toshi.view.BaseApplication
 import rx.Observable
+import rx.Scheduler
+import rx.Single
 import rx.Subscription
 import rx.schedulers.Schedulers
 import rx.subjects.PublishSubject
 import rx.subscriptions.CompositeSubscription
 import java.io.IOException
-
-class UpdateTransactionManager(private val pendingTransactionStore: PendingTransactionStore) {
+import java.util.concurrent.TimeUnit
+
+class UpdateTransactionManager(
+        private val pendingTransactionStore: PendingTransactionStore,
+        private val loadTransactionStatus: (String) -> Single<Payment> = {
+            BaseApplication.get().balanceManager.getTransactionStatus(it)
+        },
+        private val scheduler: Scheduler = Schedulers.io()
+) {
+
+    companion object {
+        private const val MAX_CONCURRENT_STATUS_REQUESTS = 4
+        private const val MAX_STATUS_ATTEMPTS = 3
+        private const val INITIAL_BACKOFF_MS = 500L
+    }
 
     private val chatManager by lazy { BaseApplication.get().chatManager }
-    private val balanceManager by lazy { BaseApplication.get().balanceManager }
     private val updatePaymentQueue by lazy { PublishSubject.create<Payment>() }
     private val subscriptions by lazy { CompositeSubscription() }
     private var updatePaymentSub: Subscription? = null
@@ -73,43 +85,54 @@ class UpdateTransactionManager(private val pendingTransactionStore: PendingTrans
 
     fun updatePendingTransactions() {
         val sub = pendingTransactionStore
-                .loadAllTransactions()
+                .loadUnconfirmedTransactions()
                 .toObservable()
                 .flatMapIterable { it }
-                .filter { isUnconfirmed(it) }
-                .flatMap {
-                    Observable.zip(
-                            Observable.just(it),
-                            getTransactionStatus(it),
-                            { first, second -> Pair(first, second) }
-                    )
-                }
-                .onErrorReturn { Pair(null, null) }
-                .subscribeOn(Schedulers.io())
+                .flatMap({ fetchUpdatedTransaction(it) }, MAX_CONCURRENT_STATUS_REQUESTS)
+                .toList()
+                .subscribeOn(scheduler)
                 .subscribe(
-                        { updatePendingTransaction(it.first, it.second) },
-                        { LogUtil.exception("Error during updating pending transaction $it") }
+                        { pendingTransactionStore.saveAll(it) },
+                        { LogUtil.exception("Error during updating pending transactions $it") }
                 )
 
         subscriptions.add(sub)
     }
 
+    // Emits the updated transaction if its status has changed, and nothing otherwise
+    private fun fetchUpdatedTransaction(pendingTransaction: PendingTransaction): Observable<PendingTransaction> {
+        return getTransactionStatus(pendingTransaction)
+                .retryWhen { withBackoff(it) }
+                .filter { it != null && it.status != pendingTransaction.status }
+                .map { buildUpdatedTransaction(pendingTransaction, it) }
+                .onErrorResumeNext {
+                    LogUtil.w("Unable to get status of ${pendingTransaction.txHash} $it")
+                    Observable.empty<PendingTransaction>()
+                }
+    }
+
     private fun getTransactionStatus(pendingTransaction: PendingTransaction): Observable<Payment> {
-        return balanceManager
-                .getTransactionStatus(pendingTransaction.txHash)
+        return loadTransactionStatus(pendingTransaction.txHash)
                 .toObservable()
     }
 
+    // Retries network errors, doubling the delay each time
+    private fun withBackoff(errors: Observable<out Throwable>): Observable<Long> {
+        return errors
+                .zipWith(Observable.range(1, MAX_STATUS_ATTEMPTS), { error, attempt -> Pair(error, attempt) })
+                .flatMap {
+                    val (error, attempt) = it
+                    if (error !is IOException || attempt >= MAX_STATUS_ATTEMPTS) Observable.error<Long>(error)
+                    else Observable.timer(INITIAL_BACKOFF_MS shl (attempt - 1), TimeUnit.MILLISECONDS, scheduler)
+                }
+    }
+
     // Returns false if this is a new transaction that the app is unaware of.
     // Returns true if the transaction was correctly updated.
     private fun updatePendingTransaction(pendingTransaction: PendingTransaction?, updatedPayment: Payment?): Boolean {
         if (pendingTransaction == null || updatedPayment == null) return false
         return try {
-            val updatedMessage = updateStatusFromPendingTransaction(pendingTransaction, updatedPayment)
-            val updatedPendingTransaction = PendingTransaction()
-                    .setTxHash(pendingTransaction.txHash)
-                    .setSofaMessage(updatedMessage)
-            pendingTransactionStore.save(updatedPendingTransaction)
+            pendingTransactionStore.save(buildUpdatedTransaction(pendingTransaction, updatedPayment))
             true
         } catch (ex: IOException) {
             LogUtil.exception("Unable to update pending transaction $ex")
@@ -117,29 +140,28 @@ class UpdateTransactionManager(private val pendingTransactionStore: PendingTrans
         }
     }
 
+    @Throws(IOException::class)
+    private fun buildUpdatedTransaction(pendingTransaction: PendingTransaction, updatedPayment: Payment): PendingTransaction {
+        val updatedMessage = updateStatusFromPendingTransaction(pendingTransaction, updatedPayment)
+        return PendingTransaction()
+                .setTxHash(pendingTransaction.txHash)
+                .setSofaMessage(updatedMessage)
+                .setStatus(updatedPayment.status)
+    }
+
     @Throws(IOException::class, UnknownTransactionException::class)
     private fun updateStatusFromPendingTransaction(pendingTransaction: PendingTransaction, updatedPayment: Payment): SofaMessage {
         val sofaMessage = pendingTransaction.sofaMessage
-        val existingPayment = SofaAdapters.get().paymentFrom(sofaMessage.payload)
+        val existingPayment = SofaAdapters.get().paymentFrom(sofaMessage)
         existingPayment.status = updatedPayment.status
         val messageBody = SofaAdapters.get().toJson(existingPayment)
         return sofaMessage.setPayload(messageBody)
     }
 
-    private fun isUnconfirmed(pendingTransaction: PendingTransaction): Boolean {
-        return try {
-            val sofaMessage = pendingTransaction.sofaMessage
-            val payment = SofaAdapters.get().paymentFrom(sofaMessage.payload)
-            payment.status == SofaType.UNCONFIRMED
-        } catch (ex: IOException) {
-            false
-        }
-    }
-
     fun updatePaymentRequestState(remoteUser: User, sofaMessage: SofaMessage, @PaymentRequest.State newState: Int) {
         try {
             val paymentRequest = SofaAdapters.get()
-                    .txRequestFrom(sofaMessage.payload)
+                    .txRequestFrom(sofaMessage)
                     .setState(newState)
             val recipient = Recipient(remoteUser)
             val updatedPayload = SofaAdapters.get().toJson(paymentRequest)
@@ -23,8 +23,6 @@ import android.support.annotation.Nullable;
 
 import com.toshi.model.sofa.SofaMessage;
 
-import java.util.List;
-
 import io.realm.RealmList;
 import io.realm.RealmObject;
 import io.realm.annotations.PrimaryKey;
@@ -48,6 +46,20 @@ public class Conversation extends RealmObject implements ConversationItem {
         this.conversationStatus = new ConversationStatus(this.threadId);
     }
 
+    // Creates a detached copy of a conversation without its messages
+    public Conversation(final Recipient recipient,
+                        final SofaMessage latestMessage,
+                        final long updatedTime,
+                        final int numberOfUnread,
+                        final ConversationStatus conversationStatus) {
+        this.recipient = recipient;
+        this.threadId = recipient.getThreadId();
+        this.latestMessage = latestMessage;
+        this.updatedTime = updatedTime;
+        this.numberOfUnread = numberOfUnread;
+        this.conversationStatus = conversationStatus;
+    }
+
     public Conversation updateRecipient(final Recipient recipient) {
         this.recipient = recipient;
         return this;
@@ -95,6 +107,7 @@ public class Conversation extends RealmObject implements ConversationItem {
     }
 
     private boolean isDuplicateMessage(final SofaMessage message) {
+        if (message.isManaged()) return message.isInConversation(this.threadId);
         return this.allMessages != null && this.allMessages.contains(message);
     }
 
@@ -106,7 +119,8 @@ public class Conversation extends RealmObject implements ConversationItem {
         this.allMessages.add(latestMessage);
     }
 
-    public List<SofaMessage> getAllMessages() {
+    @Nullable
+    public RealmList<SofaMessage> getAllMessages() {
         return allMessages;
     }
 
@@ -0,0 +1,57 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.model.local
+
+import com.toshi.model.sofa.SofaMessage
+
+/**
+ * The part of a [Conversation] needed to render one row in the inbox.
+ * Two summaries are equal when they describe the same thread.
+ */
+class ConversationSummary(
+        val threadId: String,
+        val recipient: Recipient,
+        val latestMessage: SofaMessage?,
+        val numberOfUnread: Int,
+        val updatedTime: Long,
+        val isMuted: Boolean,
+        val isAccepted: Boolean
+) {
+    companion object {
+        @JvmStatic
+        fun from(conversation: Conversation): ConversationSummary {
+            val status = conversation.conversationStatus
+            return ConversationSummary(
+                    threadId = conversation.threadId,
+                    recipient = conversation.recipient,
+                    latestMessage = conversation.latestMessage,
+                    numberOfUnread = conversation.numberOfUnread,
+                    updatedTime = conversation.updatedTime,
+                    isMuted = status?.isMuted ?: false,
+                    isAccepted = status?.isAccepted ?: false
+            )
+        }
+    }
+
+    val isRecipientInvalid: Boolean
+        get() = recipient.isRecipientInvalid
+
+    override fun equals(other: Any?) = other is ConversationSummary && other.threadId == threadId
+
+    override fun hashCode() = threadId.hashCode()
+}
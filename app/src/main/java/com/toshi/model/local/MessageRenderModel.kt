@@ -0,0 +1,64 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.model.local
+
+import com.toshi.model.sofa.PaymentRequest
+import com.toshi.model.sofa.SofaMessage
+import com.toshi.model.sofa.SofaType
+import com.toshi.util.spannables.KeywordSpan
+
+/**
+ * Everything needed to bind one chat message, worked out ahead of time so
+ * binding only has to assign fields. The content fields are snapshots taken
+ * when the model was built and are what [hasSameContent] compares.
+ */
+class MessageRenderModel(
+        val sofaMessage: SofaMessage,
+        @SofaType.Type val messageType: Int,
+        val isRemote: Boolean,
+        @ChainPosition.Position val chainPosition: Int,
+        @SendState.State val sendState: Int,
+        val avatarUri: String?,
+        val attachmentFilePath: String?,
+        val errorMessage: String?,
+        val text: String?,
+        val isOnlyEmojis: Boolean,
+        val keywords: List<KeywordSpan>,
+        val paymentTitle: String?,
+        val paymentEthAmount: String?,
+        val paymentRequest: PaymentRequest?,
+        val statusMessage: String?,
+        val payload: String?
+) {
+    val showAvatar: Boolean
+        get() = chainPosition == ChainPosition.LAST || chainPosition == ChainPosition.NONE
+
+    fun isSameMessage(other: MessageRenderModel) = other.sofaMessage.privateKey == sofaMessage.privateKey
+
+    fun hasSameContent(other: MessageRenderModel): Boolean {
+        return other.messageType == messageType
+                && other.isRemote == isRemote
+                && other.chainPosition == chainPosition
+                && other.sendState == sendState
+                && other.avatarUri == avatarUri
+                && other.attachmentFilePath == attachmentFilePath
+                && other.errorMessage == errorMessage
+                && other.statusMessage == statusMessage
+                && other.payload == payload
+    }
+}
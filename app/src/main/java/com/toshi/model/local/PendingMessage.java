@@ -20,15 +20,24 @@ package com.toshi.model.local;
 
 import com.toshi.model.sofa.SofaMessage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import io.realm.RealmObject;
 import io.realm.annotations.PrimaryKey;
 
 public class PendingMessage extends RealmObject {
 
+    private static final String ADDRESS_DELIMITER = ",";
+
     @PrimaryKey
     private String privateKey;
     private Recipient receiver;
     private SofaMessage sofaMessage;
+    // Group members that already received the message, so a resend can skip them. Kept in one
+    // delimited field, as list entries would outlive the pending message when it is replaced.
+    private String deliveredAddresses;
 
     public PendingMessage() {}
 
@@ -55,4 +64,19 @@ public class PendingMessage extends RealmObject {
         this.privateKey = sofaMessage.getPrivateKey();
         return this;
     }
+
+    public List<String> getDeliveredAddresses() {
+        if (this.deliveredAddresses == null || this.deliveredAddresses.isEmpty()) return new ArrayList<>();
+        return new ArrayList<>(Arrays.asList(this.deliveredAddresses.split(ADDRESS_DELIMITER)));
+    }
+
+    public PendingMessage setDeliveredAddresses(final List<String> deliveredAddresses) {
+        final StringBuilder builder = new StringBuilder();
+        for (final String address : deliveredAddresses) {
+            if (builder.length() > 0) builder.append(ADDRESS_DELIMITER);
+            builder.append(address);
+        }
+        this.deliveredAddresses = builder.toString();
+        return this;
+    }
 }
@@ -21,6 +21,7 @@ package com.toshi.model.local;
 import com.toshi.model.sofa.SofaMessage;
 
 import io.realm.RealmObject;
+import io.realm.annotations.Index;
 import io.realm.annotations.PrimaryKey;
 
 public class PendingTransaction extends RealmObject {
@@ -28,6 +29,9 @@ public class PendingTransaction extends RealmObject {
     @PrimaryKey
     private String txHash;
     private SofaMessage sofaMessage;
+    // Mirrors the status in the payment payload so pending transactions can be queried by it
+    @Index
+    private String status;
 
     public PendingTransaction() {}
 
@@ -49,6 +53,15 @@ public class PendingTransaction extends RealmObject {
         return this;
     }
 
+    public String getStatus() {
+        return status;
+    }
+
+    public PendingTransaction setStatus(final String status) {
+        this.status = status;
+        return this;
+    }
+
     public void cascadeDelete() {
         if (this.sofaMessage != null) this.sofaMessage.cascadeDelete();
         deleteFromRealm();
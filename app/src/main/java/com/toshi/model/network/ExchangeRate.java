@@ -26,7 +26,6 @@ public class ExchangeRate {
     private BigDecimal rate;
     private Integer timestamp;
 
-    // For tests only
     public ExchangeRate(final String from, final String to, final BigDecimal rate, final Integer timestamp) {
         this.from = from;
         this.to = to;
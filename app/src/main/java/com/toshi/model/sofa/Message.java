@@ -23,6 +23,7 @@ import android.support.annotation.StringRes;
 import com.toshi.R;
 import com.toshi.view.BaseApplication;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class Message {
@@ -49,6 +50,14 @@ public class Message {
         return !this.showKeyboard;
     }
 
+    public Message copy() {
+        final Message copy = new Message();
+        copy.body = this.body;
+        copy.controls = this.controls == null ? null : new ArrayList<>(this.controls);
+        copy.showKeyboard = this.showKeyboard;
+        return copy;
+    }
+
     public String toUserVisibleString(final boolean sentByLocal, final boolean hasAttachment) {
         if (hasAttachment) return getAttachmentMessage(sentByLocal);
         else return this.body;
@@ -118,6 +118,19 @@ public class PaymentRequest {
         return this.androidClientSideCustomData.state;
     }
 
+    public PaymentRequest copy() {
+        final PaymentRequest copy = new PaymentRequest();
+        copy.value = this.value;
+        copy.destinationAddress = this.destinationAddress;
+        copy.body = this.body;
+        if (this.androidClientSideCustomData != null) {
+            copy.androidClientSideCustomData = new ClientSideCustomData();
+            copy.androidClientSideCustomData.localPrice = this.androidClientSideCustomData.localPrice;
+            copy.androidClientSideCustomData.state = this.androidClientSideCustomData.state;
+        }
+        return copy;
+    }
+
     public String toUserVisibleString(final boolean sentByLocal, final @SendState.State int sentStatus) {
         final int messageId = generateMessageId(sentByLocal, sentStatus);
         return String.format(
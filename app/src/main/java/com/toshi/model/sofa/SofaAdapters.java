@@ -33,6 +33,7 @@ import java.io.IOException;
 public class SofaAdapters {
 
     private static SofaAdapters instance;
+    private static final int DECODE_CACHE_SIZE = 500;
 
     private final Moshi moshi;
     private final JsonAdapter<Message> messageAdapter;
@@ -45,6 +46,7 @@ public class SofaAdapters {
     private final JsonAdapter<UnsignedW3Transaction> unsignedW3TransactionAdapter;
     private final JsonAdapter<SofaErrors> errorAdapter;
     private final JsonAdapter<LocalStatusMessage> localStatusMessageJsonAdapter;
+    private final SofaDecodeCache decodeCache;
 
     public static SofaAdapters get() {
         if (instance == null) {
@@ -65,6 +67,7 @@ public class SofaAdapters {
         this.unsignedW3TransactionAdapter = moshi.adapter(UnsignedW3Transaction.class);
         this.errorAdapter = moshi.adapter(SofaErrors.class);
         this.localStatusMessageJsonAdapter = moshi.adapter(LocalStatusMessage.class);
+        this.decodeCache = new SofaDecodeCache(DECODE_CACHE_SIZE);
     }
 
     public String toJson(final Message sofaMessage) {
@@ -99,6 +102,14 @@ public class SofaAdapters {
         }
     }
 
+    /**
+     * Decodes the payload of a SofaMessage, reusing the previous result if the payload hasn't changed.
+     * Every caller gets its own copy, so the returned object can be modified.
+     */
+    public Message messageFrom(final SofaMessage sofaMessage) throws IOException {
+        return this.decodeCache.get(sofaMessage, Message.class, this::messageFrom, Message::copy);
+    }
+
     public PaymentRequest txRequestFrom(final String payload) throws IOException {
         try {
             return paymentRequestAdapter.fromJson(payload);
@@ -107,6 +118,14 @@ public class SofaAdapters {
         }
     }
 
+    /**
+     * Decodes the payload of a SofaMessage, reusing the previous result if the payload hasn't changed.
+     * Every caller gets its own copy, so the returned object can be modified.
+     */
+    public PaymentRequest txRequestFrom(final SofaMessage sofaMessage) throws IOException {
+        return this.decodeCache.get(sofaMessage, PaymentRequest.class, this::txRequestFrom, PaymentRequest::copy);
+    }
+
     public UnsignedW3Transaction unsignedW3TransactionFrom(final String payload) throws IOException {
         try {
             return unsignedW3TransactionAdapter.fromJson(payload);
@@ -123,6 +142,14 @@ public class SofaAdapters {
         }
     }
 
+    /**
+     * Decodes the payload of a SofaMessage, reusing the previous result if the payload hasn't changed.
+     * Every caller gets its own copy, so the returned object can be modified.
+     */
+    public Payment paymentFrom(final SofaMessage sofaMessage) throws IOException {
+        return this.decodeCache.get(sofaMessage, Payment.class, this::paymentFrom, Payment::copy);
+    }
+
     public ERC20TokenPayment tokenPaymentFrom(final String payload) throws IOException {
         try {
             return tokenPaymentAdapter.fromJson(payload);
@@ -131,6 +158,14 @@ public class SofaAdapters {
         }
     }
 
+    /**
+     * Decodes the payload of a SofaMessage, reusing the previous result if the payload hasn't changed.
+     * Every caller gets its own copy, so the returned object can be modified.
+     */
+    public ERC20TokenPayment tokenPaymentFrom(final SofaMessage sofaMessage) throws IOException {
+        return this.decodeCache.get(sofaMessage, ERC20TokenPayment.class, this::tokenPaymentFrom, ERC20TokenPayment::copy);
+    }
+
     public InitRequest initRequestFrom(final String payload) throws IOException {
         try {
             return initRequestJsonAdapter.fromJson(payload);
@@ -156,4 +191,16 @@ public class SofaAdapters {
             throw new IOException(ex);
         }
     }
+
+    /* package */ void invalidateDecodedPayload(final String privateKey) {
+        this.decodeCache.invalidate(privateKey);
+    }
+
+    public long getDecodeCacheHitCount() {
+        return this.decodeCache.getHitCount();
+    }
+
+    public long getDecodeCacheMissCount() {
+        return this.decodeCache.getMissCount();
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.model.sofa;
+
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An LRU cache of decoded SOFA payloads, keyed by the private key of the SofaMessage.
+ * Each entry remembers the payload it was decoded from, so a message whose payload has
+ * changed is decoded again. The cached value is never handed out; callers get a copy
+ * so they are free to modify what they get back.
+ */
+/* package */ class SofaDecodeCache {
+
+    /* package */ interface Decoder<T> {
+        T decode(final String payload) throws IOException;
+    }
+
+    /* package */ interface Copier<T> {
+        T copy(final T value);
+    }
+
+    private final int maxSize;
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private final Map<String, Entry> entries;
+
+    /* package */ SofaDecodeCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > SofaDecodeCache.this.maxSize;
+            }
+        };
+    }
+
+    /* package */ <T> T get(final SofaMessage sofaMessage,
+                            final Class<T> type,
+                            final Decoder<T> decoder,
+                            final Copier<T> copier) throws IOException {
+        final String privateKey = sofaMessage.getPrivateKey();
+        final String payload = sofaMessage.getPayload();
+
+        final Entry cachedEntry;
+        synchronized (this.entries) {
+            cachedEntry = this.entries.get(privateKey);
+        }
+        if (cachedEntry != null && cachedEntry.type == type && cachedEntry.isDecodedFrom(payload)) {
+            this.hitCount.incrementAndGet();
+            return copier.copy(type.cast(cachedEntry.value));
+        }
+
+        this.missCount.incrementAndGet();
+        // Decode outside of the lock; a concurrent decode of the same message is harmless
+        final T value = decoder.decode(payload);
+        if (privateKey != null && value != null) {
+            synchronized (this.entries) {
+                this.entries.put(privateKey, new Entry(payload, type, value));
+            }
+            return copier.copy(value);
+        }
+        return value;
+    }
+
+    /* package */ void invalidate(final String privateKey) {
+        if (privateKey == null) return;
+        synchronized (this.entries) {
+            this.entries.remove(privateKey);
+        }
+    }
+
+    /* package */ long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /* package */ long getMissCount() {
+        return this.missCount.get();
+    }
+
+    private static class Entry {
+        private final String payload;
+        private final Class<?> type;
+        private final Object value;
+
+        private Entry(final String payload, final Class<?> type, final Object value) {
+            this.payload = payload;
+            this.type = type;
+            this.value = value;
+        }
+
+        private boolean isDecodedFrom(final String payload) {
+            // Realm usually hands back the same String instance, so check the reference first
+            return this.payload == payload || (payload != null && payload.equals(this.payload));
+        }
+    }
+}
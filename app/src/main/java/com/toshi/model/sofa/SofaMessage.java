@@ -19,6 +19,7 @@ package com.toshi.model.sofa;
 
 import android.support.annotation.Nullable;
 
+import com.toshi.model.local.Conversation;
 import com.toshi.model.local.SendState;
 import com.toshi.model.local.User;
 import com.toshi.model.network.SofaError;
@@ -29,10 +30,17 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import io.realm.RealmObject;
+import io.realm.RealmResults;
+import io.realm.annotations.Ignore;
+import io.realm.annotations.LinkingObjects;
 import io.realm.annotations.PrimaryKey;
 
 public class SofaMessage extends RealmObject {
 
+    private static final Pattern PAYLOAD_BODY_PATTERN = Pattern.compile("\\{.*\\}");
+    private static final Pattern LOCAL_ONLY_PAYLOAD_PATTERN =
+            Pattern.compile("\"" + SofaType.LOCAL_ONLY_PAYLOAD + "\":\\{.*?\\},");
+
     @PrimaryKey
     private String privateKey;
     private long creationTime;
@@ -42,6 +50,10 @@ public class SofaMessage extends RealmObject {
     private String attachmentFilePath;
     private User sender;
     private SofaError errorMessage;
+    @LinkingObjects("allMessages")
+    private final RealmResults<Conversation> conversations = null;
+    @Ignore
+    private ParsedPayload parsedPayload;
 
     public SofaMessage() {
         this.creationTime = System.currentTimeMillis();
@@ -67,6 +79,8 @@ public class SofaMessage extends RealmObject {
 
     public SofaMessage setPayload(final String payload) {
         this.payload = payload;
+        this.parsedPayload = null;
+        SofaAdapters.get().invalidateDecodedPayload(this.privateKey);
         return this;
     }
 
@@ -87,7 +101,14 @@ public class SofaMessage extends RealmObject {
     }
 
     public String getPayload() {
-        return cleanPayload(this.payload);
+        final String rawPayload = this.payload;
+        if (rawPayload == null) return null;
+        final ParsedPayload cachedPayload = this.parsedPayload;
+        // Managed objects can be changed by other threads, so the cache is checked against the stored value
+        if (cachedPayload != null && rawPayload.equals(cachedPayload.rawPayload)) return cachedPayload.body;
+        final ParsedPayload newPayload = new ParsedPayload(rawPayload, cleanPayload(rawPayload));
+        this.parsedPayload = newPayload;
+        return newPayload.body;
     }
 
     public String getPayloadWithHeaders() {
@@ -113,8 +134,7 @@ public class SofaMessage extends RealmObject {
     // Return message in the correct format for SOFA
     public String getAsSofaMessage() {
         // Strip away local-only data before sending via Signal
-        final String matcher = "\"" + SofaType.LOCAL_ONLY_PAYLOAD + "\":\\{.*?\\},";
-        return this.payload.replaceFirst(matcher, "");
+        return LOCAL_ONLY_PAYLOAD_PATTERN.matcher(this.payload).replaceFirst("");
     }
 
     public @SofaType.Type int getType() {
@@ -135,35 +155,30 @@ public class SofaMessage extends RealmObject {
         return this.sender!= null && this.sender.equals(sender);
     }
 
+    // Only works for managed messages; uses the backlink from Conversation.allMessages
+    // so the check doesn't depend on the number of messages in the conversation.
+    public boolean isInConversation(final String threadId) {
+        return this.conversations != null
+                && this.conversations.where().equalTo("threadId", threadId).count() > 0;
+    }
+
     public boolean hasAttachment() {
         return this.attachmentFilePath != null;
     }
 
-    private String cleanPayload(final String payload) {
-        final String regexString = "\\{.*\\}";
-        final Pattern pattern = Pattern.compile(regexString);
-        final Matcher m = pattern.matcher(payload);
+    // Strips the SOFA header, leaving the JSON body of the payload
+    public static String cleanPayload(final String payload) {
+        final Matcher m = PAYLOAD_BODY_PATTERN.matcher(payload);
         if (m.find()) {
             return m.group();
         }
         return payload;
     }
 
-    private String getSofaHeader(final String payload) {
-        final String regexString = "SOFA::.+?:";
-        final Pattern pattern = Pattern.compile(regexString);
-        final Matcher m = pattern.matcher(payload);
-        if (m.find()) {
-            return m.group();
-        }
-        return null;
-    }
-
     public SofaMessage makeNew(
             final User sender,
             final String sofaPayload) {
-        final String sofaHeader = getSofaHeader(sofaPayload);
-        final @SofaType.Type int sofaType = SofaType.getType(sofaHeader);
+        final @SofaType.Type int sofaType = SofaType.getTypeFromPayload(sofaPayload);
 
         return  setSendState(SendState.STATE_SENDING)
                 .setType(sofaType)
@@ -172,8 +187,7 @@ public class SofaMessage extends RealmObject {
     }
 
     public SofaMessage makeNew(final String sofaPayload) {
-        final String sofaHeader = getSofaHeader(sofaPayload);
-        final @SofaType.Type int sofaType = SofaType.getType(sofaHeader);
+        final @SofaType.Type int sofaType = SofaType.getTypeFromPayload(sofaPayload);
 
         return setType(sofaType)
                 .setPayload(sofaPayload);
@@ -236,4 +250,15 @@ public class SofaMessage extends RealmObject {
         if (this.errorMessage != null) this.errorMessage.deleteFromRealm();
         deleteFromRealm();
     }
+
+    // The JSON body of a payload, together with the raw payload it was extracted from
+    private static class ParsedPayload {
+        private final String rawPayload;
+        private final String body;
+
+        private ParsedPayload(final String rawPayload, final String body) {
+            this.rawPayload = rawPayload;
+            this.body = body;
+        }
+    }
 }
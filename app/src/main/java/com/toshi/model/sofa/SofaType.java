@@ -57,6 +57,7 @@ public class SofaType {
     /* package */ static final String PAYMENT_ADDRESS = "paymentAddress";
     /* package */ static final String LANGUAGE = "language";
 
+    private static final String sofa_header_prefix = "SOFA::";
     private static final String plain_text = "SOFA::Message:";
     private static final String command_request = "SOFA::Command:";
     private static final String payment_request = "SOFA::PaymentRequest:";
@@ -83,6 +84,58 @@ public class SofaType {
         }
     }
 
+    /**
+     * Finds the first SOFA header in a payload without running a regex. Matches the same
+     * header as the pattern {@code SOFA::.+?:}.
+     *
+     * @param payload   the raw payload, including the header
+     * @return          the index just past the header, or -1 if the payload has no header
+     */
+    public static int findHeaderEnd(final String payload) {
+        final int headerStart = findHeaderStart(payload);
+        if (headerStart == -1) return -1;
+        return findHeaderEnd(payload, headerStart + sofa_header_prefix.length());
+    }
+
+    /**
+     * Finds where the header found by {@link #findHeaderEnd(String)} starts. This is not always
+     * the first {@code SOFA::} in the payload, as that one may not be followed by a valid type.
+     *
+     * @param payload   the raw payload, including the header
+     * @return          the index of the header, or -1 if the payload has no header
+     */
+    public static int findHeaderStart(final String payload) {
+        if (payload == null) return -1;
+        int headerStart = payload.indexOf(sofa_header_prefix);
+        while (headerStart != -1) {
+            if (findHeaderEnd(payload, headerStart + sofa_header_prefix.length()) != -1) return headerStart;
+            headerStart = payload.indexOf(sofa_header_prefix, headerStart + 1);
+        }
+        return -1;
+    }
+
+    private static int findHeaderEnd(final String payload, final int typeStart) {
+        // The type name needs at least one character, which itself may be a colon
+        if (typeStart >= payload.length() || isLineTerminator(payload.charAt(typeStart))) return -1;
+        for (int i = typeStart + 1; i < payload.length(); i++) {
+            final char c = payload.charAt(i);
+            if (c == ':') return i + 1;
+            if (isLineTerminator(c)) return -1;
+        }
+        return -1;
+    }
+
+    private static boolean isLineTerminator(final char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    public static @Type int getTypeFromPayload(final String payload) {
+        final int headerStart = findHeaderStart(payload);
+        if (headerStart == -1) return UNKNOWN;
+        final int headerEnd = findHeaderEnd(payload, headerStart + sofa_header_prefix.length());
+        return getType(payload.substring(headerStart, headerEnd));
+    }
+
     public static @Type int getType(final String header) {
         if (header == null) return UNKNOWN;
         switch (header) {
@@ -33,4 +33,9 @@ public class ERC20TokenPayment extends Payment {
     public String getContractAddress() {
         return this.contractAddress;
     }
+
+    @Override
+    public ERC20TokenPayment copy() {
+        return copyInto(new ERC20TokenPayment(this.value, this.contractAddress, this.toAddress, this.fromAddress));
+    }
 }
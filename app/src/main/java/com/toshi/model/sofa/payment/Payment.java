@@ -121,6 +121,24 @@ public class Payment {
         return this.androidClientSideCustomData.localPrice;
     }
 
+    public Payment copy() {
+        return copyInto(new Payment());
+    }
+
+    /* package */ <T extends Payment> T copyInto(final T copy) {
+        // Private fields can't be reached through a type variable
+        final Payment target = copy;
+        target.value = this.value;
+        target.toAddress = this.toAddress;
+        target.fromAddress = this.fromAddress;
+        target.txHash = this.txHash;
+        target.status = this.status;
+        if (this.androidClientSideCustomData != null) {
+            target.setLocalPrice(this.androidClientSideCustomData.localPrice);
+        }
+        return copy;
+    }
+
     public String toUserVisibleString(final boolean sentByLocal, final @SendState.State int sentStatus) {
         final @StringRes int successMessageId = sentByLocal
                 ? R.string.latest_message__payment_outgoing
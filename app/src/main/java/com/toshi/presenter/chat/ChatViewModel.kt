@@ -19,6 +19,7 @@ package com.toshi.presenter.chat
 
 import android.arch.lifecycle.MutableLiveData
 import android.arch.lifecycle.ViewModel
+import com.toshi.BuildConfig
 import com.toshi.R
 import com.toshi.extensions.isGroupId
 import com.toshi.manager.messageQueue.AsyncOutgoingMessageQueue
@@ -28,6 +29,8 @@ import com.toshi.manager.model.ResendToshiPaymentTask
 import com.toshi.manager.model.ToshiPaymentTask
 import com.toshi.model.local.Conversation
 import com.toshi.model.local.Group
+import com.toshi.model.local.MessagePage
+import com.toshi.model.local.MessageRenderModel
 import com.toshi.model.local.Recipient
 import com.toshi.model.local.User
 import com.toshi.model.local.network.Networks
@@ -38,15 +41,24 @@ import com.toshi.util.FileUtil
 import com.toshi.util.SingleLiveEvent
 import com.toshi.util.logging.LogUtil
 import com.toshi.view.BaseApplication
+import com.toshi.view.adapter.MessageRenderModelBuilder
+import com.toshi.view.adapter.RenderedMessages
 import com.toshi.view.notification.ChatNotificationManager
+import io.realm.RealmConfiguration
 import rx.Single
+import rx.Subscription
 import rx.android.schedulers.AndroidSchedulers
 import rx.schedulers.Schedulers
 import rx.subscriptions.CompositeSubscription
 import java.io.File
+import java.util.concurrent.Executors
 
 class ChatViewModel(private val threadId: String) : ViewModel() {
 
+    companion object {
+        private const val PAGE_SIZE = 50
+    }
+
     private val subscriptions by lazy { CompositeSubscription() }
     private val recipientManager by lazy { BaseApplication.get().recipientManager }
     private val userManager by lazy { BaseApplication.get().userManager }
@@ -54,8 +66,20 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
     private val toshiManager by lazy { BaseApplication.get().toshiManager }
     private val chatManager by lazy { BaseApplication.get().chatManager }
     private val chatMessageQueue by lazy { ChatMessageQueue(AsyncOutgoingMessageQueue()) }
+    // Render models are built one list at a time, so each diff is against the list built before it
+    private val renderExecutor = Executors.newSingleThreadExecutor()
+    private val renderScheduler by lazy { Schedulers.from(renderExecutor) }
+    private val renderModelBuilder by lazy { MessageRenderModelBuilder() }
 
     var capturedImageName: String? = null
+    private var oldestLoadedIndex = Int.MAX_VALUE
+    private var isLoadingOlderMessages = false
+    private var loadedMessages = emptyList<SofaMessage>()
+    // Set while the messages are rendered live from Realm instead of being paged in
+    private var liveMessageRenderer: LiveMessageRenderer? = null
+    private var liveModels = emptyList<MessageRenderModel>()
+    private var pendingNewMessage: SofaMessage? = null
+    private var liveRealmSubscription: Subscription? = null
     val recipient by lazy { MutableLiveData<Recipient>() }
     val conversation by lazy { SingleLiveEvent<Conversation>() }
     val recipientError by lazy { SingleLiveEvent<Int>() }
@@ -64,10 +88,9 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
     val respondToPaymentRequest by lazy { SingleLiveEvent<SofaMessage>() }
     val acceptConversation by lazy { SingleLiveEvent<Unit>() }
     val declineConversation by lazy { SingleLiveEvent<Unit>() }
-    val updateMessage by lazy { SingleLiveEvent<SofaMessage>() }
     val updateConversation by lazy { SingleLiveEvent<Conversation>() }
     val newMessage by lazy { SingleLiveEvent<SofaMessage>() }
-    val deleteMessage by lazy { SingleLiveEvent<SofaMessage>() }
+    val renderedMessages by lazy { SingleLiveEvent<RenderedMessages>() }
     val deleteError by lazy { SingleLiveEvent<Int>() }
     val error by lazy { SingleLiveEvent<Int>() }
     val viewProfileWithId by lazy { SingleLiveEvent<String>() }
@@ -139,7 +162,7 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
                 .observeOn(AndroidSchedulers.mainThread())
                 .map { it.sofaMessage }
                 .subscribe(
-                        { updateMessage.value = it },
+                        { handleUpdatedMessage(it) },
                         { LogUtil.exception(it) }
                 )
 
@@ -155,7 +178,7 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        { newMessage.value = it },
+                        { handleNewMessage(it) },
                         { LogUtil.exception(it) }
                 )
 
@@ -164,7 +187,7 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        { updateMessage.value = it },
+                        { handleUpdatedMessage(it) },
                         { LogUtil.exception(it) }
                 )
 
@@ -184,7 +207,7 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        { deleteMessage.value = it },
+                        { handleDeletedMessage(it) },
                         { LogUtil.exception(it) }
                 )
 
@@ -196,22 +219,183 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
         )
     }
 
+    private fun handleNewMessage(sofaMessage: SofaMessage) {
+        if (liveMessageRenderer != null) {
+            handleLiveNewMessage(sofaMessage)
+            return
+        }
+        val index = loadedMessages.indexOf(sofaMessage)
+        val messages = if (index == -1) loadedMessages + sofaMessage else replaceAt(index, sofaMessage)
+        renderMessages(messages) { newMessage.value = sofaMessage }
+    }
+
+    // Updates can refer to older messages that haven't been paged in yet. Those are
+    // rendered in their right place once their page is loaded, so they are ignored here.
+    // In live mode Realm reports every change itself.
+    private fun handleUpdatedMessage(sofaMessage: SofaMessage) {
+        if (liveMessageRenderer != null) return
+        val index = loadedMessages.indexOf(sofaMessage)
+        if (index != -1) renderMessages(replaceAt(index, sofaMessage))
+    }
+
+    private fun handleDeletedMessage(sofaMessage: SofaMessage) {
+        if (liveMessageRenderer == null) renderMessages(loadedMessages - sofaMessage)
+    }
+
+    private fun replaceAt(index: Int, sofaMessage: SofaMessage): List<SofaMessage> {
+        return loadedMessages.toMutableList().apply { set(index, sofaMessage) }
+    }
+
+    /**
+     * Builds the render models for [messages] and diffs them against the previous list on
+     * the render thread, then publishes the result on the main thread. [onRendered] runs
+     * right after publishing, so it sees the adapter with the new list.
+     */
+    private fun renderMessages(messages: List<SofaMessage>, onRendered: (() -> Unit)? = null) {
+        loadedMessages = messages
+        val sub = Single.fromCallable { renderModelBuilder.render(messages, getCurrentLocalUser()) }
+                .subscribeOn(renderScheduler)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        {
+                            renderedMessages.value = it
+                            onRendered?.invoke()
+                        },
+                        { LogUtil.exception(it) }
+                )
+
+        subscriptions.add(sub)
+    }
+
     fun loadConversation() {
         val sub = getRecipient()
                 .flatMap { chatManager.loadConversationAndResetUnreadCounter(threadId) }
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        { handleConversation(it) },
+                        { handleLoadedConversation(it) },
+                        { LogUtil.exception(it) }
+                )
+
+        subscriptions.add(sub)
+    }
+
+    private fun handleLoadedConversation(conversation: Conversation) {
+        val realmConfig = toshiManager.currentRealmConfiguration
+        if (BuildConfig.LIVE_MESSAGES_ENABLED && realmConfig != null) renderLiveMessages(conversation, realmConfig)
+        else loadFirstPage(conversation)
+    }
+
+    private fun loadFirstPage(conversation: Conversation) {
+        stopLiveMessages()
+        val limit = Math.max(PAGE_SIZE, conversation.numberOfUnread + 1)
+        val sub = chatManager
+                .loadMessagesPage(threadId, Int.MAX_VALUE, limit)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        { handleConversation(conversation, it) },
+                        { LogUtil.exception(it) }
+                )
+
+        subscriptions.add(sub)
+    }
+
+    // Older messages are paged in by the renderer, see loadOlderMessages.
+    // A recreated screen starts over, because its adapter needs the whole list again.
+    private fun renderLiveMessages(conversation: Conversation, realmConfig: RealmConfiguration) {
+        stopLiveMessages()
+        val renderer = LiveMessageRenderer(threadId)
+        liveMessageRenderer = renderer
+        liveModels = emptyList()
+        oldestLoadedIndex = Int.MAX_VALUE
+        var isFirstRender = true
+        renderer.start(
+                realmConfig = realmConfig,
+                pageSize = Math.max(PAGE_SIZE, conversation.numberOfUnread + 1),
+                getLocalUser = { getCurrentLocalUser() },
+                onRendered = {
+                    handleLiveMessagesRendered(conversation, it, isFirstRender)
+                    isFirstRender = false
+                },
+                // The conversation doesn't exist yet, or the database can't be opened
+                onUnavailable = { loadFirstPage(conversation) }
+        )
+        liveRealmSubscription = stopLiveMessagesWhenRealmChanges(realmConfig)
+    }
+
+    private fun handleLiveMessagesRendered(conversation: Conversation, rendered: RenderedMessages, isFirstRender: Boolean) {
+        liveModels = rendered.models
+        renderedMessages.value = rendered
+        if (isFirstRender) {
+            this.conversation.value = conversation
+            if (rendered.models.isEmpty()) tryInitAppConversation(conversation.recipient)
+        }
+        pendingNewMessage?.let { handleLiveNewMessage(it) }
+    }
+
+    // The new message event can arrive before or after Realm reports the message
+    private fun handleLiveNewMessage(sofaMessage: SofaMessage) {
+        val isRendered = liveModels.asReversed().any { it.sofaMessage == sofaMessage }
+        pendingNewMessage = if (isRendered) null else sofaMessage
+        if (isRendered) newMessage.value = sofaMessage
+    }
+
+    // Signing out removes the configuration, and its Realm has to be closed on every thread
+    private fun stopLiveMessagesWhenRealmChanges(realmConfig: RealmConfiguration): Subscription {
+        return toshiManager
+                .getRealmConfigurationChanges()
+                .filter { it != realmConfig }
+                .first()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        { stopLiveMessages() },
+                        { LogUtil.exception(it) }
+                )
+    }
+
+    private fun stopLiveMessages() {
+        // A stopped renderer never reports the page it was loading
+        if (liveMessageRenderer != null) isLoadingOlderMessages = false
+        liveMessageRenderer?.stop()
+        liveMessageRenderer = null
+        liveRealmSubscription?.unsubscribe()
+        liveRealmSubscription = null
+        pendingNewMessage = null
+    }
+
+    private fun handleConversation(conversation: Conversation, messagePage: MessagePage) {
+        oldestLoadedIndex = messagePage.startIndex
+        renderMessages(messagePage.messages) { this.conversation.value = conversation }
+        if (messagePage.messages.isEmpty()) tryInitAppConversation(conversation.recipient)
+    }
+
+    fun loadOlderMessages() {
+        if (isLoadingOlderMessages || oldestLoadedIndex <= 0) return
+        isLoadingOlderMessages = true
+
+        val renderer = liveMessageRenderer
+        if (renderer != null) {
+            renderer.loadOlder(PAGE_SIZE) {
+                oldestLoadedIndex = it
+                isLoadingOlderMessages = false
+            }
+            return
+        }
+
+        val sub = chatManager
+                .loadMessagesPage(threadId, oldestLoadedIndex, PAGE_SIZE)
+                .observeOn(AndroidSchedulers.mainThread())
+                .doAfterTerminate { isLoadingOlderMessages = false }
+                .subscribe(
+                        { handleOlderMessages(it) },
                         { LogUtil.exception(it) }
                 )
 
         subscriptions.add(sub)
     }
 
-    private fun handleConversation(conversation: Conversation) {
-        this.conversation.value = conversation
-        val isConversationEmpty = conversation.allMessages?.isEmpty() ?: true
-        if (isConversationEmpty) tryInitAppConversation(conversation.recipient)
+    private fun handleOlderMessages(messagePage: MessagePage) {
+        oldestLoadedIndex = messagePage.startIndex
+        renderMessages(messagePage.messages + loadedMessages)
     }
 
     private fun tryInitAppConversation(recipient: Recipient) {
@@ -348,7 +532,7 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
                 .deleteMessage(recipient, sofaMessage)
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        { deleteMessage.value = sofaMessage },
+                        { handleDeletedMessage(sofaMessage) },
                         { deleteError.value = R.string.delete_message_error }
                 )
 
@@ -442,6 +626,8 @@ class ChatViewModel(private val threadId: String) : ViewModel() {
         subscriptions.clear()
         chatMessageQueue.clear()
         stopListeningForMessageChanges()
+        stopLiveMessages()
+        renderExecutor.shutdown()
     }
 
     private fun stopListeningForMessageChanges() {
@@ -0,0 +1,281 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.presenter.chat
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import com.toshi.model.local.MessageRenderModel
+import com.toshi.model.local.User
+import com.toshi.model.sofa.SofaMessage
+import com.toshi.util.logging.LogUtil
+import com.toshi.view.BaseApplication
+import com.toshi.view.adapter.ListUpdateRecorder
+import com.toshi.view.adapter.MessageRenderModelBuilder
+import com.toshi.view.adapter.RenderedMessages
+import io.realm.OrderedCollectionChangeSet
+import io.realm.OrderedRealmCollectionChangeListener
+import io.realm.Realm
+import io.realm.RealmConfiguration
+import io.realm.RealmResults
+import java.util.Collections
+import java.util.TreeSet
+
+/**
+ * Renders the newest page of a conversation straight from live Realm results, on its own
+ * Looper thread, and pages in older messages on request like the paged chat does.
+ *
+ * Only the messages in the window are detached and rendered. After the first page, each Realm
+ * change set only detaches and rebuilds the messages it touches in the window, plus their
+ * neighbours, whose chain position may have changed; changes before the window only move it.
+ * The adapter gets the same range inserts, removals and changes, so nothing is diffed or
+ * sorted. Messages are detached because the models are bound, and handed to click listeners,
+ * on other threads.
+ */
+class LiveMessageRenderer(private val threadId: String) {
+
+    private val chatManager by lazy { BaseApplication.get().chatManager }
+    private val renderThread = HandlerThread("LiveMessageRenderer").apply { start() }
+    private val renderHandler = Handler(renderThread.looper)
+    private val mainHandler = Handler(Looper.getMainLooper())
+    @Volatile private var isStopped = false
+    private lateinit var getLocalUser: () -> User?
+    private lateinit var onRendered: (RenderedMessages) -> Unit
+
+    // Only used on the render thread. The lists hold the results from windowStart to the end.
+    private val renderModelBuilder = MessageRenderModelBuilder()
+    private val messages = ArrayList<SofaMessage>()
+    private val models = ArrayList<MessageRenderModel?>()
+    private var windowStart = 0
+    private var publishedModels = emptyList<MessageRenderModel>()
+    private var realm: Realm? = null
+    private var results: RealmResults<SofaMessage>? = null
+
+    /**
+     * Starts following the conversation, rendering the newest [pageSize] messages first.
+     * [onRendered] gets every new list of models, and [onUnavailable] is called instead if
+     * the conversation can't be read live; both are called on the main thread.
+     */
+    fun start(realmConfig: RealmConfiguration,
+              pageSize: Int,
+              getLocalUser: () -> User?,
+              onRendered: (RenderedMessages) -> Unit,
+              onUnavailable: () -> Unit) {
+        this.getLocalUser = getLocalUser
+        this.onRendered = onRendered
+        renderHandler.post {
+            val liveResults = openLiveMessages(realmConfig)
+            if (liveResults == null) {
+                postToMain { onUnavailable() }
+                return@post
+            }
+
+            val renderedMessages = renderNewest(liveResults, pageSize, getLocalUser())
+            postToMain { onRendered(renderedMessages) }
+            liveResults.addChangeListener(OrderedRealmCollectionChangeListener<RealmResults<SofaMessage>> { changedResults, changeSet ->
+                val changedMessages = applyChangeSet(changedResults, changeSet, getLocalUser())
+                postToMain { onRendered(changedMessages) }
+            })
+        }
+    }
+
+    /**
+     * Renders up to [pageSize] messages older than the ones rendered so far. [onLoaded] is
+     * called on the main thread once they have been delivered, with the number of older
+     * messages that are still left.
+     */
+    fun loadOlder(pageSize: Int, onLoaded: (Int) -> Unit) {
+        renderHandler.post {
+            val liveResults = results ?: return@post
+            if (windowStart > 0) {
+                val renderedMessages = renderOlder(liveResults, pageSize, getLocalUser())
+                postToMain { onRendered(renderedMessages) }
+            }
+            val olderMessagesLeft = windowStart
+            postToMain { onLoaded(olderMessagesLeft) }
+        }
+    }
+
+    private fun openLiveMessages(realmConfig: RealmConfiguration): RealmResults<SofaMessage>? {
+        val liveRealm = try {
+            Realm.getInstance(realmConfig)
+        } catch (e: RuntimeException) {
+            LogUtil.w("Unable to open Realm for live messages $e")
+            return null
+        }
+
+        val liveResults = chatManager.loadLiveMessages(liveRealm, threadId)
+        if (liveResults == null) {
+            liveRealm.close()
+            return null
+        }
+
+        realm = liveRealm
+        results = liveResults
+        return liveResults
+    }
+
+    private fun renderNewest(liveResults: RealmResults<SofaMessage>, pageSize: Int, localUser: User?): RenderedMessages {
+        val updates = ListUpdateRecorder()
+        if (messages.isNotEmpty()) updates.onRemoved(0, messages.size)
+        messages.forEach { renderModelBuilder.forget(it.privateKey) }
+        messages.clear()
+        models.clear()
+
+        windowStart = Math.max(0, liveResults.size - pageSize)
+        messages.addAll(copy(liveResults, windowStart, liveResults.size))
+        messages.indices.mapTo(models) { buildModel(it, localUser) }
+        if (messages.isNotEmpty()) updates.onInserted(0, messages.size)
+        return publish(updates)
+    }
+
+    private fun renderOlder(liveResults: RealmResults<SofaMessage>, pageSize: Int, localUser: User?): RenderedMessages {
+        val updates = ListUpdateRecorder()
+        val start = Math.max(0, windowStart - pageSize)
+        val olderMessages = copy(liveResults, start, windowStart)
+        messages.addAll(0, olderMessages)
+        models.addAll(0, Collections.nCopies<MessageRenderModel?>(olderMessages.size, null))
+        updates.onInserted(0, olderMessages.size)
+        windowStart = start
+        // The message that used to be the oldest one now has a neighbour before it
+        rebuildModels(0..olderMessages.size, updates, localUser)
+        return publish(updates)
+    }
+
+    // Deletions use positions from before the change, insertions and changes positions from after it.
+    // Positions in the results are turned into positions in the window by subtracting windowStart.
+    private fun applyChangeSet(liveResults: RealmResults<SofaMessage>,
+                               changeSet: OrderedCollectionChangeSet?,
+                               localUser: User?): RenderedMessages {
+        if (changeSet == null) return renderNewest(liveResults, liveResults.size - windowStart, localUser)
+
+        val updates = ListUpdateRecorder()
+        val dirtyPositions = TreeSet<Int>()
+        changeSet.deletionRanges.forEach { range ->
+            toNewPosition(range.startIndex - 1, changeSet)?.let { dirtyPositions.add(it) }
+            toNewPosition(range.startIndex + range.length, changeSet)?.let { dirtyPositions.add(it) }
+        }
+
+        // Messages deleted before the window were never rendered, they only move the window
+        var deletedBeforeWindow = 0
+        changeSet.deletionRanges.reversed().forEach { range ->
+            val end = range.startIndex + range.length
+            deletedBeforeWindow += Math.max(0, Math.min(end, windowStart) - range.startIndex)
+            val start = Math.max(range.startIndex, windowStart)
+            if (start >= end) return@forEach
+            messages.subList(start - windowStart, end - windowStart).forEach { renderModelBuilder.forget(it.privateKey) }
+            messages.subList(start - windowStart, end - windowStart).clear()
+            models.subList(start - windowStart, end - windowStart).clear()
+            updates.onRemoved(start - windowStart, end - start)
+        }
+        windowStart -= deletedBeforeWindow
+
+        changeSet.insertionRanges.forEach { range ->
+            if (range.startIndex < windowStart) {
+                windowStart += range.length
+                return@forEach
+            }
+            val end = range.startIndex + range.length
+            messages.addAll(range.startIndex - windowStart, copy(liveResults, range.startIndex, end))
+            models.addAll(range.startIndex - windowStart, Collections.nCopies<MessageRenderModel?>(range.length, null))
+            updates.onInserted(range.startIndex - windowStart, range.length)
+            dirtyPositions.addAll(range.startIndex - 1..end)
+        }
+
+        changeSet.changeRanges.forEach { range ->
+            val start = Math.max(range.startIndex, windowStart)
+            val end = range.startIndex + range.length
+            if (start >= end) return@forEach
+            copy(liveResults, start, end).forEachIndexed { offset, sofaMessage ->
+                messages[start - windowStart + offset] = sofaMessage
+            }
+            dirtyPositions.addAll(start - 1..end)
+        }
+
+        rebuildModels(dirtyPositions.map { it - windowStart }, updates, localUser)
+        return publish(updates)
+    }
+
+    private fun rebuildModels(positions: Iterable<Int>, updates: ListUpdateRecorder, localUser: User?) {
+        positions
+                .filter { it in messages.indices }
+                .forEach { position ->
+                    val model = buildModel(position, localUser)
+                    val previousModel = models.set(position, model)
+                    // Inserted positions have already been announced
+                    val isChanged = previousModel != null && !previousModel.hasSameContent(model)
+                    if (isChanged) updates.onChanged(position, 1, null)
+                }
+    }
+
+    // Maps a position from before the change to after it, or null if it was deleted
+    private fun toNewPosition(oldPosition: Int, changeSet: OrderedCollectionChangeSet): Int? {
+        if (oldPosition < 0) return null
+        var position = oldPosition
+        changeSet.deletionRanges.forEach { range ->
+            if (oldPosition >= range.startIndex + range.length) position -= range.length
+            else if (oldPosition >= range.startIndex) return null
+        }
+        changeSet.insertionRanges.forEach { range ->
+            if (range.startIndex <= position) position += range.length
+        }
+        return position
+    }
+
+    private fun copy(liveResults: RealmResults<SofaMessage>, start: Int, end: Int): List<SofaMessage> {
+        val liveRealm = realm ?: throw IllegalStateException("Live messages are read without a Realm")
+        return liveRealm.copyFromRealm(liveResults.subList(start, end))
+    }
+
+    private fun buildModel(position: Int, localUser: User?): MessageRenderModel {
+        return renderModelBuilder.build(
+                messages[position],
+                messages.getOrNull(position - 1),
+                messages.getOrNull(position + 1),
+                localUser
+        )
+    }
+
+    // The lists keep changing on this thread, so the adapter gets its own list of the models
+    private fun publish(updates: ListUpdateRecorder): RenderedMessages {
+        val previousModels = publishedModels
+        val renderedModels = models.map { requireNotNull(it) }
+        publishedModels = renderedModels
+        return RenderedMessages(renderedModels, previousModels) { updates.replayTo(it) }
+    }
+
+    private fun postToMain(action: () -> Unit) {
+        mainHandler.post { if (!isStopped) action() }
+    }
+
+    /**
+     * Stops following the conversation and closes the Realm. Nothing is delivered after this.
+     */
+    fun stop() {
+        isStopped = true
+        renderHandler.post { release() }
+        renderThread.quitSafely()
+    }
+
+    private fun release() {
+        results?.removeAllChangeListeners()
+        results = null
+        realm?.close()
+        realm = null
+    }
+}
@@ -68,7 +68,7 @@ Observable<PendingTransaction> observable = pto.init(user); // Only PendingTrans
     private boolean shouldBeBroadcast(final PendingTransaction pendingTransaction) {
         try {
             final SofaMessage sofaMessage = pendingTransaction.getSofaMessage();
-            final Payment payment = SofaAdapters.get().paymentFrom(sofaMessage.getPayload());
+            final Payment payment = SofaAdapters.get().paymentFrom(sofaMessage);
             final @Payment.PaymentDirection int paymentDirection =
                     payment.getPaymentDirection()
                             .toBlocking()
@@ -89,10 +89,10 @@ public class GcmMessageReceiver extends FirebaseMessagingService {
             final SofaMessage sofaMessage = new SofaMessage().makeNew(messageBody);
 
             if (sofaMessage.getType() == SofaType.PAYMENT) {
-                final Payment payment = SofaAdapters.get().paymentFrom(sofaMessage.getPayload());
+                final Payment payment = SofaAdapters.get().paymentFrom(sofaMessage);
                 checkIfUserIsBlocked(payment);
             } else if (sofaMessage.getType() == SofaType.TOKEN_PAYMENT) {
-                final Payment payment = SofaAdapters.get().tokenPaymentFrom(sofaMessage.getPayload());
+                final Payment payment = SofaAdapters.get().tokenPaymentFrom(sofaMessage);
                 addIncomingPayment(payment);
             } else {
                 tryShowIncomingMessage();
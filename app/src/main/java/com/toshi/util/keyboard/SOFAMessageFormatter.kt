@@ -37,15 +37,15 @@ class SOFAMessageFormatter(
         try {
             when (sofaMessage.type) {
                 SofaType.PLAIN_TEXT -> {
-                    val message = SofaAdapters.get().messageFrom(sofaMessage.payload)
+                    val message = SofaAdapters.get().messageFrom(sofaMessage)
                     return message.toUserVisibleString(sentByLocal, sofaMessage.hasAttachment())
                 }
                 SofaType.PAYMENT -> {
-                    val payment = SofaAdapters.get().paymentFrom(sofaMessage.payload)
+                    val payment = SofaAdapters.get().paymentFrom(sofaMessage)
                     return payment.toUserVisibleString(sentByLocal, sofaMessage.sendState)
                 }
                 SofaType.PAYMENT_REQUEST -> {
-                    val request = SofaAdapters.get().txRequestFrom(sofaMessage.payload)
+                    val request = SofaAdapters.get().txRequestFrom(sofaMessage)
                     return request.toUserVisibleString(sentByLocal, sofaMessage.sendState)
                 }
                 SofaType.LOCAL_STATUS_MESSAGE -> {
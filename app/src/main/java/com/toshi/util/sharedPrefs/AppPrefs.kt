@@ -30,6 +30,7 @@ import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.HAS_LOADED_APP_FIR
 import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.HAS_ONBOARDED
 import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.HAS_SIGNED_OUT
 import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.LOCAL_CURRENCY_CODE
+import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.SERVER_CLOCK_OFFSET
 import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.WAS_MIGRATED
 import com.toshi.view.BaseApplication
 
@@ -86,6 +87,12 @@ object AppPrefs : AppPrefsInterface {
 
     override fun hasClearedNotificationChannels(): Boolean = prefs.getBoolean(HAS_CLEARED_NOTIFICATION_CHANNELS, false)
 
+    override fun setServerClockOffset(offsetMillis: Long) = prefs.edit().putLong(SERVER_CLOCK_OFFSET, offsetMillis).apply()
+
+    override fun getServerClockOffset(): Long? {
+        return if (prefs.contains(SERVER_CLOCK_OFFSET)) prefs.getLong(SERVER_CLOCK_OFFSET, 0) else null
+    }
+
     // INFO: Does not clear all preferences.
     override fun clear() {
         prefs.edit()
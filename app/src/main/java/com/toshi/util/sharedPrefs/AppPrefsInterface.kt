@@ -31,6 +31,7 @@ interface AppPrefsInterface {
         const val FORCE_USER_UPDATE = "forceUserUpdate_2"
         const val CURRENT_NETWORK = "currentNetwork"
         const val HAS_CLEARED_NOTIFICATION_CHANNELS = "hasClearedNotificationChannels"
+        const val SERVER_CLOCK_OFFSET = "serverClockOffset"
     }
 
     fun hasOnboarded(): Boolean
@@ -53,5 +54,7 @@ interface AppPrefsInterface {
     fun getCurrentNetworkId(): String?
     fun setHasClearedNotificationChannels()
     fun hasClearedNotificationChannels(): Boolean
+    fun setServerClockOffset(offsetMillis: Long)
+    fun getServerClockOffset(): Long?
     fun clear()
 }
\ No newline at end of file
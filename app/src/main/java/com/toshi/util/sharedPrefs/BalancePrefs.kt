@@ -18,14 +18,22 @@
 package com.toshi.util.sharedPrefs
 
 import android.content.Context
+import com.toshi.model.local.CachedExchangeRate
 import com.toshi.model.network.Balance
+import com.toshi.model.network.ExchangeRate
 import com.toshi.util.FileNames
 import com.toshi.view.BaseApplication
+import java.math.BigDecimal
 
 class BalancePrefs : BalancePrefsInterface {
 
     companion object {
         private const val LAST_KNOWN_BALANCE = "lkb"
+        private const val EXCHANGE_RATE_FROM = "er_from_"
+        private const val EXCHANGE_RATE_TO = "er_to_"
+        private const val EXCHANGE_RATE = "er_rate_"
+        private const val EXCHANGE_RATE_TIMESTAMP = "er_timestamp_"
+        private const val EXCHANGE_RATE_FETCHED_AT = "er_fetched_at_"
     }
 
     private val prefs by lazy { BaseApplication.get().getSharedPreferences(FileNames.BALANCE_PREFS, Context.MODE_PRIVATE) }
@@ -40,5 +48,27 @@ class BalancePrefs : BalancePrefsInterface {
                 .apply()
     }
 
+    override fun readExchangeRate(code: String): CachedExchangeRate? {
+        val rate = prefs.getString("$EXCHANGE_RATE$code", null) ?: return null
+        val exchangeRate = ExchangeRate(
+                prefs.getString("$EXCHANGE_RATE_FROM$code", "ETH"),
+                prefs.getString("$EXCHANGE_RATE_TO$code", code),
+                BigDecimal(rate),
+                prefs.getInt("$EXCHANGE_RATE_TIMESTAMP$code", 0)
+        )
+        return CachedExchangeRate(exchangeRate, prefs.getLong("$EXCHANGE_RATE_FETCHED_AT$code", 0))
+    }
+
+    override fun writeExchangeRate(code: String, cachedExchangeRate: CachedExchangeRate) {
+        val exchangeRate = cachedExchangeRate.exchangeRate
+        prefs.edit()
+                .putString("$EXCHANGE_RATE_FROM$code", exchangeRate.from)
+                .putString("$EXCHANGE_RATE_TO$code", exchangeRate.to)
+                .putString("$EXCHANGE_RATE$code", exchangeRate.rate.toPlainString())
+                .putInt("$EXCHANGE_RATE_TIMESTAMP$code", exchangeRate.timestamp ?: 0)
+                .putLong("$EXCHANGE_RATE_FETCHED_AT$code", cachedExchangeRate.fetchedAtMillis)
+                .apply()
+    }
+
     override fun clear() = prefs.edit().clear().apply()
 }
\ No newline at end of file
@@ -17,10 +17,13 @@
 
 package com.toshi.util.sharedPrefs
 
+import com.toshi.model.local.CachedExchangeRate
 import com.toshi.model.network.Balance
 
 interface BalancePrefsInterface {
     fun readLastKnownBalance(walletIndex: Int): String
     fun writeLastKnownBalance(walletIndex: Int, balance: Balance)
+    fun readExchangeRate(code: String): CachedExchangeRate?
+    fun writeExchangeRate(code: String, cachedExchangeRate: CachedExchangeRate)
     fun clear()
 }
\ No newline at end of file
@@ -25,6 +25,7 @@ import com.toshi.extensions.commitInt
 import com.toshi.extensions.applyString
 import com.toshi.extensions.getString
 import com.toshi.util.FileNames
+import com.toshi.util.sharedPrefs.WalletPrefsInterface.Companion.DERIVED_KEYS
 import com.toshi.util.sharedPrefs.WalletPrefsInterface.Companion.MASTER_SEED
 import com.toshi.util.sharedPrefs.WalletPrefsInterface.Companion.WALLET_INDEX
 import com.toshi.view.BaseApplication
@@ -37,6 +38,10 @@ class WalletPrefs : WalletPrefsInterface {
 
     override fun setMasterSeed(masterSeed: String?) = prefs.applyString(MASTER_SEED, masterSeed)
 
+    override fun getDerivedKeys(): String? = prefs.getString(DERIVED_KEYS)
+
+    override fun setDerivedKeys(derivedKeys: String?) = prefs.applyString(DERIVED_KEYS, derivedKeys)
+
     override fun getCurrentWalletIndex(): Int = prefs.getInt(WALLET_INDEX, 0)
 
     override fun setCurrentWalletIndex(index: Int) { prefs.commitInt(WALLET_INDEX, index) }
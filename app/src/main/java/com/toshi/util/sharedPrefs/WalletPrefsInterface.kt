@@ -24,10 +24,13 @@ interface WalletPrefsInterface {
     companion object {
         const val MASTER_SEED = "ms"
         const val WALLET_INDEX = "wi"
+        const val DERIVED_KEYS = "dk"
     }
 
     fun getMasterSeed(): String?
     fun setMasterSeed(masterSeed: String?)
+    fun getDerivedKeys(): String?
+    fun setDerivedKeys(derivedKeys: String?)
     fun getCurrentWalletIndex(): Int
     fun setCurrentWalletIndex(index: Int)
     fun clear()
@@ -31,32 +31,33 @@ class ClickableSpanUtil {
                                  textView: TextView,
                                  webUrlListener: OnItemClickListener<String>,
                                  usernameListener: OnItemClickListener<String>) {
-            val spannableString = SpannableString(text)
-            var lastEndPos = 0
-            val keywordPattern = ChatKeywordFinder.getKeywordPattern()
-            val keywords = ChatKeywordFinder.findKeywords(text, keywordPattern)
+            val keywordSpans = ChatKeywordFinder.findKeywordSpans(text)
+            addClickableKeywords(text, keywordSpans, textView, webUrlListener, usernameListener)
+        }
 
-            for (keyword in keywords) {
-                val currentStartPos = text.indexOf(keyword.text, lastEndPos)
-                val currentEndPos = text.indexOf(keyword.text, lastEndPos) + keyword.text.length
+        fun addClickableKeywords(text: String,
+                                 keywordSpans: List<KeywordSpan>,
+                                 textView: TextView,
+                                 webUrlListener: OnItemClickListener<String>,
+                                 usernameListener: OnItemClickListener<String>) {
+            val spannableString = SpannableString(text)
 
+            for (keywordSpan in keywordSpans) {
                 spannableString.setSpan(object : SingleClickableSpan() {
                     override fun onSingleClick(view: View) {
                         handleKeywordClicked(
                                 view = view,
-                                keyword = keyword,
+                                keyword = keywordSpan.keyword,
                                 clickableSpan = this,
                                 webUrlListener = webUrlListener,
                                 usernameListener = usernameListener
                         )
                     }
                 },
-                        currentStartPos,
-                        currentEndPos,
+                        keywordSpan.start,
+                        keywordSpan.end,
                         Spanned.SPAN_INCLUSIVE_EXCLUSIVE
                 )
-
-                lastEndPos = currentEndPos
             }
 
             textView.text = spannableString
@@ -37,6 +37,25 @@ open class ChatKeywordFinder {
             return matches
         }
 
+        /**
+         * Finds the keywords in [text] together with where they are, so the
+         * spans can be set later without searching the text again.
+         */
+        fun findKeywordSpans(text: String): List<KeywordSpan> {
+            val keywords = findKeywords(text, getKeywordPattern())
+            if (keywords.isEmpty()) return emptyList()
+            val spans = ArrayList<KeywordSpan>(keywords.size)
+            var lastEndPos = 0
+            for (keyword in keywords) {
+                val start = text.indexOf(keyword.text, lastEndPos)
+                if (start < 0) continue
+                val end = start + keyword.text.length
+                spans.add(KeywordSpan(keyword, start, end))
+                lastEndPos = end
+            }
+            return spans
+        }
+
         private fun isWebUrl(text: String): Boolean {
             val regexResult = Regex(getWebUrlPattern()).find(text)
             return regexResult?.value === text
@@ -58,6 +77,12 @@ data class Keyword(
         val type: KeywordType
 )
 
+data class KeywordSpan(
+        val keyword: Keyword,
+        val start: Int,
+        val end: Int
+)
+
 enum class KeywordType {
     WEB_URL,
     USERNAME
@@ -18,6 +18,7 @@
 package com.toshi.util.uploader
 
 import com.toshi.manager.network.IdInterface
+import com.toshi.manager.network.ServerClock
 import com.toshi.model.local.User
 import com.toshi.util.FileUtil
 import okhttp3.MediaType
@@ -27,7 +28,8 @@ import rx.Single
 import java.io.File
 
 class FileUploader(
-        private val idService: IdInterface
+        private val idService: IdInterface,
+        private val serverClock: ServerClock = ServerClock.get()
 ) {
 
     companion object {
@@ -40,7 +42,7 @@ class FileUploader(
         val requestFile = RequestBody.create(mediaType, file)
         val body = MultipartBody.Part.createFormData(FORM_DATA_NAME, file.name, requestFile)
 
-        return idService.timestamp
+        return serverClock.getTimestamp(idService.timestamp)
                 .flatMap { idService.uploadFile(body, it.get()) }
     }
 }
\ No newline at end of file
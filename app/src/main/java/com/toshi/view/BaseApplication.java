@@ -41,6 +41,7 @@ import com.toshi.util.logging.LogUtil;
 
 import io.fabric.sdk.android.Fabric;
 import io.realm.Realm;
+import io.realm.RealmConfiguration;
 import rx.subjects.BehaviorSubject;
 import timber.log.Timber;
 
@@ -53,11 +54,19 @@ public final class BaseApplication extends MultiDexApplication implements Lifecy
     private ToshiManager toshiManager;
     private boolean inBackground = false;
 
+    /**
+     * Opens the Realm on the calling thread. Before initRealm has run this waits for the
+     * configuration, so work that can start while the app is starting should wait for
+     * ToshiManager.getRealmConfiguration() first instead of holding a thread here.
+     */
     public final Realm getRealm() {
         if (Thread.currentThread().getId() == 1) {
             LogUtil.w("DB call done on Main Thread. Move this to a background thread.");
         }
-        return this.toshiManager.getRealm().toBlocking().value();
+        final RealmConfiguration realmConfig = this.toshiManager.getCurrentRealmConfiguration();
+        if (realmConfig != null) return Realm.getInstance(realmConfig);
+        LogUtil.w("DB call done before the Realm configuration was ready. Waiting for it.");
+        return Realm.getInstance(this.toshiManager.getRealmConfiguration().toBlocking().value());
     }
 
     @Override
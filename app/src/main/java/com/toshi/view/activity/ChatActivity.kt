@@ -24,6 +24,7 @@ import android.arch.lifecycle.ViewModelProviders
 import android.content.Intent
 import android.os.Bundle
 import android.support.v7.app.AppCompatActivity
+import android.support.v7.widget.RecyclerView
 import android.text.TextUtils
 import android.view.View
 import android.view.animation.AnimationUtils
@@ -83,6 +84,7 @@ class ChatActivity : AppCompatActivity() {
         private const val CAPTURE_IMAGE = 4
         private const val CONFIRM_ATTACHMENT = 5
         private const val LAST_VISIBLE_MESSAGE_POSITION = "lastVisibleMessagePosition"
+        private const val LOAD_OLDER_MESSAGES_THRESHOLD = 10
 
         const val EXTRA__THREAD_ID = "remote_user_owner_address"
         const val EXTRA__PAYMENT_ACTION = "payment_action"
@@ -157,6 +159,22 @@ class ChatActivity : AppCompatActivity() {
         messagesList.adapter = messageAdapter
         messagesList.layoutManager = layoutManager
         messagesList.isScrollContainer = true
+        initScrollListener()
+    }
+
+    private fun initScrollListener() {
+        messagesList.addOnScrollListener(object : RecyclerView.OnScrollListener() {
+            override fun onScrolled(recyclerView: RecyclerView?, dx: Int, dy: Int) {
+                super.onScrolled(recyclerView, dx, dy)
+                handleScroll(dy)
+            }
+        })
+    }
+
+    private fun handleScroll(dy: Int) {
+        val isScrollingUp = dy < 0
+        val isNearTop = layoutManager.findFirstVisibleItemPosition() <= LOAD_OLDER_MESSAGES_THRESHOLD
+        if (isScrollingUp && isNearTop) viewModel.loadOlderMessages()
     }
 
     private fun initMessageAdapter(arePaymentButtonsEnabled: Boolean): MessageAdapter {
@@ -321,7 +339,7 @@ class ChatActivity : AppCompatActivity() {
         try {
             val sofaMessage = resendPaymentInfo.sofaMessage
             val receiver = resendPaymentInfo.receiver
-            val payment = SofaAdapters.get().paymentFrom(sofaMessage.payload)
+            val payment = SofaAdapters.get().paymentFrom(sofaMessage)
             chatPaymentHandler.showResendPaymentConfirmationDialog(receiver, payment) {
                 viewModel.resendPayment(sofaMessage, it)
             }
@@ -332,7 +350,7 @@ class ChatActivity : AppCompatActivity() {
 
     private fun showPaymentRequestConfirmationDialog(existingMessage: SofaMessage) {
         try {
-            val paymentRequest = SofaAdapters.get().txRequestFrom(existingMessage.payload)
+            val paymentRequest = SofaAdapters.get().txRequestFrom(existingMessage)
             chatPaymentHandler.showPaymentRequestConfirmationDialog(existingMessage.sender, paymentRequest) { paymentTask ->
                 viewModel.updatePaymentRequestState(existingMessage, PaymentRequest.ACCEPTED)
                 viewModel.sendPayment(paymentTask)
@@ -343,18 +361,16 @@ class ChatActivity : AppCompatActivity() {
     }
 
     private fun initMessageObservers() {
+        // Registered first, so the adapter is up to date before the events that follow a render
+        viewModel.renderedMessages.observe(this, Observer {
+            renderedMessages -> renderedMessages?.let { messageAdapter.setRenderedMessages(it) }
+        })
         viewModel.newMessage.observe(this, Observer {
             newMessage -> newMessage?.let { handleNewMessage(it) }
         })
-        viewModel.updateMessage.observe(this, Observer {
-            updatedMessage -> updatedMessage?.let { messageAdapter.updateMessage(it) }
-        })
         viewModel.updateConversation.observe(this, Observer {
             updatedMessage -> updatedMessage?.let { initToolbar(it.recipient) }
         })
-        viewModel.deleteMessage.observe(this, Observer {
-            deletedMessage -> deletedMessage?.let { messageAdapter.deleteMessage(it) }
-        })
         viewModel.deleteError.observe(this, Observer {
             if (it != null) toast(it)
         })
@@ -366,7 +382,6 @@ class ChatActivity : AppCompatActivity() {
     private fun handleNewMessage(sofaMessage: SofaMessage) {
         val isAccepted = viewModel.conversation.value?.conversationStatus?.isAccepted
         val isLocalUser = sofaMessage.isSentBy(viewModel.getCurrentLocalUser())
-        messageAdapter.updateMessage(sofaMessage)
         updateControlView(isAccepted == true)
         updateEmptyState()
         tryScrollToBottom(true)
@@ -375,7 +390,6 @@ class ChatActivity : AppCompatActivity() {
     }
 
     private fun handleConversation(conversation: Conversation) {
-        messageAdapter.setMessages(conversation.allMessages)
         val unreadScrollPosition = messageAdapter.itemCount - conversation.numberOfUnread
         val scrollPosition = if (conversation.numberOfUnread == 0) getSafePosition() else unreadScrollPosition
         messagesList.scrollToPosition(scrollPosition)
@@ -386,7 +400,7 @@ class ChatActivity : AppCompatActivity() {
 
     // Returns last known scroll position, or last position if unknown
     private fun getSafePosition(): Int {
-        if (lastVisibleMessagePosition > 0) return lastVisibleMessagePosition
+        if (lastVisibleMessagePosition > 0 && lastVisibleMessagePosition < messageAdapter.itemCount) return lastVisibleMessagePosition
         return if (messageAdapter.itemCount - 1 > 0) messageAdapter.itemCount - 1 else 0
     }
 
@@ -433,7 +447,7 @@ class ChatActivity : AppCompatActivity() {
         if (sofaMessage == null || TextUtils.isEmpty(sofaMessage.payload)) return
 
         try {
-            val message = SofaAdapters.get().messageFrom(sofaMessage.payload)
+            val message = SofaAdapters.get().messageFrom(sofaMessage)
             val notNullAndNotZero = message.controls != null && message.controls.size > 0
             controlView.hideView()
             if (notNullAndNotZero && isConversationAccepted) controlView.showControls(message.controls)
@@ -473,7 +487,7 @@ class ChatActivity : AppCompatActivity() {
     private fun handleKeyboardVisibility(sofaMessage: SofaMessage) {
         if (chatInput == null || sofaMessage.isSentBy(viewModel.getCurrentLocalUser())) return
         try {
-            val message = SofaAdapters.get().messageFrom(sofaMessage.payload)
+            val message = SofaAdapters.get().messageFrom(sofaMessage)
             if (message.shouldHideKeyboard()) hideKeyboard()
         } catch (e: IOException) {
             LogUtil.w("Error during handling visibility of keyboard $e")
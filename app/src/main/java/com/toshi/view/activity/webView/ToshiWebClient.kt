@@ -28,6 +28,7 @@ import android.webkit.WebResourceResponse
 import android.webkit.WebView
 import android.webkit.WebViewClient
 import com.toshi.R
+import com.toshi.manager.network.HttpClientFactory
 import com.toshi.model.local.network.Networks
 import com.toshi.util.logging.LogUtil
 import com.toshi.util.webView.WebViewCookieJar
@@ -73,7 +74,7 @@ class ToshiWebClient(
     private val httpClient by lazy { initOkHttpClient() }
 
     private fun initOkHttpClient(): OkHttpClient {
-        return OkHttpClient.Builder()
+        return HttpClientFactory.newBuilder()
                 .cookieJar(WebViewCookieJar())
                 .followRedirects(true)
                 .followSslRedirects(true)
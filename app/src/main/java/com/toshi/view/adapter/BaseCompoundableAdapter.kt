@@ -108,6 +108,33 @@ abstract class BaseCompoundableAdapter<VH : RecyclerView.ViewHolder, T> : Recycl
         notifyItemInserted(index)
     }
 
+    fun updateItemAt(index: Int, item: T) {
+        mutateItems { it[index] = item }
+        parent?.notifiyItemChanged(this, index)
+        notifyItemChanged(index)
+    }
+
+    fun moveOrInsertItem(item: T, index: Int) {
+        val previousIndex = items.indexOf(item)
+        mutateItems {
+            if (previousIndex >= 0) it.removeAt(previousIndex)
+            it.add(index, item)
+        }
+
+        if (previousIndex < 0) {
+            parent?.notifyItemInserted(this, index)
+            notifyItemInserted(index)
+            return
+        }
+
+        if (previousIndex != index) {
+            parent?.notifyItemMoved(this, previousIndex, index)
+            notifyItemMoved(previousIndex, index)
+        }
+        parent?.notifiyItemChanged(this, index)
+        notifyItemChanged(index)
+    }
+
     fun removeItem(item: T) {
         if (!items.contains(item)) {
             return
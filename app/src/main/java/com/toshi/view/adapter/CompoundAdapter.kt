@@ -182,6 +182,10 @@ class CompoundAdapter(
         notifyItemInserted(compoundIndexOfItem(childAdapter, adapterIndex))
     }
 
+    fun notifyItemMoved(childAdapter: CompoundableAdapter, fromAdapterIndex: Int, toAdapterIndex: Int) {
+        notifyItemMoved(compoundIndexOfItem(childAdapter, fromAdapterIndex), compoundIndexOfItem(childAdapter, toAdapterIndex))
+    }
+
     fun notifyDataSetChanged(childAdapter: CompoundableAdapter) {
         notifyDataSetChanged()
     }
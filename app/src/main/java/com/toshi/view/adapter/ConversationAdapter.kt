@@ -21,25 +21,40 @@ import android.support.v7.widget.RecyclerView
 import android.view.LayoutInflater
 import android.view.ViewGroup
 import com.toshi.R
-import com.toshi.model.local.Conversation
+import com.toshi.model.local.ConversationSummary
 import com.toshi.model.local.User
 import com.toshi.util.keyboard.SOFAMessageFormatter
 import com.toshi.view.adapter.viewholder.ThreadViewHolder
 
 class ConversationAdapter(
-        private val onItemClickListener: (Conversation) -> Unit,
-        private val onItemLongClickListener: (Conversation) -> Unit,
-        private val onItemDeleted: (Conversation) -> Unit
-) : BaseCompoundableAdapter<ThreadViewHolder, Conversation>() {
+        private val onItemClickListener: (ConversationSummary) -> Unit,
+        private val onItemLongClickListener: (ConversationSummary) -> Unit,
+        private val onItemDeleted: (ConversationSummary) -> Unit
+) : BaseCompoundableAdapter<ThreadViewHolder, ConversationSummary>() {
 
     private var messageFormatter: SOFAMessageFormatter? = null
 
-    fun setItemList(localUser: User?, items: List<Conversation>) {
+    fun setItemList(localUser: User?, items: List<ConversationSummary>) {
         initMessageFormatter(localUser)
         val filteredItems = items.filter { !it.isRecipientInvalid } // Don't show conversations with invalid recipients.
         setItemList(filteredItems)
     }
 
+    // Keeps the list sorted by update time, and only notifies the rows that changed
+    fun addOrUpdateConversation(conversation: ConversationSummary) {
+        if (conversation.isRecipientInvalid) {
+            removeItem(conversation)
+            return
+        }
+        val otherConversations = (0 until itemCount)
+                .map { itemAt(it) }
+                .filter { it != conversation }
+        val index = otherConversations
+                .indexOfFirst { it.updatedTime < conversation.updatedTime }
+                .let { if (it < 0) otherConversations.size else it }
+        moveOrInsertItem(conversation, index)
+    }
+
     private fun initMessageFormatter(localUser: User?) {
         if (messageFormatter != null) return
         messageFormatter = SOFAMessageFormatter(localUser)
@@ -66,11 +81,11 @@ class ConversationAdapter(
         holder.setOnItemLongClickListener(conversation, onItemLongClickListener)
     }
 
-    private fun formatLatestMessage(conversation: Conversation): String {
+    private fun formatLatestMessage(conversation: ConversationSummary): String {
         return if (conversation.latestMessage != null) {
             messageFormatter?.formatMessage(conversation.latestMessage) ?: ""
         } else ""
     }
 
-    override fun deleteItem(item: Conversation) = onItemDeleted(item)
+    override fun deleteItem(item: ConversationSummary) = onItemDeleted(item)
 }
\ No newline at end of file
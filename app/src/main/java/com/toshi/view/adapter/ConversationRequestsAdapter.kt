@@ -21,20 +21,23 @@ import android.support.v7.widget.RecyclerView
 import android.view.LayoutInflater
 import android.view.ViewGroup
 import com.toshi.R
-import com.toshi.model.local.Conversation
+import com.toshi.model.local.ConversationSummary
 import com.toshi.view.adapter.viewholder.ConversationRequestsViewHolder
 
 class ConversationRequestsAdapter(
         private val onRequestsClickListener: () -> Unit
 ) : BaseCompoundableAdapter<ConversationRequestsViewHolder, Int>() {
 
-    private var unacceptedConversations: List<Conversation>? = null
+    private var unacceptedConversations: List<ConversationSummary>? = null
 
-    fun setUnacceptedConversations(conversations: List<Conversation>) {
+    fun setUnacceptedConversations(conversations: List<ConversationSummary>) {
         val priorUnaccepted = unacceptedConversations?.count() ?: 0
         unacceptedConversations = conversations
 
-        if (conversations.count() > 0) {
+        if (conversations.count() > 0 && priorUnaccepted > 0) {
+            // The requests row is already showing, so only rebind it
+            updateItemAt(0, conversations.count())
+        } else if (conversations.count() > 0) {
             setItemList(listOf(conversations.count()))
         } else {
             // Simply setting the empty list can cause a crash
@@ -48,7 +51,7 @@ class ConversationRequestsAdapter(
         }
     }
 
-    fun removeConversation(conversation: Conversation) {
+    fun removeConversation(conversation: ConversationSummary) {
         unacceptedConversations?.let { unaccepted ->
             if (!unaccepted.contains(conversation)) {
                 return
@@ -58,7 +61,7 @@ class ConversationRequestsAdapter(
         }
     }
 
-    fun addOrUpdateConversation(conversation: Conversation) {
+    fun addOrUpdateConversation(conversation: ConversationSummary) {
         unacceptedConversations?.let { updated ->
             val existing = updated.firstOrNull { current -> current.threadId == conversation.threadId }
             if (existing != null) {
@@ -73,7 +76,7 @@ class ConversationRequestsAdapter(
         }
     }
 
-    private fun mutateConversations(action: (MutableList<Conversation>) -> Unit) {
+    private fun mutateConversations(action: (MutableList<ConversationSummary>) -> Unit) {
         unacceptedConversations?.let {
             val mutableConversations = it.toMutableList()
             action(mutableConversations)
@@ -0,0 +1,46 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.view.adapter
+
+import android.support.v7.util.ListUpdateCallback
+
+/**
+ * Records list updates so they can be replayed later, on another thread.
+ */
+class ListUpdateRecorder : ListUpdateCallback {
+
+    private val updates = mutableListOf<(ListUpdateCallback) -> Unit>()
+
+    override fun onInserted(position: Int, count: Int) {
+        updates.add { it.onInserted(position, count) }
+    }
+
+    override fun onRemoved(position: Int, count: Int) {
+        updates.add { it.onRemoved(position, count) }
+    }
+
+    override fun onMoved(fromPosition: Int, toPosition: Int) {
+        updates.add { it.onMoved(fromPosition, toPosition) }
+    }
+
+    override fun onChanged(position: Int, count: Int, payload: Any?) {
+        updates.add { it.onChanged(position, count, payload) }
+    }
+
+    fun replayTo(callback: ListUpdateCallback) = updates.forEach { it(callback) }
+}
@@ -18,24 +18,18 @@
 package com.toshi.view.adapter;
 
 import android.support.annotation.Nullable;
+import android.support.v7.util.AdapterListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import com.toshi.R;
-import com.toshi.model.local.ChainPosition;
-import com.toshi.model.local.LocalStatusMessage;
+import com.toshi.model.local.MessageRenderModel;
 import com.toshi.model.local.Recipient;
-import com.toshi.model.local.User;
-import com.toshi.model.sofa.Message;
-import com.toshi.model.sofa.payment.Payment;
-import com.toshi.model.sofa.PaymentRequest;
-import com.toshi.model.sofa.SofaAdapters;
 import com.toshi.model.sofa.SofaMessage;
 import com.toshi.model.sofa.SofaType;
 import com.toshi.util.logging.LogUtil;
-import com.toshi.view.BaseApplication;
 import com.toshi.view.adapter.listeners.OnItemClickListener;
 import com.toshi.view.adapter.viewholder.FileViewHolder;
 import com.toshi.view.adapter.viewholder.ImageViewHolder;
@@ -45,23 +39,16 @@ import com.toshi.view.adapter.viewholder.PaymentViewHolder;
 import com.toshi.view.adapter.viewholder.TextViewHolder;
 import com.toshi.view.adapter.viewholder.TimestampMessageViewHolder;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
-import static com.toshi.model.local.ChainPosition.FIRST;
-import static com.toshi.model.local.ChainPosition.LAST;
-import static com.toshi.model.local.ChainPosition.MIDDLE;
-import static com.toshi.model.local.ChainPosition.NONE;
-
 
 public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     private final static int SENDER_MASK = 0x1000;
 
-    private final List<SofaMessage> sofaMessages;
     private final boolean arePaymentButtonsEnabled;
+    private List<MessageRenderModel> renderModels;
 
     private OnItemClickListener<SofaMessage> onPaymentRequestApproveListener;
     private OnItemClickListener<SofaMessage> onPaymentRequestRejectListener;
@@ -74,7 +61,7 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
     private Recipient recipient;
 
     public MessageAdapter(final boolean arePaymentButtonsEnabled) {
-        this.sofaMessages = new ArrayList<>();
+        this.renderModels = Collections.emptyList();
         this.arePaymentButtonsEnabled = arePaymentButtonsEnabled;
     }
 
@@ -118,11 +105,16 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
         return this;
     }
 
-    public MessageAdapter setMessages(final List<SofaMessage> messages) {
-        final List<SofaMessage> messagesToAdd = messages == null
-                ? new ArrayList<>(0)
-                : messages;
-        addMessages(messagesToAdd);
+    /**
+     * Shows render models that were built, and diffed or followed through a Realm change set,
+     * off the main thread. The updates are only dispatched when the adapter is still showing the
+     * models they were computed against; if an update was skipped the whole list is refreshed instead.
+     */
+    public MessageAdapter setRenderedMessages(final RenderedMessages renderedMessages) {
+        final boolean isDiffApplicable = renderedMessages.getPreviousModels() == this.renderModels;
+        this.renderModels = renderedMessages.getModels();
+        if (isDiffApplicable) renderedMessages.dispatchUpdatesTo(new AdapterListUpdateCallback(this));
+        else notifyDataSetChanged();
         return this;
     }
 
@@ -131,50 +123,11 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
         return this;
     }
 
-    private void addMessages(final Collection<SofaMessage> sofaMessages) {
-        this.sofaMessages.clear();
-        notifyDataSetChanged();
-
-        for (SofaMessage sofaMessage : sofaMessages) {
-            addMessage(sofaMessage);
-        }
-    }
-
-    private void addMessage(final SofaMessage sofaMessage) {
-        if (sofaMessage == null || !sofaMessage.isUserVisible()) return;
-        this.sofaMessages.add(sofaMessage);
-        notifyItemInserted(this.sofaMessages.size() - 1);
-        if (this.sofaMessages.size() > 1) {
-            // Update the previous message as well.
-            notifyItemChanged(this.sofaMessages.size() - 2);
-        }
-    }
-
-    public final void updateMessage(final SofaMessage sofaMessage) {
-        if (sofaMessage == null || !sofaMessage.isUserVisible()) return;
-        final int position = this.sofaMessages.indexOf(sofaMessage);
-        if (position == -1) {
-            addMessage(sofaMessage);
-            return;
-        }
-
-        this.sofaMessages.set(position, sofaMessage);
-        notifyItemChanged(position);
-    }
-
-    public final void deleteMessage(final SofaMessage sofaMessage) {
-        if (sofaMessage == null || !sofaMessage.isUserVisible()) return;
-        final int position = this.sofaMessages.indexOf(sofaMessage);
-        if (position == -1) return;
-        this.sofaMessages.remove(position);
-        notifyItemRemoved(position);
-    }
-
     @Override
     public int getItemViewType(final int position) {
-        final SofaMessage sofaMessage = this.sofaMessages.get(position);
-        final @SofaType.Type int sofaType = sofaMessage.hasAttachment() ? sofaMessage.getAttachmentType() : sofaMessage.getType();
-        return sofaMessage.isSentBy(getCurrentLocalUser()) ? sofaType : sofaType | SENDER_MASK;
+        final MessageRenderModel renderModel = getRenderModel(position);
+        final @SofaType.Type int sofaType = renderModel.getMessageType();
+        return renderModel.isRemote() ? sofaType | SENDER_MASK : sofaType;
     }
 
     @Override
@@ -241,23 +194,16 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
             final RecyclerView.ViewHolder holder,
             final int position) {
 
-        final SofaMessage sofaMessage = this.sofaMessages.get(position);
-        final String payload = sofaMessage.getPayload();
-        if (payload == null) return;
-
-        try {
-            renderChatMessageIntoViewHolder(holder, sofaMessage, payload, position);
-        } catch (final IOException ex) {
-            LogUtil.w("Unable to render view holder: " + ex);
-        }
+        final MessageRenderModel renderModel = getRenderModel(position);
+        if (renderModel.getPayload() == null) return;
+        renderChatMessageIntoViewHolder(holder, renderModel);
     }
 
     private void renderChatMessageIntoViewHolder(
             final RecyclerView.ViewHolder holder,
-            final SofaMessage sofaMessage,
-            final String payload,
-            final int position) throws IOException {
+            final MessageRenderModel renderModel) {
 
+        final SofaMessage sofaMessage = renderModel.getSofaMessage();
         final boolean isRemote = holder.getItemViewType() >= SENDER_MASK;
         final int messageType = isRemote ? holder.getItemViewType() ^ SENDER_MASK : holder.getItemViewType();
 
@@ -265,34 +211,30 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
             case SofaType.COMMAND_REQUEST:
             case SofaType.PLAIN_TEXT: {
                 final TextViewHolder vh = (TextViewHolder) holder;
-                final Message message = SofaAdapters.get().messageFrom(payload);
-                final @ChainPosition.Position int chainPosition = getChainPosition(position);
-                final boolean showAvatar = chainPosition == LAST || chainPosition == NONE;
-
                 vh
-                        .setText(message.getBody())
-                        .setAvatarUri(showAvatar ? sofaMessage.getSenderAvatar() : null)
-                        .setSendState(sofaMessage.getSendState())
-                        .setChainPosition(chainPosition)
+                        .setText(renderModel.getText())
+                        .setIsOnlyEmojis(renderModel.isOnlyEmojis())
+                        .setAvatarUri(renderModel.getShowAvatar() ? renderModel.getAvatarUri() : null)
+                        .setSendState(renderModel.getSendState())
+                        .setChainPosition(renderModel.getChainPosition())
                         .setIsSentByRemoteUser(isRemote)
                         .setOnResendListener(this.onResendListener, sofaMessage)
                         .setErrorMessage(sofaMessage.getErrorMessage())
                         .draw()
-                        .addClickableKeywords(this.onWebUrlClickListener, this.onUsernameClickListener);
+                        .addClickableKeywords(renderModel.getKeywords(), this.onWebUrlClickListener, this.onUsernameClickListener);
                 break;
             }
 
             case SofaType.IMAGE: {
                 final ImageViewHolder vh = (ImageViewHolder) holder;
-                final Message message = SofaAdapters.get().messageFrom(payload);
                 vh
-                        .setAvatarUri(sofaMessage.getSenderAvatar())
-                        .setSendState(sofaMessage.getSendState())
-                        .setAttachmentFilePath(sofaMessage.getAttachmentFilePath())
-                        .setClickableImage(this.onImageClickListener, sofaMessage.getAttachmentFilePath())
+                        .setAvatarUri(renderModel.getAvatarUri())
+                        .setSendState(renderModel.getSendState())
+                        .setAttachmentFilePath(renderModel.getAttachmentFilePath())
+                        .setClickableImage(this.onImageClickListener, renderModel.getAttachmentFilePath())
                         .setOnResendListener(this.onResendListener, sofaMessage)
                         .setErrorMessage(sofaMessage.getErrorMessage())
-                        .setText(message.getBody())
+                        .setText(renderModel.getText())
                         .draw();
                 break;
             }
@@ -300,10 +242,10 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
             case SofaType.FILE: {
                 final FileViewHolder vh = (FileViewHolder) holder;
                 vh
-                        .setAttachmentPath(sofaMessage.getAttachmentFilePath())
-                        .setSendState(sofaMessage.getSendState())
-                        .setAvatarUri(sofaMessage.getSenderAvatar())
-                        .setOnClickListener(this.onFileClickListener, sofaMessage.getAttachmentFilePath())
+                        .setAttachmentPath(renderModel.getAttachmentFilePath())
+                        .setSendState(renderModel.getSendState())
+                        .setAvatarUri(renderModel.getAvatarUri())
+                        .setOnClickListener(this.onFileClickListener, renderModel.getAttachmentFilePath())
                         .setOnResendListener(this.onResendListener, sofaMessage)
                         .setErrorMessage(sofaMessage.getErrorMessage())
                         .draw();
@@ -311,12 +253,12 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
             }
 
             case SofaType.PAYMENT: {
+                if (renderModel.getPaymentTitle() == null) return;
                 final PaymentViewHolder vh = (PaymentViewHolder) holder;
-                final Payment payment = SofaAdapters.get().paymentFrom(payload);
                 vh
-                        .setPayment(payment)
-                        .setAvatarUri(sofaMessage.getSenderAvatar())
-                        .setSendState(sofaMessage.getSendState())
+                        .setAmounts(renderModel.getPaymentTitle(), renderModel.getPaymentEthAmount())
+                        .setAvatarUri(renderModel.getAvatarUri())
+                        .setSendState(renderModel.getSendState())
                         .setSofaError(sofaMessage.getErrorMessage())
                         .setOnResendPaymentListener(this.onResendPaymentListener, sofaMessage)
                         .draw();
@@ -324,18 +266,18 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
             }
 
             case SofaType.PAYMENT_REQUEST: {
+                if (renderModel.getPaymentRequest() == null) return;
                 final PaymentRequestViewHolder vh = (PaymentRequestViewHolder) holder;
-                final PaymentRequest request = SofaAdapters.get().txRequestFrom(payload);
                 if (this.recipient != null && this.recipient.isGroup()) {
                     // Todo - support group payment requests
                     LogUtil.i("Payment requests to groups currently not supported.");
                     return;
                 }
 
-                vh.setPaymentRequest(request)
-                  .setAvatarUri(sofaMessage.getSenderAvatar())
+                vh.setPaymentRequest(renderModel.getPaymentRequest())
+                  .setAvatarUri(renderModel.getAvatarUri())
                   .setRemoteUser(this.recipient.getUser())
-                  .setSendState(sofaMessage.getSendState())
+                  .setSendState(renderModel.getSendState())
                   .setOnApproveListener(this.handleOnPaymentRequestApproved)
                   .setOnRejectListener(this.handleOnPaymentRequestRejected)
                   .setOnResendListener(this.onResendListener, sofaMessage)
@@ -353,41 +295,23 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
 
             case SofaType.LOCAL_STATUS_MESSAGE: {
                 final LocalStatusMessageViewHolder vh = (LocalStatusMessageViewHolder) holder;
-                final LocalStatusMessage localStatusMessage = SofaAdapters.get().localStatusMessageRequestFrom(payload);
-                final User localUser = getCurrentLocalUser();
-                final User sender = localStatusMessage.getSender();
-                final boolean isSenderLocalUser = (localUser != null && sender != null)
-                        && localUser.getToshiId().equals(sender.getToshiId());
-                vh.setMessage(localStatusMessage, isSenderLocalUser);
+                vh.setMessage(renderModel.getStatusMessage());
                 break;
             }
         }
     }
 
-    private @ChainPosition.Position int getChainPosition(final int position) {
-        final SofaMessage currentSofaMessage = this.sofaMessages.get(position);
-        final SofaMessage previousSofaMessage = getMessageAtPos(position - 1);
-        final SofaMessage nextSofaMessage = getMessageAtPos(position + 1);
-        final boolean previousMessageSentByCurrent = previousSofaMessage != null && previousSofaMessage.isSentBy(currentSofaMessage.getSender());
-        final boolean nextMessageSentByCurrent = nextSofaMessage != null && nextSofaMessage.isSentBy(currentSofaMessage.getSender());
-
-        if (!previousMessageSentByCurrent && !nextMessageSentByCurrent) return NONE;
-        if (previousMessageSentByCurrent && nextMessageSentByCurrent) return MIDDLE;
-        if (nextMessageSentByCurrent) return FIRST;
-        return LAST;
+    private MessageRenderModel getRenderModel(final int position) {
+        return this.renderModels.get(position);
     }
 
-    private @Nullable SofaMessage getMessageAtPos(final int position) {
-        try {
-            return this.sofaMessages.get(position);
-        } catch (final IndexOutOfBoundsException ex) {
-            return null;
-        }
+    private SofaMessage getMessage(final int position) {
+        return this.renderModels.get(position).getSofaMessage();
     }
 
     @Override
     public final int getItemCount() {
-        return this.sofaMessages.size();
+        return this.renderModels.size();
     }
 
     private final OnItemClickListener<Integer> handleOnPaymentRequestApproved = new OnItemClickListener<Integer>() {
@@ -395,7 +319,7 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
         public void onItemClick(final Integer position) {
             if (onPaymentRequestApproveListener == null) return;
 
-            final SofaMessage sofaMessage = sofaMessages.get(position);
+            final SofaMessage sofaMessage = getMessage(position);
             onPaymentRequestApproveListener.onItemClick(sofaMessage);
         }
     };
@@ -405,7 +329,7 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
         public void onItemClick(final Integer position) {
             if (onPaymentRequestRejectListener == null) return;
 
-            final SofaMessage sofaMessage = sofaMessages.get(position);
+            final SofaMessage sofaMessage = getMessage(position);
             onPaymentRequestRejectListener.onItemClick(sofaMessage);
         }
     };
@@ -418,8 +342,8 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
      * @see         SofaMessage
      */
     public @Nullable SofaMessage getLastPlainTextSofaMessage() {
-        for (int i = this.sofaMessages.size() - 1; i >= 0; i--) {
-            final SofaMessage message = this.sofaMessages.get(i);
+        for (int i = getItemCount() - 1; i >= 0; i--) {
+            final SofaMessage message = getMessage(i);
             if (message.getType() == SofaType.COMMAND_REQUEST) {
                 return null;
             }
@@ -432,17 +356,7 @@ public final class MessageAdapter extends RecyclerView.Adapter<RecyclerView.View
     }
 
     public void clear() {
-        this.sofaMessages.clear();
+        this.renderModels = Collections.emptyList();
         notifyDataSetChanged();
     }
-
-    private User getCurrentLocalUser() {
-        // Yes, this blocks. But realistically, a value should be always ready for returning.
-        return BaseApplication
-                .get()
-                .getUserManager()
-                .getCurrentUser()
-                .toBlocking()
-                .value();
-    }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.view.adapter
+
+import android.support.v7.util.DiffUtil
+import com.toshi.R
+import com.toshi.model.local.ChainPosition
+import com.toshi.model.local.MessageRenderModel
+import com.toshi.model.local.User
+import com.toshi.model.sofa.PaymentRequest
+import com.toshi.model.sofa.SofaAdapters
+import com.toshi.model.sofa.SofaMessage
+import com.toshi.model.sofa.SofaType
+import com.toshi.util.EthUtil
+import com.toshi.util.logging.LogUtil
+import com.toshi.util.spannables.ChatKeywordFinder
+import com.toshi.util.spannables.KeywordSpan
+import com.toshi.view.BaseApplication
+import com.vdurmont.emoji.EmojiParser
+import java.io.IOException
+
+/**
+ * Turns messages into [MessageRenderModel]s and diffs them against the previous
+ * list. Parsing the payload, finding keywords and formatting amounts happens here
+ * instead of in onBind. Not thread safe; use one instance from one thread.
+ */
+class MessageRenderModelBuilder {
+
+    private class ParsedContent(
+            val payload: String?,
+            val text: String? = null,
+            val isOnlyEmojis: Boolean = false,
+            val keywords: List<KeywordSpan> = emptyList(),
+            val paymentTitle: String? = null,
+            val paymentEthAmount: String? = null,
+            val paymentRequest: PaymentRequest? = null,
+            val statusMessage: String? = null
+    )
+
+    // Keyed by private key, and reused for as long as the payload of the message stays the same
+    private val parsedContents = HashMap<String, ParsedContent>()
+    private var renderedModels = emptyList<MessageRenderModel>()
+
+    /**
+     * Builds the models for the user visible messages and diffs them against the
+     * result of the previous call.
+     */
+    fun render(messages: List<SofaMessage>, localUser: User?): RenderedMessages {
+        val models = build(messages, localUser)
+        val previousModels = renderedModels
+        val diffResult = DiffUtil.calculateDiff(RenderModelDiffCallback(previousModels, models), false)
+        renderedModels = models
+        return RenderedMessages(models, previousModels) { diffResult.dispatchUpdatesTo(it) }
+    }
+
+    fun build(messages: List<SofaMessage>, localUser: User?): List<MessageRenderModel> {
+        val visibleMessages = messages.filter { it.isUserVisible }
+        val models = visibleMessages.mapIndexed { index, sofaMessage ->
+            build(sofaMessage, visibleMessages.getOrNull(index - 1), visibleMessages.getOrNull(index + 1), localUser)
+        }
+        val visibleKeys = visibleMessages.mapTo(HashSet(visibleMessages.size)) { it.privateKey }
+        parsedContents.keys.retainAll(visibleKeys)
+        return models
+    }
+
+    /**
+     * Builds the model for one message. The chain position depends on the messages on
+     * either side, so the neighbours of a message that changes need to be built again too.
+     */
+    fun build(sofaMessage: SofaMessage,
+              previousMessage: SofaMessage?,
+              nextMessage: SofaMessage?,
+              localUser: User?): MessageRenderModel {
+        val messageType = if (sofaMessage.hasAttachment()) sofaMessage.attachmentType else sofaMessage.type
+        val content = getParsedContent(sofaMessage, messageType, localUser)
+        return MessageRenderModel(
+                sofaMessage = sofaMessage,
+                messageType = messageType,
+                isRemote = !sofaMessage.isSentBy(localUser),
+                chainPosition = getChainPosition(sofaMessage, previousMessage, nextMessage),
+                sendState = sofaMessage.sendState,
+                avatarUri = sofaMessage.senderAvatar,
+                attachmentFilePath = sofaMessage.attachmentFilePath,
+                errorMessage = sofaMessage.errorMessage?.message,
+                text = content.text,
+                isOnlyEmojis = content.isOnlyEmojis,
+                keywords = content.keywords,
+                paymentTitle = content.paymentTitle,
+                paymentEthAmount = content.paymentEthAmount,
+                paymentRequest = content.paymentRequest,
+                statusMessage = content.statusMessage,
+                payload = content.payload
+        )
+    }
+
+    // Drops the cached content of a message that is no longer shown
+    fun forget(privateKey: String) {
+        parsedContents.remove(privateKey)
+    }
+
+    private fun getParsedContent(sofaMessage: SofaMessage, @SofaType.Type messageType: Int, localUser: User?): ParsedContent {
+        val payload = sofaMessage.payload
+        val cachedContent = parsedContents[sofaMessage.privateKey]
+        if (cachedContent != null && cachedContent.payload == payload) return cachedContent
+
+        val content = try {
+            parseContent(sofaMessage, payload, messageType, localUser)
+        } catch (e: IOException) {
+            LogUtil.w("Unable to parse message for rendering: $e")
+            ParsedContent(payload)
+        }
+        parsedContents[sofaMessage.privateKey] = content
+        return content
+    }
+
+    private fun parseContent(sofaMessage: SofaMessage,
+                             payload: String?,
+                             @SofaType.Type messageType: Int,
+                             localUser: User?): ParsedContent {
+        if (payload == null) return ParsedContent(payload)
+        return when (messageType) {
+            SofaType.COMMAND_REQUEST, SofaType.PLAIN_TEXT -> {
+                val text = SofaAdapters.get().messageFrom(sofaMessage).body
+                ParsedContent(
+                        payload = payload,
+                        text = text,
+                        isOnlyEmojis = isOnlyEmojis(text),
+                        keywords = text?.let { ChatKeywordFinder.findKeywordSpans(it) } ?: emptyList()
+                )
+            }
+            SofaType.IMAGE -> ParsedContent(payload, text = SofaAdapters.get().messageFrom(sofaMessage).body)
+            SofaType.PAYMENT -> {
+                val payment = SofaAdapters.get().paymentFrom(sofaMessage)
+                val app = BaseApplication.get()
+                ParsedContent(
+                        payload = payload,
+                        paymentTitle = app.getString(R.string.payment_for_value, payment.localPrice),
+                        paymentEthAmount = String.format(
+                                app.resources.getString(R.string.eth_amount),
+                                EthUtil.hexAmountToUserVisibleString(payment.value)
+                        )
+                )
+            }
+            SofaType.PAYMENT_REQUEST -> ParsedContent(payload, paymentRequest = SofaAdapters.get().txRequestFrom(sofaMessage))
+            SofaType.LOCAL_STATUS_MESSAGE -> {
+                val localStatusMessage = SofaAdapters.get().localStatusMessageRequestFrom(payload)
+                val sender = localStatusMessage.sender
+                val isSenderLocalUser = localUser != null && sender != null && localUser.toshiId == sender.toshiId
+                ParsedContent(payload, statusMessage = localStatusMessage.loadString(isSenderLocalUser))
+            }
+            else -> ParsedContent(payload)
+        }
+    }
+
+    // Returns true even if there is whitespace between emojis
+    private fun isOnlyEmojis(text: String?): Boolean {
+        return text != null
+                && text.trim().isNotEmpty()
+                && EmojiParser.removeAllEmojis(text).trim().isEmpty()
+    }
+
+    @ChainPosition.Position
+    private fun getChainPosition(sofaMessage: SofaMessage, previousMessage: SofaMessage?, nextMessage: SofaMessage?): Int {
+        val previousMessageSentByCurrent = previousMessage?.isSentBy(sofaMessage.sender) ?: false
+        val nextMessageSentByCurrent = nextMessage?.isSentBy(sofaMessage.sender) ?: false
+
+        return when {
+            !previousMessageSentByCurrent && !nextMessageSentByCurrent -> ChainPosition.NONE
+            previousMessageSentByCurrent && nextMessageSentByCurrent -> ChainPosition.MIDDLE
+            nextMessageSentByCurrent -> ChainPosition.FIRST
+            else -> ChainPosition.LAST
+        }
+    }
+
+    private class RenderModelDiffCallback(
+            private val oldModels: List<MessageRenderModel>,
+            private val newModels: List<MessageRenderModel>
+    ) : DiffUtil.Callback() {
+        override fun getOldListSize() = oldModels.size
+        override fun getNewListSize() = newModels.size
+        override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean {
+            return oldModels[oldItemPosition].isSameMessage(newModels[newItemPosition])
+        }
+        override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean {
+            return oldModels[oldItemPosition].hasSameContent(newModels[newItemPosition])
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.view.adapter
+
+import android.support.v7.util.ListUpdateCallback
+import com.toshi.model.local.MessageRenderModel
+
+/**
+ * A list of render models together with the updates that turn [previousModels] into it,
+ * either from a diff or from a Realm change set. The updates only apply to an adapter that
+ * is still showing [previousModels].
+ */
+class RenderedMessages(
+        val models: List<MessageRenderModel>,
+        val previousModels: List<MessageRenderModel>,
+        private val updates: (ListUpdateCallback) -> Unit
+) {
+    fun dispatchUpdatesTo(callback: ListUpdateCallback) = updates(callback)
+}
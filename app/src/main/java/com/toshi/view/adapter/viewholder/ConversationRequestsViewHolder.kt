@@ -20,7 +20,7 @@ package com.toshi.view.adapter.viewholder
 import android.support.v7.widget.RecyclerView
 import android.view.View
 import com.toshi.R
-import com.toshi.model.local.Conversation
+import com.toshi.model.local.ConversationSummary
 import kotlinx.android.synthetic.main.list_item__conversation_requests.view.*
 
 class ConversationRequestsViewHolder(itemView: View?) : RecyclerView.ViewHolder(itemView) {
@@ -30,7 +30,7 @@ class ConversationRequestsViewHolder(itemView: View?) : RecyclerView.ViewHolder(
         return this
     }
 
-    fun loadAvatar(conversations: List<Conversation>) {
+    fun loadAvatar(conversations: List<ConversationSummary>) {
         val lastTwoElements = conversations.takeLast(2)
                 .map { it.recipient }
         itemView.avatar.loadAvatars(lastTwoElements)
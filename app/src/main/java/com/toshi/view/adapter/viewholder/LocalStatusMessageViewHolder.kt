@@ -19,13 +19,11 @@ package com.toshi.view.adapter.viewholder
 
 import android.support.v7.widget.RecyclerView
 import android.view.View
-import com.toshi.model.local.LocalStatusMessage
 import kotlinx.android.synthetic.main.list_item__local_status_message.view.*
 
 class LocalStatusMessageViewHolder(itemView: View?) : RecyclerView.ViewHolder(itemView) {
 
-    fun setMessage(localStatusMessage: LocalStatusMessage, isSenderLocalUser: Boolean) {
-        val statusMessage = localStatusMessage.loadString(isSenderLocalUser)
+    fun setMessage(statusMessage: String?) {
         itemView.message.text = statusMessage
     }
 }
\ No newline at end of file
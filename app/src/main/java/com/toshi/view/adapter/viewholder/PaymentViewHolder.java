@@ -27,11 +27,8 @@ import android.widget.TextView;
 import com.toshi.R;
 import com.toshi.model.local.SendState;
 import com.toshi.model.network.SofaError;
-import com.toshi.model.sofa.payment.Payment;
 import com.toshi.model.sofa.SofaMessage;
-import com.toshi.util.EthUtil;
 import com.toshi.util.ImageUtil;
-import com.toshi.view.BaseApplication;
 import com.toshi.view.adapter.listeners.OnItemClickListener;
 
 public final class PaymentViewHolder extends RecyclerView.ViewHolder {
@@ -43,7 +40,8 @@ public final class PaymentViewHolder extends RecyclerView.ViewHolder {
     private @Nullable ImageView avatar;
     private @Nullable TextView errorMessage;
 
-    private Payment payment;
+    private String paymentTitle;
+    private String ethAmount;
     private @SendState.State int sendState;
     private String avatarUri;
     private SofaError sofaError;
@@ -58,8 +56,9 @@ public final class PaymentViewHolder extends RecyclerView.ViewHolder {
         this.errorMessage = v.findViewById(R.id.error_message);
     }
 
-    public PaymentViewHolder setPayment(final Payment payment) {
-        this.payment = payment;
+    public PaymentViewHolder setAmounts(final String paymentTitle, final String ethAmount) {
+        this.paymentTitle = paymentTitle;
+        this.ethAmount = ethAmount;
         return this;
     }
 
@@ -93,12 +92,8 @@ public final class PaymentViewHolder extends RecyclerView.ViewHolder {
     }
 
     private void renderAmounts() {
-        final String requestTitle = BaseApplication.get().getString(R.string.payment_for_value, this.payment.getLocalPrice());
-        this.title.setText(requestTitle);
-        final String ethAmount = String.format(
-                BaseApplication.get().getResources().getString(R.string.eth_amount),
-                EthUtil.hexAmountToUserVisibleString(this.payment.getValue()));
-        this.ethereumAmount.setText(ethAmount);
+        this.title.setText(this.paymentTitle);
+        this.ethereumAmount.setText(this.ethAmount);
     }
 
     private void renderAvatar() {
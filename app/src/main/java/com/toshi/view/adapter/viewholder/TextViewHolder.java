@@ -31,8 +31,10 @@ import com.toshi.model.network.SofaError;
 import com.toshi.model.sofa.SofaMessage;
 import com.toshi.util.ImageUtil;
 import com.toshi.util.spannables.ClickableSpanUtil;
+import com.toshi.util.spannables.KeywordSpan;
 import com.toshi.view.adapter.listeners.OnItemClickListener;
-import com.vdurmont.emoji.EmojiParser;
+
+import java.util.List;
 
 import de.hdodenhof.circleimageview.CircleImageView;
 
@@ -50,6 +52,7 @@ public final class TextViewHolder extends RecyclerView.ViewHolder {
     private @Nullable TextView errorMessage;
 
     private String text;
+    private boolean isOnlyEmojis;
     private @SendState.State int sendState;
     private String avatarUri;
     private @ChainPosition.Position int chainPosition;
@@ -70,6 +73,11 @@ public final class TextViewHolder extends RecyclerView.ViewHolder {
         return this;
     }
 
+    public TextViewHolder setIsOnlyEmojis(final boolean isOnlyEmojis) {
+        this.isOnlyEmojis = isOnlyEmojis;
+        return this;
+    }
+
     public TextViewHolder setAvatarUri(final String uri) {
         this.avatarUri = uri;
         return this;
@@ -111,7 +119,7 @@ public final class TextViewHolder extends RecyclerView.ViewHolder {
     }
 
     private void renderText() {
-        if (isOnlyEmojis()) {
+        if (this.isOnlyEmojis) {
             this.message.setVisibility(View.GONE);
             this.emojiMessage.setVisibility(View.VISIBLE);
             this.emojiMessage.setText(this.text.trim());
@@ -143,13 +151,6 @@ public final class TextViewHolder extends RecyclerView.ViewHolder {
         this.message.setBackgroundResource(bgResource);
     }
 
-    private boolean isOnlyEmojis() {
-        // Returns true even if there is whitespace between emojis
-        return     this.text != null
-                && this.text.trim().length() > 0
-                && EmojiParser.removeAllEmojis(this.text).trim().length() == 0;
-    }
-
     private void renderAvatar() {
         if (this.avatar == null) return;
         if (this.avatarUri == null) {
@@ -171,10 +172,11 @@ public final class TextViewHolder extends RecyclerView.ViewHolder {
         if (this.sofaError != null) this.errorMessage.setText(this.sofaError.getMessage());
     }
 
-    public TextViewHolder addClickableKeywords(final OnItemClickListener<String> webUrlClickedListener,
+    public TextViewHolder addClickableKeywords(final List<KeywordSpan> keywordSpans,
+                                               final OnItemClickListener<String> webUrlClickedListener,
                                                final OnItemClickListener<String> usernameClickedListener) {
         if (this.text == null) return this;
-        ClickableSpanUtil.Companion.addClickableKeywords(this.text, this.message, webUrlClickedListener, usernameClickedListener);
+        ClickableSpanUtil.Companion.addClickableKeywords(this.text, keywordSpans, this.message, webUrlClickedListener, usernameClickedListener);
         return this;
     }
 }
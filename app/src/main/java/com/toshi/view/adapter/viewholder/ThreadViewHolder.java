@@ -23,7 +23,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.toshi.R;
-import com.toshi.model.local.Conversation;
+import com.toshi.model.local.ConversationSummary;
 import com.toshi.model.local.Recipient;
 import com.toshi.model.sofa.SofaMessage;
 import com.toshi.util.LocaleUtil;
@@ -53,7 +53,7 @@ public class ThreadViewHolder extends RecyclerView.ViewHolder {
         this.unreadCounter = view.findViewById(R.id.unread_counter);
     }
 
-    public void setThread(final Conversation conversation) {
+    public void setThread(final ConversationSummary conversation) {
         final Recipient recipient = conversation.getRecipient();
         this.name.setText(recipient.getDisplayName());
         this.unreadCounter.setText(getNumberOfUnread(conversation));
@@ -66,7 +66,7 @@ public class ThreadViewHolder extends RecyclerView.ViewHolder {
         recipient.loadAvatarInto(this.avatar);
     }
 
-    private String getNumberOfUnread(final Conversation conversation) {
+    private String getNumberOfUnread(final ConversationSummary conversation) {
         final int numberOfUnread = conversation.getNumberOfUnread();
         return (numberOfUnread > 99) ? ":)" : String.valueOf(numberOfUnread);
     }
@@ -75,7 +75,7 @@ public class ThreadViewHolder extends RecyclerView.ViewHolder {
         this.latestMessage.setText(latestMessage);
     }
 
-    private String getLastMessageCreationTime(final Conversation conversation) {
+    private String getLastMessageCreationTime(final ConversationSummary conversation) {
         final SofaMessage latestMessage = conversation.getLatestMessage();
         if (latestMessage == null) return "";
         final long creationTime = latestMessage.getCreationTime();
@@ -92,11 +92,11 @@ public class ThreadViewHolder extends RecyclerView.ViewHolder {
         }
     }
 
-    public void setOnItemClickListener(final Conversation conversation, final OnItemClickListener<Conversation> listener) {
+    public void setOnItemClickListener(final ConversationSummary conversation, final OnItemClickListener<ConversationSummary> listener) {
         this.itemView.setOnClickListener(__ -> listener.onItemClick(conversation));
     }
 
-    public void setOnItemLongClickListener(final Conversation conversation, final OnItemClickListener<Conversation> listener) {
+    public void setOnItemLongClickListener(final ConversationSummary conversation, final OnItemClickListener<ConversationSummary> listener) {
         this.itemView.setOnLongClickListener(__ -> {
             listener.onItemClick(conversation);
             return true;
@@ -33,8 +33,8 @@ import com.toshi.R
 import com.toshi.extensions.getColorById
 import com.toshi.extensions.startActivity
 import com.toshi.extensions.startExternalActivity
-import com.toshi.model.local.Conversation
 import com.toshi.model.local.ConversationInfo
+import com.toshi.model.local.ConversationSummary
 import com.toshi.model.local.User
 import com.toshi.view.activity.ChatActivity
 import com.toshi.view.activity.ConversationRequestActivity
@@ -142,10 +142,7 @@ class RecentFragment : TopLevelFragment() {
             if (it != null) handleConversations(it.acceptedConversations, it.unacceptedConversations, it.localUser)
         })
         viewModel.updatedConversation.observe(this, Observer {
-            conversation -> conversation?.let { handleAcceptedConversation(it) }
-        })
-        viewModel.updatedUnacceptedConversation.observe(this, Observer {
-            conversation -> conversation?.let { handleUpdatedUnacceptedConversation(it) }
+            conversation -> conversation?.let { handleUpdatedConversation(it) }
         })
         viewModel.conversationInfo.observe(this, Observer {
             conversationInfo -> conversationInfo?.let { showConversationOptionsDialog(it) }
@@ -155,20 +152,20 @@ class RecentFragment : TopLevelFragment() {
         })
     }
 
-    private fun handleConversations(acceptedConversations: List<Conversation>,
-                                    unacceptedConversation: List<Conversation>,
+    private fun handleConversations(acceptedConversations: List<ConversationSummary>,
+                                    unacceptedConversation: List<ConversationSummary>,
                                     localUser: User?) {
         conversationRequestsAdapter.setUnacceptedConversations(unacceptedConversation)
         conversationAdapter.setItemList(localUser, acceptedConversations)
     }
 
-    private fun handleAcceptedConversation(updatedConversation: Conversation) {
-        conversationRequestsAdapter.removeConversation(updatedConversation)
-        conversationAdapter.addOrUpdateItem(updatedConversation)
-    }
-
-    private fun handleUpdatedUnacceptedConversation(updatedConversation: Conversation) {
-        conversationRequestsAdapter.addOrUpdateConversation(updatedConversation)
+    private fun handleUpdatedConversation(updatedConversation: ConversationSummary) {
+        if (updatedConversation.isAccepted) {
+            conversationRequestsAdapter.removeConversation(updatedConversation)
+            conversationAdapter.addOrUpdateConversation(updatedConversation)
+        } else {
+            conversationRequestsAdapter.addOrUpdateConversation(updatedConversation)
+        }
     }
 
     private fun handleInviteFriends() = startExternalActivity {
@@ -183,7 +180,7 @@ class RecentFragment : TopLevelFragment() {
                 .show(fragmentManager, ConversationOptionsDialogFragment.TAG)
     }
 
-    private fun removeItemWithUndo(conversation: Conversation) {
+    private fun removeItemWithUndo(conversation: ConversationSummary) {
         conversationAdapter.removeItemWithUndo(conversation, recents)
     }
 
@@ -138,7 +138,7 @@ public class ChatNotificationManager extends ToshiNotificationBuilder {
 
     private static PaymentRequest getPaymentRequestFromMessage(final SofaMessage sofaMessage) {
         try {
-            return SofaAdapters.get().txRequestFrom(sofaMessage.getPayload());
+            return SofaAdapters.get().txRequestFrom(sofaMessage);
         } catch (Exception e) {
             LogUtil.w("Error while parsing sofa message " + e);
         }
@@ -147,7 +147,7 @@ public class ChatNotificationManager extends ToshiNotificationBuilder {
 
     private static Payment getPaymentFromMessage(final SofaMessage sofaMessage) {
         try {
-            return SofaAdapters.get().paymentFrom(sofaMessage.getPayload());
+            return SofaAdapters.get().paymentFrom(sofaMessage);
         } catch (Exception e) {
             LogUtil.w("Error while parsing sofa message " + e);
         }
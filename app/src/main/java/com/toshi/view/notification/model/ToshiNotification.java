@@ -123,7 +123,7 @@ public abstract class ToshiNotification {
 
     private PaymentRequest getPaymentRequestFromSofaMessage(final SofaMessage sofaMessage) {
         try {
-            return SofaAdapters.get().txRequestFrom(sofaMessage.getPayload());
+            return SofaAdapters.get().txRequestFrom(sofaMessage);
         } catch (IOException e) {
             LogUtil.w("Error while parsing payment request " + e);
         }
@@ -132,7 +132,7 @@ public abstract class ToshiNotification {
 
     private Payment getPaymentFromSofaMessage(final SofaMessage sofaMessage) {
         try {
-            return SofaAdapters.get().paymentFrom(sofaMessage.getPayload());
+            return SofaAdapters.get().paymentFrom(sofaMessage);
         } catch (IOException e) {
             LogUtil.w("Error while parsing payment " + e);
         }
@@ -141,7 +141,7 @@ public abstract class ToshiNotification {
 
     private String getBodyFromSofaMessage(final SofaMessage sofaMessage) {
         try {
-            return SofaAdapters.get().messageFrom(sofaMessage.getPayload()).getBody();
+            return SofaAdapters.get().messageFrom(sofaMessage).getBody();
         } catch (final IOException ex) {
             LogUtil.w("Error while parsing message " + ex);
         }
@@ -23,6 +23,7 @@ import com.toshi.manager.RecipientManager
 import com.toshi.manager.UserManager
 import com.toshi.model.local.Conversation
 import com.toshi.model.local.ConversationInfo
+import com.toshi.model.local.ConversationSummary
 import com.toshi.model.local.User
 import com.toshi.util.SingleLiveEvent
 import com.toshi.util.logging.LogUtil
@@ -42,11 +43,16 @@ class RecentViewModel(
 
     private val subscriptions by lazy { CompositeSubscription() }
 
+    // Only touched on the main thread. Kept up to date from conversation changes instead of re-querying.
+    private val summaries = HashMap<String, ConversationSummary>()
+    // Threads that changed while the summaries were loading, so the load doesn't overwrite them
+    private var threadsChangedWhileLoading: MutableSet<String>? = null
+    private var localUser: User? = null
+
     val acceptedAndUnacceptedConversations by lazy { SingleLiveEvent<UserConversations>() }
-    val updatedConversation by lazy { SingleLiveEvent<Conversation>() }
-    val updatedUnacceptedConversation by lazy { SingleLiveEvent<Conversation>() }
+    val updatedConversation by lazy { SingleLiveEvent<ConversationSummary>() }
     val conversationInfo by lazy { SingleLiveEvent<ConversationInfo>() }
-    val deleteConversation by lazy { SingleLiveEvent<Conversation>() }
+    val deleteConversation by lazy { SingleLiveEvent<ConversationSummary>() }
 
     init {
         attachSubscriber()
@@ -55,7 +61,7 @@ class RecentViewModel(
     private fun attachSubscriber() {
         val sub = chatManager
                 .registerForAllConversationChanges()
-                .filter { it.allMessages.size > 0 }
+                .filter { it.latestMessage != null }
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
                         { handleUpdatedConversation(it) },
@@ -66,26 +72,47 @@ class RecentViewModel(
     }
 
     private fun handleUpdatedConversation(conversation: Conversation) {
-        if (conversation.conversationStatus.isAccepted) updatedConversation.value = conversation
-        else updatedUnacceptedConversation.value = conversation
+        val summary = ConversationSummary.from(conversation)
+        summaries[summary.threadId] = summary
+        threadsChangedWhileLoading?.add(summary.threadId)
+        updatedConversation.value = summary
     }
 
     fun getAcceptedAndUnAcceptedConversations() {
+        if (threadsChangedWhileLoading == null) threadsChangedWhileLoading = HashSet()
         val sub = Single.zip(
-                chatManager.loadAllAcceptedConversations(),
-                chatManager.loadAllUnacceptedConversations(),
+                chatManager.loadAllConversationSummaries(),
                 userManager.getCurrentUser(),
-                { t1, t2, t3 -> UserConversations(t1, t2, t3) }
+                { loadedSummaries, user -> Pair(loadedSummaries, user) }
         )
         .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        { acceptedAndUnacceptedConversations.value = it },
+                        { handleConversationSummaries(it.first, it.second) },
                         { LogUtil.w("Error fetching conversations $it") }
                 )
 
         subscriptions.add(sub)
     }
 
+    private fun handleConversationSummaries(loadedSummaries: List<ConversationSummary>, user: User?) {
+        val changedThreads = threadsChangedWhileLoading.orEmpty()
+        threadsChangedWhileLoading = null
+        val loadedThreads = loadedSummaries.mapTo(HashSet()) { it.threadId }
+        summaries.keys.retainAll { it in loadedThreads || it in changedThreads }
+        loadedSummaries
+                .filter { it.threadId !in changedThreads }
+                .forEach { summaries[it.threadId] = it }
+        localUser = user
+        publishConversations()
+    }
+
+    private fun publishConversations() {
+        val (accepted, unaccepted) = summaries.values
+                .sortedByDescending { it.updatedTime }
+                .partition { it.isAccepted }
+        acceptedAndUnacceptedConversations.value = UserConversations(accepted, unaccepted, localUser)
+    }
+
     fun showConversationOptionsDialog(threadId: String) {
         val sub = Single.zip(
                 getConversation(threadId),
@@ -115,7 +142,7 @@ class RecentViewModel(
             Option.MUTE -> setMute(conversation, true)
             Option.UNBLOCK -> setBlock(conversation, false)
             Option.BLOCK -> setBlock(conversation, true)
-            Option.DELETE -> deleteConversation.value = conversation
+            Option.DELETE -> summaries[conversation.threadId]?.let { deleteConversation.value = it }
         }
     }
 
@@ -149,9 +176,10 @@ class RecentViewModel(
         subscriptions.add(sub)
     }
 
-    fun deleteConversation(conversation: Conversation) {
+    fun deleteConversation(conversation: ConversationSummary) {
+        summaries.remove(conversation.threadId)
         val sub = chatManager
-                .deleteConversation(conversation)
+                .deleteConversation(conversation.threadId)
                 .subscribe(
                         {},
                         { LogUtil.exception("Unable to delete conversation $it") }
@@ -167,7 +195,7 @@ class RecentViewModel(
 }
 
 data class UserConversations(
-        val acceptedConversations: List<Conversation>,
-        val unacceptedConversations: List<Conversation>,
+        val acceptedConversations: List<ConversationSummary>,
+        val unacceptedConversations: List<ConversationSummary>,
         val localUser: User?
 )
\ No newline at end of file
@@ -68,7 +68,7 @@ class SendEtherViewModel : ViewModel() {
 
     private fun getExchangeRate() {
         val sub = balanceManager
-                .getLocalCurrencyExchangeRate()
+                .getFreshLocalCurrencyExchangeRate()
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
                         { exchangeRate = it },
@@ -0,0 +1,45 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto
+
+import com.toshi.crypto.util.HashUtil
+import org.junit.Test
+import java.math.BigInteger
+
+class ECKeyBenchmark {
+
+    private val key = ECKey.fromPrivate(BigInteger("4a6f6e617468616e20746f736869206b6579207465737420707269766174652e", 16))
+    private val signatures = 200
+
+    @Test
+    fun compareCostPerSignature() {
+        val hashes = (0 until signatures).map { HashUtil.sha3("message $it".toByteArray()) }
+        hashes.forEach { key.sign(it); key.bruteForceSign(it) }
+
+        val bruteForceStart = System.nanoTime()
+        hashes.forEach { key.bruteForceSign(it) }
+        val bruteForceNanos = System.nanoTime() - bruteForceStart
+
+        val derivedStart = System.nanoTime()
+        hashes.forEach { key.sign(it) }
+        val derivedNanos = System.nanoTime() - derivedStart
+
+        println("sign: brute force recId ${bruteForceNanos / signatures / 1000}µs, " +
+                "derived recId ${derivedNanos / signatures / 1000}µs")
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto
+
+import com.toshi.crypto.util.HashUtil
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import java.math.BigInteger
+import java.util.Arrays
+
+class ECKeyTest {
+
+    private val key = ECKey.fromPrivate(BigInteger("4a6f6e617468616e20746f736869206b6579207465737420707269766174652e", 16))
+    private val signatures = 50
+
+    @Test
+    fun derivedRecIdRecoversSigningKey() {
+        for (i in 0 until signatures) {
+            val hash = HashUtil.sha3("message $i".toByteArray())
+            val signature = key.sign(hash)
+            val recovered = ECKey.recoverPubBytesFromSignature(signature.v - 27, signature, hash)
+            assertThat(Arrays.equals(recovered, key.pubKey), `is`(true))
+        }
+    }
+
+    @Test
+    fun signatureMatchesDeterministicSigner() {
+        for (i in 0 until signatures) {
+            val hash = HashUtil.sha3("message $i".toByteArray())
+            assertThat(key.sign(hash), `is`(key.doSign(hash)))
+            assertThat(key.sign(hash).v, `is`(key.bruteForceSign(hash).v))
+        }
+    }
+
+    @Test
+    fun precomputedMultiplicationMatchesGenericMultiplication() {
+        val keys = (1..signatures).map { BigInteger.valueOf(it.toLong()).shiftLeft(it * 5).add(BigInteger.TEN) }
+        keys.forEach {
+            assertThat(ECKey.multiplyGenerator(it), `is`(ECKey.CURVE.g.multiply(it).normalize()))
+        }
+    }
+}
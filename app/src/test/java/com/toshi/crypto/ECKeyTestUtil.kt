@@ -0,0 +1,29 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto
+
+import java.util.Arrays
+
+// Signs the way ECKey did before the recId was derived from the R point,
+// by recovering each candidate public key until one matches
+fun ECKey.bruteForceSign(hash: ByteArray): ECKey.ECDSASignature {
+    val signature = doSign(hash)
+    val recId = (0 until 4).first { Arrays.equals(ECKey.recoverPubBytesFromSignature(it, signature, hash), pubKey) }
+    signature.v = (recId + 27).toByte()
+    return signature
+}
@@ -0,0 +1,85 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto
+
+import android.content.Context
+import com.toshi.testSharedPrefs.TestWalletPrefs
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito
+
+class HdWalletBuilderBenchmark {
+
+    private val masterSeed = "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about"
+    private val walletBuilds = 20
+    private val multiplications = 500
+
+    private lateinit var walletPrefs: TestWalletPrefs
+    private lateinit var context: Context
+
+    @Before
+    fun setup() {
+        walletPrefs = TestWalletPrefs()
+        walletPrefs.setMasterSeed(masterSeed)
+        context = Mockito.mock(Context::class.java)
+    }
+
+    @Test
+    fun getExistingWalletEndToEnd() {
+        val coldStart = System.nanoTime()
+        getExistingWallet()
+        val coldNanos = System.nanoTime() - coldStart
+
+        val derivationStart = System.nanoTime()
+        for (i in 0 until walletBuilds) {
+            walletPrefs.setDerivedKeys(null)
+            getExistingWallet()
+        }
+        val derivationNanos = System.nanoTime() - derivationStart
+
+        val cachedStart = System.nanoTime()
+        for (i in 0 until walletBuilds) getExistingWallet()
+        val cachedNanos = System.nanoTime() - cachedStart
+
+        println("getExistingWallet: first ${coldNanos / 1_000_000}ms, " +
+                "then ${derivationNanos / walletBuilds / 1_000_000}ms per derived wallet, " +
+                "${cachedNanos / walletBuilds / 1_000_000}ms per cached wallet")
+    }
+
+    @Test
+    fun compareCostPerPublicKey() {
+        val keys = (1..multiplications).map { ECKey().privKey }
+        keys.forEach { ECKey.multiplyGenerator(it); ECKey.CURVE.g.multiply(it).normalize() }
+
+        val genericStart = System.nanoTime()
+        keys.forEach { ECKey.CURVE.g.multiply(it).normalize() }
+        val genericNanos = System.nanoTime() - genericStart
+
+        val precomputedStart = System.nanoTime()
+        keys.forEach { ECKey.multiplyGenerator(it) }
+        val precomputedNanos = System.nanoTime() - precomputedStart
+
+        println("k * G: generic ${genericNanos / multiplications / 1000}µs, " +
+                "precomputed ${precomputedNanos / multiplications / 1000}µs")
+    }
+
+    private fun getExistingWallet() = HdWalletBuilder(walletPrefs, context)
+            .getExistingWallet()
+            .toBlocking()
+            .value()
+}
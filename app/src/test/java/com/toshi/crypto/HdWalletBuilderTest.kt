@@ -0,0 +1,66 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto
+
+import android.content.Context
+import com.toshi.mockWallet
+import com.toshi.testSharedPrefs.TestWalletPrefs
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito
+
+class HdWalletBuilderTest {
+
+    private val masterSeed = "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about"
+
+    private lateinit var walletPrefs: TestWalletPrefs
+    private lateinit var context: Context
+
+    @Before
+    fun setup() {
+        walletPrefs = TestWalletPrefs()
+        walletPrefs.setMasterSeed(masterSeed)
+        context = Mockito.mock(Context::class.java)
+    }
+
+    @Test
+    fun cachedWalletMatchesDerivedWallet() {
+        val derivedWallet = getExistingWallet()
+        val cachedWallet = getExistingWallet()
+        assertThat(cachedWallet.ownerAddress, `is`(derivedWallet.ownerAddress))
+        assertThat(cachedWallet.getAddresses(), `is`(derivedWallet.getAddresses()))
+        assertThat(cachedWallet.signIdentity("data"), `is`(derivedWallet.signIdentity("data")))
+    }
+
+    @Test
+    fun cacheForAnotherSeedIsIgnored() {
+        getExistingWallet()
+        val otherSeed = "zoo zoo zoo zoo zoo zoo zoo zoo zoo zoo zoo wrong"
+        walletPrefs.setMasterSeed(otherSeed)
+        val wallet = getExistingWallet()
+        assertThat(wallet.masterSeed, `is`(otherSeed))
+        assertThat(wallet.ownerAddress, `is`(mockWallet(otherSeed).ownerAddress))
+    }
+
+    private fun getExistingWallet() = HdWalletBuilder(walletPrefs, context)
+            .getExistingWallet()
+            .toBlocking()
+            .value()
+}
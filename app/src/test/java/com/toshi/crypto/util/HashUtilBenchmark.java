@@ -0,0 +1,56 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto.util;
+
+
+import com.toshi.crypto.cryptohash.Keccak256;
+
+import org.junit.Test;
+
+import static com.toshi.crypto.util.HashUtilTestData.createInput;
+
+public class HashUtilBenchmark {
+
+    @Test
+    public void compareThroughput() {
+        compareThroughput(32, 100_000);
+        compareThroughput(1024, 20_000);
+        compareThroughput(1024 * 1024, 20);
+    }
+
+    private void compareThroughput(final int size, final int iterations) {
+        final byte[] input = createInput(size);
+        final byte[] output = new byte[HashUtil.SHA3_LENGTH];
+        // Warm up both paths before measuring
+        for (int i = 0; i < Math.min(iterations, 1000); i++) {
+            new Keccak256().digest(input);
+            HashUtil.sha3(input, 0, input.length, output);
+        }
+
+        final long newDigestStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) new Keccak256().digest(input);
+        final long newDigestNanos = System.nanoTime() - newDigestStart;
+
+        final long reusedDigestStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) HashUtil.sha3(input, 0, input.length, output);
+        final long reusedDigestNanos = System.nanoTime() - reusedDigestStart;
+
+        System.out.println("sha3 of " + size + " bytes: new digest " + newDigestNanos / iterations
+                + "ns, reused digest " + reusedDigestNanos / iterations + "ns");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto.util;
+
+
+import com.toshi.crypto.cryptohash.Keccak256;
+
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.toshi.crypto.util.HashUtilTestData.createInput;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HashUtilTest {
+
+    private static final String EMPTY_SHA3 = "c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470";
+
+    @Test
+    public void sha3OfEmptyInputMatchesKnownHash() {
+        assertThat(Hex.toHexString(HashUtil.sha3(new byte[0])), is(EMPTY_SHA3));
+    }
+
+    @Test
+    public void reusedDigestMatchesNewDigest() {
+        for (final int size : new int[] {0, 1, 32, 135, 136, 137, 1024, 5000}) {
+            final byte[] input = createInput(size);
+            assertThat(HashUtil.sha3(input), is(new Keccak256().digest(input)));
+        }
+    }
+
+    @Test
+    public void sha3WithOffsetHashesOnlyTheRange() {
+        final byte[] input = createInput(100);
+        final byte[] output = new byte[HashUtil.SHA3_LENGTH];
+        HashUtil.sha3(input, 10, 50, output);
+        assertThat(output, is(HashUtil.sha3(Arrays.copyOfRange(input, 10, 60))));
+    }
+
+    @Test
+    public void sha3omit12WithOffsetMatchesCopiedRange() {
+        final byte[] input = createInput(65);
+        assertThat(HashUtil.sha3omit12(input, 1, 64), is(HashUtil.sha3omit12(Arrays.copyOfRange(input, 1, 65))));
+    }
+
+    @Test
+    public void sha3OfByteBuffersMatchesByteArray() {
+        final byte[] input = createInput(10_000);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(input.length);
+        direct.put(input).flip();
+        final ByteBuffer heap = ByteBuffer.wrap(input, 0, input.length);
+
+        assertThat(HashUtil.sha3(direct), is(HashUtil.sha3(input)));
+        assertThat(HashUtil.sha3(heap), is(HashUtil.sha3(input)));
+        assertThat(direct.hasRemaining(), is(false));
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto.util;
+
+/* package */ final class HashUtilTestData {
+
+    private HashUtilTestData() {}
+
+    // A repeatable, non-uniform input of the given size
+    /* package */ static byte[] createInput(final int size) {
+        final byte[] input = new byte[size];
+        for (int i = 0; i < size; i++) input[i] = (byte) (i * 31);
+        return input;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto.util
+
+import org.junit.Test
+import org.spongycastle.util.Arrays.concatenate
+import java.math.BigInteger
+
+class RLPBenchmark {
+
+    private val iterations = 20_000
+    private val skeleton = "0xf86d85746f6b6682832dc6c0832dc6c094dc0a63a5bdb165640661709569816bf08594dfd780b844a9059cbb0000000000000000000000002278562760cf038cb33b7b405c295a4c50db4fdd00000000000000000000000000000000000000000000000000000002540be400748080"
+    private val signature = "0xa343b0140fb8497e86a37e3b4a8329616675cdefed2e3e29654425bd10d749d74c22ba969436fced1d5d41d48a1c9e11f059caf54ac5704fa4443ec0aa5cc98901"
+    private val largeList: Array<Any> = Array(200) { BigInteger.valueOf(it.toLong()).shiftLeft(it) }
+
+    @Test
+    fun compareListEncoding() {
+        repeat(iterations / 10) { concatenatingEncode(largeList); RLP.encode(largeList) }
+
+        val concatenatingNanos = time(iterations / 10) { concatenatingEncode(largeList) }
+        val presizedNanos = time(iterations / 10) { RLP.encode(largeList) }
+
+        println("Encoding a 200 item list: concatenating ${concatenatingNanos / 1000}µs, " +
+                "presized ${presizedNanos / 1000}µs")
+    }
+
+    @Test
+    fun compareSkeletonDecoding() {
+        val skeletonBytes = TypeConverter.StringHexToByteArray(skeleton)
+        repeat(iterations) { RLP.decode(skeletonBytes, 0); walkWithCursor(skeletonBytes) }
+
+        val copyingNanos = time(iterations) { RLP.decode(skeletonBytes, 0) }
+        val cursorNanos = time(iterations) { walkWithCursor(skeletonBytes) }
+
+        println("Decoding a transaction skeleton: copying ${copyingNanos}ns, cursor ${cursorNanos}ns")
+    }
+
+    @Test
+    fun signTransactionSkeleton() {
+        repeat(iterations) { TypeConverter.skeletonAndSignatureToRLPEncodedHex(skeleton, signature) }
+        val nanos = time(iterations) { TypeConverter.skeletonAndSignatureToRLPEncodedHex(skeleton, signature) }
+        println("skeletonAndSignatureToRLPEncodedHex: ${nanos}ns")
+    }
+
+    private fun walkWithCursor(data: ByteArray): Int {
+        val transaction = RLPCursor(data)
+        transaction.next()
+        val fields = transaction.enterList()
+        var length = 0
+        while (fields.next()) length += fields.payloadLength
+        return length
+    }
+
+    // How RLP.encode used to build lists, copying the output once per item
+    private fun concatenatingEncode(input: Any): ByteArray {
+        if (input !is Array<*>) return RLP.encode(input)
+        var output = ByteArray(0)
+        input.forEach { output = concatenate(output, concatenatingEncode(it!!)) }
+        return concatenate(RLP.encodeLength(output.size, 0xc0), output)
+    }
+
+    private inline fun time(times: Int, block: () -> Unit): Long {
+        val start = System.nanoTime()
+        repeat(times) { block() }
+        return (System.nanoTime() - start) / times
+    }
+}
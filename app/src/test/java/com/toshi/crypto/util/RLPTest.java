@@ -0,0 +1,100 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.crypto.util;
+
+
+import org.junit.Test;
+import org.spongycastle.util.Arrays;
+import org.spongycastle.util.encoders.Hex;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RLPTest {
+
+    @Test
+    public void encodeMatchesKnownEncodings() {
+        assertThat(encodeToHex("dog"), is("83646f67"));
+        assertThat(encodeToHex(new Object[]{"cat", "dog"}), is("c88363617483646f67"));
+        assertThat(encodeToHex(""), is("80"));
+        assertThat(encodeToHex(new Object[0]), is("c0"));
+        assertThat(encodeToHex(0), is("80"));
+        assertThat(encodeToHex(15), is("0f"));
+        assertThat(encodeToHex(1024), is("820400"));
+        assertThat(encodeToHex(BigInteger.valueOf(1024)), is("820400"));
+        assertThat(encodeToHex(new Object[]{new Object[0], new Object[]{new Object[0]}}), is("c3c0c1c0"));
+    }
+
+    @Test
+    public void encodeUsesLongFormAboveFiftyFiveBytes() {
+        final String text = "Lorem ipsum dolor sit amet, consectetur adipisicing elit";
+        assertThat(encodeToHex(text), is("b838" + Hex.toHexString(text.getBytes())));
+    }
+
+    @Test
+    public void singleByteIsOnlyItsOwnEncodingBelowTheItemOffset() {
+        assertThat(encodeToHex(new byte[]{0x7f}), is("7f"));
+        assertThat(encodeToHex(new byte[]{(byte) 0x80}), is("8180"));
+        assertThat(encodeToHex(128), is("8180"));
+    }
+
+    @Test
+    public void cursorReadsItemsInPlace() {
+        final byte[] encoded = RLP.encode(new Object[]{"cat", new Object[]{1024, ""}});
+        final RLPCursor cursor = new RLPCursor(encoded);
+        assertThat(cursor.next(), is(true));
+        assertThat(cursor.isList(), is(true));
+        assertThat(cursor.getEncodedLength(), is(encoded.length));
+
+        final RLPCursor items = cursor.enterList();
+        assertThat(items.next(), is(true));
+        assertThat(new String(items.getBytes()), is("cat"));
+        assertThat(items.getData() == encoded, is(true));
+
+        assertThat(items.next(), is(true));
+        final RLPCursor nested = items.enterList();
+        assertThat(nested.next(), is(true));
+        assertThat(nested.asLong(), is(1024L));
+        assertThat(nested.next(), is(true));
+        assertThat(nested.isEmpty(), is(true));
+        assertThat(nested.next(), is(false));
+
+        assertThat(items.next(), is(false));
+        assertThat(cursor.next(), is(false));
+    }
+
+    @Test
+    public void encodeOfLargeListMatchesConcatenatedItems() {
+        final Object[] items = new Object[200];
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for (int i = 0; i < items.length; i++) {
+            items[i] = BigInteger.valueOf(i).shiftLeft(i);
+            final byte[] encodedItem = RLP.encode(items[i]);
+            payload.write(encodedItem, 0, encodedItem.length);
+        }
+        final byte[] expected = Arrays.concatenate(RLP.encodeLength(payload.size(), 0xc0), payload.toByteArray());
+        assertThat(RLP.encode(items), is(expected));
+    }
+
+    private String encodeToHex(final Object input) {
+        return Hex.toHexString(RLP.encode(input));
+    }
+}
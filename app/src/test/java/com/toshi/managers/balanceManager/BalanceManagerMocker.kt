@@ -22,12 +22,14 @@ import com.toshi.manager.BalanceManager
 import com.toshi.manager.ethRegistration.EthGcmRegistration
 import com.toshi.manager.network.CurrencyInterface
 import com.toshi.manager.network.EthereumServiceInterface
+import com.toshi.manager.network.ServerClock
 import com.toshi.managers.baseApplication.BaseApplicationMocker
 import com.toshi.mockWallet
 import com.toshi.mockWalletSubject
 import com.toshi.model.local.network.Network
 import com.toshi.model.local.network.Networks
 import com.toshi.model.network.ExchangeRate
+import com.toshi.testSharedPrefs.TestAppPrefs
 import com.toshi.util.sharedPrefs.AppPrefsInterface
 import com.toshi.util.sharedPrefs.BalancePrefsInterface
 import com.toshi.util.sharedPrefs.EthGcmPrefsInterface
@@ -50,7 +52,8 @@ class BalanceManagerMocker(
 
     fun mockWithWalletInit(): BalanceManager {
         val balanceManager = mock()
-        balanceManager.init().await()
+        balanceManager.initCachedBalance()
+        balanceManager.initNetworkSync().await()
         return balanceManager
     }
 
@@ -72,6 +75,7 @@ class BalanceManagerMocker(
                 ethGcmRegistration = ethGcmRegistration,
                 baseApplication = baseApplication,
                 walletObservable = walletObservable,
+                serverClock = ServerClock(TestAppPrefs()),
                 scheduler = Schedulers.trampoline()
         )
     }
@@ -118,6 +122,7 @@ class BalanceManagerMocker(
                 gcmPrefs = gcmPrefs,
                 ethService = ethApi,
                 walletObservable = walletObservable,
+                serverClock = ServerClock(TestAppPrefs()),
                 scheduler = Schedulers.trampoline()
         )
     }
@@ -0,0 +1,161 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.managers.balanceManager
+
+import com.toshi.manager.exchangeRate.ExchangeRateCache
+import com.toshi.manager.network.CurrencyInterface
+import com.toshi.model.network.Currencies
+import com.toshi.model.network.ExchangeRate
+import com.toshi.testSharedPrefs.TestBalancePrefs
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Before
+import org.junit.Test
+import rx.Single
+import rx.schedulers.Schedulers
+import rx.subjects.PublishSubject
+import java.math.BigDecimal
+import java.util.concurrent.TimeUnit
+
+class ExchangeRateCacheTests {
+
+    private val localCurrency = "USD"
+    private val oldRate = ExchangeRate("ETH", localCurrency, BigDecimal("500"), 0)
+    private val newRate = ExchangeRate("ETH", localCurrency, BigDecimal("600"), 0)
+
+    private lateinit var balancePrefs: TestBalancePrefs
+    private lateinit var currencyService: TestCurrencyService
+    private var nowMillis = 0L
+
+    @Before
+    fun setup() {
+        balancePrefs = TestBalancePrefs()
+        currencyService = TestCurrencyService()
+        nowMillis = 1_500_000_000_000L
+    }
+
+    @Test
+    fun concurrentCallersShareOneRequest() {
+        val cache = createCache()
+        val first = cache.get(localCurrency).toObservable().test()
+        val second = cache.get(localCurrency).toObservable().test()
+        currencyService.respond(oldRate)
+
+        first.assertValue(oldRate)
+        second.assertValue(oldRate)
+        assertThat(currencyService.requests, `is`(1))
+    }
+
+    @Test
+    fun freshRateIsServedFromCache() {
+        val cache = createCache()
+        val request = cache.get(localCurrency).toObservable().test()
+        currencyService.respond(oldRate)
+        request.assertValue(oldRate)
+
+        nowMillis += TimeUnit.MINUTES.toMillis(1)
+        cache.get(localCurrency).toObservable().test().assertValue(oldRate)
+        assertThat(currencyService.requests, `is`(1))
+    }
+
+    @Test
+    fun staleRateIsServedWhileRevalidating() {
+        createCache().get(localCurrency).toObservable().test()
+        currencyService.respond(oldRate)
+
+        nowMillis += TimeUnit.HOURS.toMillis(1)
+        val restartedCache = createCache()
+        restartedCache.get(localCurrency).toObservable().test().assertValue(oldRate)
+        assertThat(currencyService.requests, `is`(2))
+
+        currencyService.respond(newRate)
+        restartedCache.get(localCurrency).toObservable().test().assertValue(newRate)
+        assertThat(currencyService.requests, `is`(2))
+    }
+
+    @Test
+    fun expiredRateIsUsedWhenRefreshFails() {
+        createCache().get(localCurrency).toObservable().test()
+        currencyService.respond(oldRate)
+
+        nowMillis += TimeUnit.DAYS.toMillis(2)
+        val request = createCache().get(localCurrency).toObservable().test()
+        currencyService.fail(RuntimeException("Offline"))
+        request.assertValue(oldRate)
+    }
+
+    @Test
+    fun freshRateIsFetchedInsteadOfServingStaleRate() {
+        createCache().get(localCurrency).toObservable().test()
+        currencyService.respond(oldRate)
+
+        nowMillis += TimeUnit.HOURS.toMillis(1)
+        val cache = createCache()
+        val request = cache.getFresh(localCurrency).toObservable().test()
+        request.assertNoValues()
+        currencyService.respond(newRate)
+        request.assertValue(newRate)
+        assertThat(currencyService.requests, `is`(2))
+    }
+
+    @Test
+    fun freshRateFailsInsteadOfUsingStaleRate() {
+        createCache().get(localCurrency).toObservable().test()
+        currencyService.respond(oldRate)
+
+        nowMillis += TimeUnit.HOURS.toMillis(1)
+        val request = createCache().getFresh(localCurrency).toObservable().test()
+        currencyService.fail(RuntimeException("Offline"))
+        request.assertNoValues()
+        request.assertError(RuntimeException::class.java)
+    }
+
+    private fun createCache(): ExchangeRateCache {
+        return ExchangeRateCache(
+                currencyService = currencyService,
+                balancePrefs = balancePrefs,
+                scheduler = Schedulers.trampoline(),
+                currentTimeMillis = { nowMillis }
+        )
+    }
+
+    private class TestCurrencyService : CurrencyInterface {
+        private var response = PublishSubject.create<ExchangeRate>()
+        var requests = 0
+
+        override fun getRates(code: String): Single<ExchangeRate> {
+            return Single.defer {
+                requests++
+                response.toSingle()
+            }
+        }
+
+        override fun getCurrencies(): Single<Currencies> = Single.error(UnsupportedOperationException())
+
+        fun respond(exchangeRate: ExchangeRate) {
+            response.onNext(exchangeRate)
+            response.onCompleted()
+            response = PublishSubject.create()
+        }
+
+        fun fail(error: Throwable) {
+            response.onError(error)
+            response = PublishSubject.create()
+        }
+    }
+}
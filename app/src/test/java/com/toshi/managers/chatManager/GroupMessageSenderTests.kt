@@ -0,0 +1,108 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.managers.chatManager
+
+import com.toshi.manager.chat.GroupMessageSender
+import com.toshi.manager.model.GroupSendResult
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.mockito.ArgumentMatchers.any
+import org.mockito.Mockito
+import org.whispersystems.signalservice.api.SignalServiceMessageSender
+import org.whispersystems.signalservice.api.crypto.UntrustedIdentityException
+import org.whispersystems.signalservice.api.messages.SignalServiceDataMessage
+import org.whispersystems.signalservice.api.push.SignalServiceAddress
+import org.whispersystems.signalservice.api.push.exceptions.UnregisteredUserException
+import java.io.IOException
+import java.util.Collections
+
+class GroupMessageSenderTests {
+
+    private val members = listOf("0x1", "0x2", "0x3").map { SignalServiceAddress(it) }
+    private val message = SignalServiceDataMessage.newBuilder().withBody("Hello").build()
+    private lateinit var sentTo: MutableList<String>
+    private lateinit var groupMessageSender: GroupMessageSender
+
+    @Before
+    fun setup() {
+        sentTo = Collections.synchronizedList(mutableListOf())
+    }
+
+    @After
+    fun tearDown() {
+        groupMessageSender.clear()
+    }
+
+    @Test
+    fun messageIsDeliveredToEveryMember() {
+        groupMessageSender = GroupMessageSender(mockSender())
+        val result = groupMessageSender.send(members, message)
+        assertTrue(result.isDelivered())
+        assertEquals(listOf("0x1", "0x2", "0x3"), result.deliveredAddresses.sorted())
+        assertEquals(listOf("0x1", "0x2", "0x3"), sentTo.sorted())
+    }
+
+    @Test
+    fun failureOnlyAffectsTheMemberItHappenedTo() {
+        groupMessageSender = GroupMessageSender(mockSender(mapOf("0x2" to IOException("Timeout"))))
+        val result = groupMessageSender.send(members, message)
+        assertFalse(result.isDelivered())
+        assertEquals(listOf("0x2"), result.failedAddresses)
+        assertEquals(listOf("0x1", "0x3"), result.deliveredAddresses.sorted())
+    }
+
+    @Test
+    fun unregisteredMemberIsNotAFailure() {
+        groupMessageSender = GroupMessageSender(mockSender(mapOf("0x3" to UnregisteredUserException("0x3", IOException()))))
+        val result = groupMessageSender.send(members, message)
+        assertTrue(result.isDelivered())
+        assertEquals(listOf("0x1", "0x2"), result.deliveredAddresses.sorted())
+    }
+
+    @Test
+    fun resendSkipsMembersThatReceivedTheMessage() {
+        groupMessageSender = GroupMessageSender(mockSender())
+        val result = groupMessageSender.send(members, message, deliveredAddresses = listOf("0x1", "0x3"))
+        assertEquals(listOf("0x2"), sentTo)
+        assertEquals(setOf("0x2"), result.outcomes.keys)
+    }
+
+    @Test
+    fun untrustedIdentitiesAreReportedAsFailures() {
+        val untrustedIdentity = Mockito.mock(UntrustedIdentityException::class.java)
+        val result = GroupSendResult(mapOf("0x1" to null, "0x2" to untrustedIdentity))
+        assertEquals(listOf(untrustedIdentity), result.untrustedIdentities)
+        assertEquals(listOf("0x2"), result.failedAddresses)
+        assertEquals(listOf("0x1"), result.deliveredAddresses)
+    }
+
+    private fun mockSender(failures: Map<String, Exception> = emptyMap()): SignalServiceMessageSender {
+        val signalMessageSender = Mockito.mock(SignalServiceMessageSender::class.java)
+        Mockito.doAnswer { invocation ->
+            val address = invocation.getArgument<SignalServiceAddress>(0)
+            sentTo.add(address.number)
+            failures[address.number]?.let { throw it }
+            null
+        }.`when`(signalMessageSender).sendMessage(any(SignalServiceAddress::class.java), any(SignalServiceDataMessage::class.java))
+        return signalMessageSender
+    }
+}
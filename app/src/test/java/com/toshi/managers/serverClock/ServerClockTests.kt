@@ -0,0 +1,78 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.managers.serverClock
+
+import com.toshi.manager.network.ServerClock
+import com.toshi.model.network.ServerTime
+import com.toshi.testSharedPrefs.TestAppPrefs
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import rx.Single
+import java.util.Date
+
+class ServerClockTests {
+
+    private val localMillis = 1_500_000_000_000L
+    private val serverSeconds = 1_500_000_100L
+    private lateinit var appPrefs: TestAppPrefs
+    private var serverRequests = 0
+
+    @Before
+    fun setup() {
+        appPrefs = TestAppPrefs()
+        serverRequests = 0
+    }
+
+    @Test
+    fun fetchesServerTimeOnlyUntilTheOffsetIsKnown() {
+        val serverClock = ServerClock(appPrefs) { localMillis }
+        val first = serverClock.getTimestamp(serverTime()).toBlocking().value()
+        val second = serverClock.getTimestamp(serverTime()).toBlocking().value()
+        assertEquals(serverSeconds, first.get())
+        assertEquals(serverSeconds, second.get())
+        assertEquals(1, serverRequests)
+    }
+
+    @Test
+    fun persistedOffsetIsUsedByNextInstance() {
+        ServerClock(appPrefs) { localMillis }.getTimestamp(serverTime()).toBlocking().value()
+        val restartedClock = ServerClock(appPrefs) { localMillis + 60_000 }
+        assertTrue(restartedClock.isSynced())
+        assertEquals(serverSeconds + 60, restartedClock.nowSeconds())
+    }
+
+    @Test
+    fun dateHeaderOnlyCorrectsALargeSkew() {
+        val serverClock = ServerClock(appPrefs) { localMillis }
+        serverClock.onServerTime(serverSeconds, localMillis, localMillis)
+        val agreeingDate = Date(serverSeconds * 1000 + 1000)
+        assertFalse(serverClock.onDateHeader(agreeingDate, localMillis, localMillis))
+
+        val skewedDate = Date(serverSeconds * 1000 + 300_000)
+        assertTrue(serverClock.onDateHeader(skewedDate, localMillis, localMillis))
+        assertEquals(serverSeconds + 300, serverClock.nowSeconds())
+    }
+
+    private fun serverTime() = Single.fromCallable {
+        serverRequests++
+        ServerTime(serverSeconds)
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.managers.startup
+
+import com.toshi.manager.startup.StartupOrchestrator
+import com.toshi.manager.startup.StartupPhase
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import rx.Completable
+import rx.schedulers.Schedulers
+
+class StartupOrchestratorTests {
+
+    private lateinit var ranPhases: MutableList<String>
+
+    @Before
+    fun setup() {
+        ranPhases = mutableListOf()
+    }
+
+    @Test
+    fun phasesRunAfterTheirDependenciesAndOnlyOnce() {
+        val orchestrator = StartupOrchestrator(
+                phases = listOf(
+                        phase("user", dependencies = listOf("realm")),
+                        phase("chat", dependencies = listOf("realm", "user")),
+                        phase("realm")
+                ),
+                deferredScheduler = Schedulers.immediate()
+        )
+        orchestrator.start().await()
+        assertEquals(listOf("realm", "user", "chat"), ranPhases)
+        assertEquals(3, orchestrator.getTimings().size)
+    }
+
+    @Test
+    fun deferredPhasesRunAfterTheCriticalPath() {
+        val orchestrator = StartupOrchestrator(
+                phases = listOf(
+                        phase("sync", isDeferred = true),
+                        phase("balance")
+                ),
+                deferredScheduler = Schedulers.immediate()
+        )
+        orchestrator.start().await()
+        assertEquals(listOf("balance", "sync"), ranPhases)
+        assertTrue(orchestrator.getTimings().first { it.name == "sync" }.isDeferred)
+    }
+
+    @Test
+    fun ignoredFailureLetsDependentPhasesRun() {
+        val orchestrator = StartupOrchestrator(
+                phases = listOf(
+                        phase("realm", ignoreErrors = true, error = IllegalStateException()),
+                        phase("user", dependencies = listOf("realm"))
+                ),
+                deferredScheduler = Schedulers.immediate()
+        )
+        orchestrator.start().await()
+        assertEquals(listOf("realm", "user"), ranPhases)
+        assertFalse(orchestrator.getTimings().first { it.name == "realm" }.isSuccessful)
+    }
+
+    @Test
+    fun criticalFailureFailsStartupAfterIndependentPhasesFinish() {
+        val orchestrator = StartupOrchestrator(
+                phases = listOf(
+                        phase("chat", error = IllegalStateException()),
+                        phase("balance")
+                ),
+                deferredScheduler = Schedulers.immediate()
+        )
+        try {
+            orchestrator.start().await()
+        } catch (e: IllegalStateException) {
+            assertEquals(listOf("chat", "balance"), ranPhases)
+            return
+        }
+        fail("Startup should fail when a critical phase fails")
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun unknownDependencyIsRejected() {
+        StartupOrchestrator(listOf(phase("user", dependencies = listOf("realm"))))
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun cycleIsRejected() {
+        StartupOrchestrator(listOf(
+                phase("user", dependencies = listOf("chat")),
+                phase("chat", dependencies = listOf("user"))
+        ))
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun criticalPhaseDependingOnDeferredPhaseIsRejected() {
+        StartupOrchestrator(listOf(
+                phase("sync", isDeferred = true),
+                phase("balance", dependencies = listOf("sync"))
+        ))
+    }
+
+    private fun phase(name: String,
+                      dependencies: List<String> = emptyList(),
+                      isDeferred: Boolean = false,
+                      ignoreErrors: Boolean = false,
+                      error: Throwable? = null): StartupPhase {
+        return StartupPhase(name, dependencies, isDeferred, ignoreErrors) {
+            Completable.fromAction {
+                ranPhases.add(name)
+                if (error != null) throw error
+            }
+        }
+    }
+}
@@ -24,11 +24,13 @@ import com.toshi.manager.TransactionManager
 import com.toshi.manager.network.EthereumServiceInterface
 import com.toshi.manager.store.PendingTransactionStore
 import com.toshi.manager.transaction.IncomingTransactionManager
+import com.toshi.manager.transaction.LocalTransactionBuilder
 import com.toshi.manager.transaction.OutgoingTransactionManager
 import com.toshi.manager.transaction.TransactionSigner
 import com.toshi.manager.transaction.UpdateTransactionManager
 import com.toshi.managers.balanceManager.EthereumServiceMocker
 import com.toshi.mockWalletSubject
+import com.toshi.testSharedPrefs.TestAppPrefs
 import org.mockito.Mockito
 import rx.Observable
 import rx.schedulers.Schedulers
@@ -37,24 +39,32 @@ class TransactionManagerMocker {
 
     fun initTransactionManagerWithWallet(wallet: HDWallet?): TransactionManager {
         val transactionManager = mockTransctionManager(wallet)
-        transactionManager.init()
+        transactionManager.initSubscribers()
+        transactionManager.updatePendingTransactions()
         return transactionManager
     }
 
     fun initTransactionManagerWithoutWallet(): TransactionManager {
         val transactionManager = mockTransctionManager(null)
-        transactionManager.init()
+        transactionManager.initSubscribers()
+        transactionManager.updatePendingTransactions()
         return transactionManager
     }
 
     private fun mockTransctionManager(wallet: HDWallet?): TransactionManager {
         val ethService = mockEthService()
         val walletObservable = mockWalletObservable(wallet)
+        val localTransactionBuilder = LocalTransactionBuilder(appPrefs = TestAppPrefs())
         return TransactionManager(
                 ethService = ethService,
                 walletObservable = walletObservable,
                 pendingTransactionStore = PendingTransactionStore(),
-                transactionSigner = TransactionSigner(ethService, walletObservable),
+                localTransactionBuilder = localTransactionBuilder,
+                transactionSigner = TransactionSigner(
+                        ethereumService = ethService,
+                        walletObservable = walletObservable,
+                        transactionBuilder = localTransactionBuilder
+                ),
                 incomingTransactionManager = mockIncomingTransactionManager(),
                 outgoingTransactionManager = mockOutgoingTransactionManager(),
                 updateTransactionManager = mockUpdateTransactionManager(),
@@ -0,0 +1,158 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.toshi.managers.transactionManager
+
+import com.toshi.manager.store.PendingTransactionStore
+import com.toshi.manager.transaction.UpdateTransactionManager
+import com.toshi.model.local.PendingTransaction
+import com.toshi.model.sofa.SofaAdapters
+import com.toshi.model.sofa.SofaMessage
+import com.toshi.model.sofa.SofaType
+import com.toshi.model.sofa.payment.Payment
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Before
+import org.junit.Test
+import rx.Single
+import rx.schedulers.TestScheduler
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+class UpdateTransactionManagerTests {
+
+    private lateinit var scheduler: TestScheduler
+    private lateinit var pendingTransactionStore: TestPendingTransactionStore
+    private lateinit var statusResponses: MutableMap<String, MutableList<() -> Payment>>
+    private lateinit var statusRequests: MutableMap<String, Int>
+
+    @Before
+    fun setup() {
+        scheduler = TestScheduler()
+        pendingTransactionStore = TestPendingTransactionStore()
+        statusResponses = HashMap()
+        statusRequests = HashMap()
+    }
+
+    @Test
+    fun onlyTransactionsWithChangedStatusAreSaved() {
+        pendingTransactionStore.unconfirmedTransactions = listOf(createTransaction("0x1"), createTransaction("0x2"))
+        respondWithStatus("0x1", SofaType.CONFIRMED)
+        respondWithStatus("0x2", SofaType.UNCONFIRMED)
+
+        createManager().updatePendingTransactions()
+        scheduler.triggerActions()
+
+        val saved = pendingTransactionStore.savedTransactions.single()
+        assertThat(saved.txHash, `is`("0x1"))
+        assertThat(saved.status, `is`(SofaType.CONFIRMED))
+        assertThat(SofaAdapters.get().paymentFrom(saved.sofaMessage.payload).status, `is`(SofaType.CONFIRMED))
+    }
+
+    @Test
+    fun networkErrorsAreRetriedWithBackoff() {
+        pendingTransactionStore.unconfirmedTransactions = listOf(createTransaction("0x1"))
+        respondWithError("0x1", IOException("Offline"))
+        respondWithError("0x1", IOException("Offline"))
+        respondWithStatus("0x1", SofaType.CONFIRMED)
+
+        createManager().updatePendingTransactions()
+        scheduler.triggerActions()
+        assertThat(statusRequests["0x1"], `is`(1))
+
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS)
+        assertThat(statusRequests["0x1"], `is`(2))
+        scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS)
+        assertThat(statusRequests["0x1"], `is`(2))
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS)
+        assertThat(statusRequests["0x1"], `is`(3))
+
+        assertThat(pendingTransactionStore.savedTransactions.single().status, `is`(SofaType.CONFIRMED))
+    }
+
+    @Test
+    fun transactionIsSkippedWhenRetriesRunOut() {
+        pendingTransactionStore.unconfirmedTransactions = listOf(createTransaction("0x1"), createTransaction("0x2"))
+        respondWithError("0x1", IOException("Offline"))
+        respondWithError("0x1", IOException("Offline"))
+        respondWithError("0x1", IOException("Offline"))
+        respondWithStatus("0x2", SofaType.FAILED)
+
+        createManager().updatePendingTransactions()
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES)
+
+        assertThat(statusRequests["0x1"], `is`(3))
+        assertThat(pendingTransactionStore.savedTransactions.single().txHash, `is`("0x2"))
+    }
+
+    @Test
+    fun otherErrorsAreNotRetried() {
+        pendingTransactionStore.unconfirmedTransactions = listOf(createTransaction("0x1"))
+        respondWithError("0x1", IllegalStateException("Unknown transaction"))
+
+        createManager().updatePendingTransactions()
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES)
+
+        assertThat(statusRequests["0x1"], `is`(1))
+        assertThat(pendingTransactionStore.savedTransactions.isEmpty(), `is`(true))
+    }
+
+    private fun createManager(): UpdateTransactionManager {
+        return UpdateTransactionManager(
+                pendingTransactionStore = pendingTransactionStore,
+                loadTransactionStatus = { loadStatus(it) },
+                scheduler = scheduler
+        )
+    }
+
+    private fun createTransaction(txHash: String): PendingTransaction {
+        val payment = Payment()
+                .setTxHash(txHash)
+                .setValue("0x1")
+                .setStatus(SofaType.UNCONFIRMED)
+        val sofaMessage = SofaMessage().makeNew(SofaAdapters.get().toJson(payment))
+        return PendingTransaction()
+                .setTxHash(txHash)
+                .setSofaMessage(sofaMessage)
+                .setStatus(SofaType.UNCONFIRMED)
+    }
+
+    private fun respondWithStatus(txHash: String, status: String) {
+        statusResponses.getOrPut(txHash) { mutableListOf() }.add { Payment().setTxHash(txHash).setStatus(status) }
+    }
+
+    private fun respondWithError(txHash: String, error: Throwable) {
+        statusResponses.getOrPut(txHash) { mutableListOf() }.add { throw error }
+    }
+
+    private fun loadStatus(txHash: String): Single<Payment> {
+        return Single.fromCallable {
+            statusRequests[txHash] = (statusRequests[txHash] ?: 0) + 1
+            statusResponses[txHash]!!.removeAt(0).invoke()
+        }
+    }
+
+    private class TestPendingTransactionStore : PendingTransactionStore() {
+        var unconfirmedTransactions: List<PendingTransaction> = emptyList()
+        val savedTransactions = mutableListOf<PendingTransaction>()
+
+        override fun loadUnconfirmedTransactions(): Single<List<PendingTransaction>> = Single.just(unconfirmedTransactions)
+
+        override fun saveAll(pendingTransactions: List<PendingTransaction>) {
+            savedTransactions.addAll(pendingTransactions)
+        }
+    }
+}
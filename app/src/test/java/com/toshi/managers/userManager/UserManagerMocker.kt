@@ -23,6 +23,7 @@ import com.toshi.crypto.HDWallet
 import com.toshi.manager.RecipientManager
 import com.toshi.manager.UserManager
 import com.toshi.manager.network.IdService
+import com.toshi.manager.network.ServerClock
 import com.toshi.managers.baseApplication.BaseApplicationMocker
 import com.toshi.masterSeed
 import com.toshi.mockWallet
@@ -41,6 +42,7 @@ class UserManagerMocker {
                 idService = mockIdApi(),
                 userPrefs = userPrefs,
                 appPrefs = TestAppPrefs(),
+                serverClock = ServerClock(TestAppPrefs()),
                 baseApplication = mockBaseApplication(),
                 recipientManager = recipientManager,
                 walletObservable = mockWalletObservable(),
@@ -0,0 +1,54 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.model.local;
+
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PendingMessageTest {
+
+    @Test
+    public void deliveredAddressesAreKeptInOrder() {
+        final PendingMessage pendingMessage = new PendingMessage()
+                .setDeliveredAddresses(Arrays.asList("0x1", "0x2", "0x3"));
+        assertThat(pendingMessage.getDeliveredAddresses(), is(Arrays.asList("0x1", "0x2", "0x3")));
+    }
+
+    @Test
+    public void noDeliveredAddressesGivesAnEmptyList() {
+        assertTrue(new PendingMessage().getDeliveredAddresses().isEmpty());
+        final PendingMessage pendingMessage = new PendingMessage()
+                .setDeliveredAddresses(Collections.emptyList());
+        assertTrue(pendingMessage.getDeliveredAddresses().isEmpty());
+    }
+
+    @Test
+    public void replacingDeliveredAddressesDropsTheOldOnes() {
+        final PendingMessage pendingMessage = new PendingMessage()
+                .setDeliveredAddresses(Arrays.asList("0x1", "0x2"))
+                .setDeliveredAddresses(Collections.singletonList("0x3"));
+        assertThat(pendingMessage.getDeliveredAddresses(), is(Collections.singletonList("0x3")));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.model.sofa;
+
+
+import com.toshi.model.sofa.payment.ERC20TokenPayment;
+import com.toshi.model.sofa.payment.Payment;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SofaDecodeCacheTest {
+
+    private SofaDecodeCache cache;
+    private SofaAdapters sofaAdapters;
+
+    @Before
+    public void setup() {
+        this.cache = new SofaDecodeCache(2);
+        this.sofaAdapters = SofaAdapters.get();
+    }
+
+    @Test
+    public void sameMessageIsOnlyDecodedOnce() throws IOException {
+        final SofaMessage sofaMessage = new SofaMessage().makeNew("SOFA::Message:{\"body\":\"Hello\"}");
+        final Message first = this.cache.get(sofaMessage, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        final Message second = this.cache.get(sofaMessage, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getBody(), is("Hello"));
+        assertThat(this.cache.getHitCount(), is(1L));
+        assertThat(this.cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void changedPayloadIsDecodedAgain() throws IOException {
+        final SofaMessage sofaMessage = new SofaMessage().makeNew("SOFA::Message:{\"body\":\"Hello\"}");
+        final Message first = this.cache.get(sofaMessage, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        sofaMessage.setPayload("SOFA::Message:{\"body\":\"Updated\"}");
+        final Message second = this.cache.get(sofaMessage, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getBody(), is("Updated"));
+    }
+
+    @Test
+    public void payloadWithSameHashIsDecodedAgain() throws IOException {
+        // "Aa" and "BB" have the same String.hashCode()
+        final SofaMessage sofaMessage = new SofaMessage().makeNew("SOFA::Message:{\"body\":\"Aa\"}");
+        this.cache.get(sofaMessage, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        final int previousHash = sofaMessage.getPayload().hashCode();
+        sofaMessage.setPayload("SOFA::Message:{\"body\":\"BB\"}");
+        assertThat(sofaMessage.getPayload().hashCode(), is(previousHash));
+        final Message second = this.cache.get(sofaMessage, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        assertThat(second.getBody(), is("BB"));
+        assertThat(this.cache.getHitCount(), is(0L));
+    }
+
+    @Test
+    public void modifyingReturnedValueDoesNotChangeCachedValue() throws IOException {
+        final SofaMessage sofaMessage = new SofaMessage().makeNew("SOFA::Payment:{\"value\":\"0x1\"}");
+        final Payment first = this.cache.get(sofaMessage, Payment.class, this.sofaAdapters::paymentFrom, Payment::copy);
+        first.setLocalPrice("$1.00");
+        first.setValue("0x2");
+        final Payment second = this.cache.get(sofaMessage, Payment.class, this.sofaAdapters::paymentFrom, Payment::copy);
+        assertThat(second.getLocalPrice(), is(nullValue()));
+        assertThat(second.getValue(), is("0x1"));
+        assertThat(this.cache.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void tokenPaymentCopyKeepsContractAddress() throws IOException {
+        final SofaMessage sofaMessage = new SofaMessage().makeNew("SOFA::TokenPayment:{\"value\":\"0x1\",\"contractAddress\":\"0xabc\"}");
+        final ERC20TokenPayment first = this.cache.get(sofaMessage, ERC20TokenPayment.class, this.sofaAdapters::tokenPaymentFrom, ERC20TokenPayment::copy);
+        first.setValue("0x2");
+        final ERC20TokenPayment second = this.cache.get(sofaMessage, ERC20TokenPayment.class, this.sofaAdapters::tokenPaymentFrom, ERC20TokenPayment::copy);
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getContractAddress(), is("0xabc"));
+        assertThat(second.getValue(), is("0x1"));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() throws IOException {
+        final SofaMessage first = new SofaMessage().makeNew("SOFA::Message:{\"body\":\"1\"}");
+        final SofaMessage second = new SofaMessage().makeNew("SOFA::Message:{\"body\":\"2\"}");
+        final SofaMessage third = new SofaMessage().makeNew("SOFA::Message:{\"body\":\"3\"}");
+        this.cache.get(first, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        this.cache.get(second, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        this.cache.get(third, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        this.cache.get(first, Message.class, this.sofaAdapters::messageFrom, Message::copy);
+        assertThat(this.cache.getHitCount(), is(0L));
+        assertThat(this.cache.getMissCount(), is(4L));
+    }
+}
@@ -19,6 +19,7 @@ package com.toshi.networkSwitching
 
 import com.toshi.crypto.HDWallet
 import com.toshi.manager.ethRegistration.EthGcmRegistration
+import com.toshi.manager.network.ServerClock
 import com.toshi.managers.balanceManager.EthereumServiceMocker
 import com.toshi.masterSeed
 import com.toshi.mockWallet
@@ -83,6 +84,7 @@ class NetworkSwitchingTests {
                 gcmPrefs = ethGcmPrefs,
                 gcmToken = TestGcmToken(),
                 walletObservable = mockWalletObservable(),
+                serverClock = ServerClock(TestAppPrefs()),
                 scheduler = Schedulers.trampoline()
         )
         ethGcmRegistration.changeNetwork(mainnet).await()
@@ -116,6 +118,7 @@ class NetworkSwitchingTests {
                 gcmPrefs = ethGcmPrefs,
                 gcmToken = TestGcmToken(),
                 walletObservable = walletObservable,
+                serverClock = ServerClock(TestAppPrefs()),
                 scheduler = Schedulers.trampoline()
         )
     }
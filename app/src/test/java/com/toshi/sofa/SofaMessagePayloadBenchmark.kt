@@ -0,0 +1,47 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.sofa
+
+import com.toshi.model.sofa.SofaMessage
+import com.toshi.model.sofa.SofaType
+import org.junit.Test
+
+class SofaMessagePayloadBenchmark {
+
+    private val binds = 100_000
+    private val rawMessage = "SOFA::Message:{" +
+            "\"${SofaType.LOCAL_ONLY_PAYLOAD}\":{\"sent\":true}," +
+            "\"body\":\"Hey, did you get the payment I sent you yesterday?\"," +
+            "\"showKeyboard\":true" +
+            "}"
+
+    @Test
+    fun compareCostPerBind() {
+        val sofaMessage = SofaMessage().makeNew(rawMessage)
+
+        val uncachedStart = System.nanoTime()
+        for (i in 0 until binds) uncachedPayload(sofaMessage.payloadWithHeaders)
+        val uncachedNanos = System.nanoTime() - uncachedStart
+
+        val cachedStart = System.nanoTime()
+        for (i in 0 until binds) sofaMessage.payload
+        val cachedNanos = System.nanoTime() - cachedStart
+
+        println("getPayload per bind: uncached ${uncachedNanos / binds}ns, cached ${cachedNanos / binds}ns")
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.sofa
+
+import com.toshi.model.sofa.SofaMessage
+import com.toshi.model.sofa.SofaType
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import java.util.regex.Pattern
+
+class SofaMessagePayloadTests {
+
+    private val rawMessage = "SOFA::Message:{" +
+            "\"${SofaType.LOCAL_ONLY_PAYLOAD}\":{\"sent\":true}," +
+            "\"body\":\"Hey, did you get the payment I sent you yesterday?\"," +
+            "\"showKeyboard\":true" +
+            "}"
+    private val headerPayloads = listOf(rawMessage, "SOFA::Payment:{}", "SOFA::InitRequest:{\"values\":[]}",
+            "no header", "SOFA::", "SOFA:::{}", "SOFA::\nSOFA::Command:{}", "SOFA::Mess\nage:{}", "",
+            "SOFA::\nSOFA::Message:{\"body\":\"Hi\"}", "SOFA::Mess\nSOFA::Payment:{}")
+
+    @Test
+    fun payloadMatchesPreviousImplementation() {
+        val sofaMessage = SofaMessage().makeNew(rawMessage)
+        assertThat(sofaMessage.payload, `is`(uncachedPayload(rawMessage)))
+        assertThat(sofaMessage.asSofaMessage, `is`(uncachedSofaMessage(rawMessage)))
+        assertThat(sofaMessage.type, `is`(SofaType.PLAIN_TEXT))
+    }
+
+    @Test
+    fun payloadIsUpdatedWhenPayloadChanges() {
+        val sofaMessage = SofaMessage().makeNew(rawMessage)
+        sofaMessage.payload
+        sofaMessage.setPayload("SOFA::Message:{\"body\":\"Updated\"}")
+        assertThat(sofaMessage.payload, `is`("{\"body\":\"Updated\"}"))
+    }
+
+    @Test
+    fun headerScannerMatchesPreviousPattern() {
+        headerPayloads.forEach {
+            val matcher = Pattern.compile("SOFA::.+?:").matcher(it)
+            val isFound = matcher.find()
+            assertThat(SofaType.findHeaderStart(it), `is`(if (isFound) matcher.start() else -1))
+            assertThat(SofaType.findHeaderEnd(it), `is`(if (isFound) matcher.end() else -1))
+        }
+    }
+
+    @Test
+    fun typeFromPayloadMatchesPreviousPattern() {
+        headerPayloads.forEach {
+            val matcher = Pattern.compile("SOFA::.+?:").matcher(it)
+            val expectedType = if (matcher.find()) SofaType.getType(matcher.group()) else SofaType.UNKNOWN
+            assertThat(SofaType.getTypeFromPayload(it), `is`(expectedType))
+        }
+        assertThat(SofaType.getTypeFromPayload("SOFA::\nSOFA::Message:{\"body\":\"Hi\"}"), `is`(SofaType.PLAIN_TEXT))
+    }
+
+    private fun uncachedSofaMessage(payload: String): String {
+        return payload.replaceFirst("\"${SofaType.LOCAL_ONLY_PAYLOAD}\":\\{.*?\\},".toRegex(), "")
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.sofa
+
+import java.util.regex.Pattern
+
+// Extracts the JSON body the way SofaMessage did before its patterns were
+// precompiled and the parsed body was cached
+fun uncachedPayload(payload: String): String {
+    val matcher = Pattern.compile("\\{.*\\}").matcher(payload)
+    return if (matcher.find()) matcher.group() else payload
+}
@@ -29,6 +29,7 @@ import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.HAS_LOADED_APP_FIR
 import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.HAS_ONBOARDED
 import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.HAS_SIGNED_OUT
 import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.LOCAL_CURRENCY_CODE
+import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.SERVER_CLOCK_OFFSET
 import com.toshi.util.sharedPrefs.AppPrefsInterface.Companion.WAS_MIGRATED
 
 class TestAppPrefs : AppPrefsInterface {
@@ -119,6 +120,14 @@ class TestAppPrefs : AppPrefsInterface {
         return map[HAS_CLEARED_NOTIFICATION_CHANNELS] as Boolean? ?: false
     }
 
+    override fun setServerClockOffset(offsetMillis: Long) {
+        map[SERVER_CLOCK_OFFSET] = offsetMillis
+    }
+
+    override fun getServerClockOffset(): Long? {
+        return map[SERVER_CLOCK_OFFSET] as Long?
+    }
+
     override fun clear() {
         map[HAS_BACKED_UP_PHRASE] = false
         map[LOCAL_CURRENCY_CODE] = null
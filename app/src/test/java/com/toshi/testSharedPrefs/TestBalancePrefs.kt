@@ -0,0 +1,44 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.testSharedPrefs
+
+import com.toshi.model.local.CachedExchangeRate
+import com.toshi.model.network.Balance
+import com.toshi.util.sharedPrefs.BalancePrefsInterface
+
+class TestBalancePrefs : BalancePrefsInterface {
+    private val balances by lazy { HashMap<Int, String>() }
+    private val exchangeRates by lazy { HashMap<String, CachedExchangeRate>() }
+
+    override fun readLastKnownBalance(walletIndex: Int): String = balances[walletIndex] ?: "0x0"
+
+    override fun writeLastKnownBalance(walletIndex: Int, balance: Balance) {
+        balances[walletIndex] = balance.unconfirmedBalanceAsHex
+    }
+
+    override fun readExchangeRate(code: String): CachedExchangeRate? = exchangeRates[code]
+
+    override fun writeExchangeRate(code: String, cachedExchangeRate: CachedExchangeRate) {
+        exchangeRates[code] = cachedExchangeRate
+    }
+
+    override fun clear() {
+        balances.clear()
+        exchangeRates.clear()
+    }
+}
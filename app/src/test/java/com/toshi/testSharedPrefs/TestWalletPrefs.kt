@@ -20,6 +20,7 @@
 package com.toshi.testSharedPrefs
 
 import com.toshi.util.sharedPrefs.WalletPrefsInterface
+import com.toshi.util.sharedPrefs.WalletPrefsInterface.Companion.DERIVED_KEYS
 import com.toshi.util.sharedPrefs.WalletPrefsInterface.Companion.MASTER_SEED
 
 class TestWalletPrefs : WalletPrefsInterface {
@@ -32,6 +33,12 @@ class TestWalletPrefs : WalletPrefsInterface {
         prefs[MASTER_SEED] = masterSeed
     }
 
+    override fun getDerivedKeys(): String? = prefs[DERIVED_KEYS] as String?
+
+    override fun setDerivedKeys(derivedKeys: String?) {
+        prefs[DERIVED_KEYS] = derivedKeys
+    }
+
     override fun getCurrentWalletIndex(): Int {
         return if (!prefs.containsKey(WalletPrefsInterface.WALLET_INDEX)) 0
         else prefs[WalletPrefsInterface.WALLET_INDEX] as? Int ?: 0
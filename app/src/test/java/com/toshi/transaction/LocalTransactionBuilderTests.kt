@@ -0,0 +1,140 @@
+/*
+ * 	Copyright (c) 2017. Toshi Inc
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.toshi.transaction
+
+import com.toshi.crypto.util.TypeConverter
+import com.toshi.manager.transaction.LocalTransactionBuilder
+import com.toshi.manager.transaction.NonceManager
+import com.toshi.manager.transaction.TransactionSkeleton
+import com.toshi.model.network.TransactionRequest
+import com.toshi.model.network.UnsignedTransaction
+import com.toshi.testSharedPrefs.TestAppPrefs
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import java.math.BigInteger
+import java.util.concurrent.TimeUnit
+
+class LocalTransactionBuilderTests {
+
+    private val fromAddress = "0x0000000000000000000000000000000000000001"
+    private val toAddress = "0x4a40d412f25db163a9af6190752c0758bdca6aa3"
+    private val serverSkeleton = "0xef85746f6b65e2843b9aca00825208944a40d412f25db163a9af6190752c0758bdca6aa387061d3d89a8900080748080"
+    private val serverNonce = BigInteger("746f6b65e2", 16)
+    private val request = TransactionRequest(value = "0x061d3d89a89000", from = fromAddress, to = toAddress)
+    private var now = 1_500_000_000_000L
+    private lateinit var transactionBuilder: LocalTransactionBuilder
+
+    @Before
+    fun setup() {
+        val appPrefs = TestAppPrefs()
+        transactionBuilder = LocalTransactionBuilder(
+                appPrefs = appPrefs,
+                nonceManager = NonceManager(appPrefs) { now }
+        ) { now }
+    }
+
+    @Test
+    fun skeletonRoundTrips() {
+        assertEquals(serverSkeleton, TransactionSkeleton.decode(serverSkeleton).encode())
+    }
+
+    @Test
+    fun buildsNothingUntilTheServerHasBuiltATransaction() {
+        assertNull(transactionBuilder.build(request))
+    }
+
+    @Test
+    fun buildsTheNextTransactionAfterOneIsSent() {
+        sendServerTransaction()
+
+        val unsignedTransaction = transactionBuilder.build(request)
+        assertNotNull(unsignedTransaction)
+        val skeleton = TransactionSkeleton.decode(unsignedTransaction!!.transaction)
+        assertEquals(serverNonce.add(BigInteger.ONE), skeleton.nonce)
+        assertEquals(BigInteger.valueOf(1_000_000_000), skeleton.gasPrice)
+        assertEquals(BigInteger.valueOf(21_000), skeleton.gas)
+        assertEquals(BigInteger.valueOf(116), skeleton.chainId)
+        assertEquals(toAddress, TypeConverter.toJsonHex(skeleton.to))
+        assertEquals(TypeConverter.toJsonHex(skeleton.nonce), unsignedTransaction.nonce)
+    }
+
+    @Test
+    fun tokenTransfersAreLeftToTheServer() {
+        sendServerTransaction()
+        assertNull(transactionBuilder.build(request.copy(tokenAddress = toAddress)))
+        assertNull(transactionBuilder.build(request.copy(value = "max")))
+    }
+
+    @Test
+    fun staleGasPriceIsNotReused() {
+        sendServerTransaction()
+        now += TimeUnit.MINUTES.toMillis(6)
+        assertNull(transactionBuilder.build(request))
+    }
+
+    @Test
+    fun gasPriceSetByTheRequestIsNotReused() {
+        sendServerTransaction()
+        val dappRequest = request.copy(gasPrice = "0x12a05f200")
+        transactionBuilder.onServerTransaction(dappRequest, serverTransaction(BigInteger.valueOf(5_000_000_000)))
+
+        val skeleton = TransactionSkeleton.decode(transactionBuilder.build(request)!!.transaction)
+        assertEquals(BigInteger.valueOf(1_000_000_000), skeleton.gasPrice)
+    }
+
+    @Test
+    fun secondTransactionWithTheSameNonceIsBumped() {
+        val first = transactionBuilder.reserveNonce(serverTransaction(), fromAddress)
+        val second = transactionBuilder.reserveNonce(serverTransaction(), fromAddress)
+        assertEquals(serverSkeleton, first.transaction)
+        assertEquals(serverNonce.add(BigInteger.ONE), TransactionSkeleton.decode(second.transaction).nonce)
+    }
+
+    @Test
+    fun serverNonceIsUsedOnceTheReservationHasExpired() {
+        transactionBuilder.reserveNonce(serverTransaction(), fromAddress)
+        now += TimeUnit.MINUTES.toMillis(3)
+        val next = transactionBuilder.reserveNonce(serverTransaction(), fromAddress)
+        assertEquals(serverSkeleton, next.transaction)
+    }
+
+    @Test
+    fun failedSendFallsBackToTheServer() {
+        sendServerTransaction()
+        transactionBuilder.invalidate(fromAddress)
+        assertNull(transactionBuilder.build(request))
+    }
+
+    private fun sendServerTransaction() {
+        val unsignedTransaction = serverTransaction()
+        transactionBuilder.onServerTransaction(request, unsignedTransaction)
+        transactionBuilder.reserveNonce(unsignedTransaction, fromAddress)
+    }
+
+    private fun serverTransaction(): UnsignedTransaction {
+        return UnsignedTransaction(serverSkeleton, "0x5208", "0x3b9aca00", "0x746f6b65e2", "0x061d3d89a89000")
+    }
+
+    private fun serverTransaction(gasPrice: BigInteger): UnsignedTransaction {
+        val skeleton = TransactionSkeleton.decode(serverSkeleton).copy(gasPrice = gasPrice)
+        return UnsignedTransaction(skeleton.encode(), "0x5208", TypeConverter.toJsonHex(gasPrice), "0x746f6b65e2", "0x061d3d89a89000")
+    }
+}
@@ -24,6 +24,7 @@ import com.toshi.manager.BalanceManager
 import com.toshi.manager.RecipientManager
 import com.toshi.manager.TransactionManager
 import com.toshi.manager.network.EthereumServiceInterface
+import com.toshi.manager.transaction.LocalTransactionBuilder
 import com.toshi.managers.balanceManager.BalanceManagerMocker
 import com.toshi.managers.balanceManager.EthereumServiceMocker
 import com.toshi.masterSeed
@@ -33,6 +34,7 @@ import com.toshi.model.local.UnsignedW3Transaction
 import com.toshi.model.local.User
 import com.toshi.model.network.ExchangeRate
 import com.toshi.model.network.UnsignedTransaction
+import com.toshi.testSharedPrefs.TestAppPrefs
 import com.toshi.util.EthUtil
 import com.toshi.util.paymentTask.PaymentTaskBuilder
 import org.mockito.Mockito
@@ -123,6 +125,7 @@ class PaymentTaskBuilderMocker {
         return TransactionManager(
                 ethService = mockEthereumService(unsignedTransaction),
                 walletObservable = mockWalletObservable(),
+                localTransactionBuilder = LocalTransactionBuilder(appPrefs = TestAppPrefs()),
                 scheduler = Schedulers.trampoline()
         )
     }